@@ -7,6 +7,9 @@ import 'package:gertec_pos_printer/printer/setup/text_print.dart';
 import 'package:gertec_pos_printer/printer/domain/enum/font_type.dart';
 import 'package:gertec_pos_printer/printer/domain/enum/text_alignment.dart';
 import 'package:gertec_pos_printer/printer/domain/enum/gertec_type.dart';
+import 'package:gertec_pos_printer/printer/domain/exception/gertec_printer_exception.dart';
+import 'package:gertec_pos_printer/printer/domain/repositories/gertec_printer_repository.dart';
+import 'package:gertec_pos_printer/printer/domain/repositories/gertec_sk210_repository.dart';
 import 'package:intl/intl.dart';
 import 'package:flutter/services.dart' show rootBundle;
 import 'dart:ui' as ui;
@@ -19,6 +22,27 @@ import 'package:shared_preferences/shared_preferences.dart';
 final printerServiceProvider = Provider((ref) => PrinterService());
 
 class PrinterService {
+  // Layout da senha desenhado em Java no SK210; enviado uma vez por sessão
+  static const Map<String, dynamic> _sk210TicketTemplate = {
+    'width': 384,
+    'paddingTop': 40,
+    'paddingBottom': 60,
+    'paddingSide': 20,
+    'lines': [
+      {'text': 'T.U.C.P.B.', 'fontSize': 50, 'bold': true, 'spacingAfter': 35},
+      {'text': '{gira}', 'fontSize': 30, 'bold': true, 'spacingAfter': 15},
+      {'text': '{date}', 'fontSize': 18, 'spacingAfter': 15},
+      {'text': '{entity}', 'fontSize': 42, 'bold': true, 'upperCase': true, 'spacingAfter': 15},
+      {'text': '{medium}', 'fontSize': 18, 'upperCase': true, 'spacingAfter': 15},
+      {'text': 'SENHA:', 'fontSize': 22, 'bold': true, 'spacingAfter': 15},
+      {'text': '{code}', 'fontSize': 70, 'bold': true, 'spacingAfter': 15},
+      {'text': 'Axé!', 'fontSize': 24, 'bold': true, 'spacingAfter': 15},
+      {'text': 'Os orixás são bons o tempo todo!', 'fontSize': 18, 'spacingAfter': 15},
+    ],
+  };
+  static bool _sk210TemplateSent = false;
+  // PrinterException.ERROR_NOT_CONFIGURED do plugin
+  static const int _errorNotConfigured = -6;
 
   Future<void> printTicket({
     required String terreiroName,
@@ -46,19 +70,32 @@ class PrinterService {
         final dateStr = DateFormat('dd/MM/yyyy HH:mm').format(date);
 
         if (type == GertecType.sk210) {
-          debugPrint('[PRINTER] >>> INICIANDO RENDERIZAÇÃO BITMAP (v10) PARA SK210 <<<');
-          final bytes = await _generateTicketBitmap(
-            terreiroName: terreiroName,
-            giraName: giraName,
-            entityName: entityName,
-            mediumName: mediumName,
-            mediumInitials: mediumInitials,
-            ticketCode: ticketCode,
-            dateStr: dateStr,
-          );
-
-          debugPrint('[PRINTER] Enviando BITMAP (${bytes.length} bytes) para o hardware...');
-          await printer.instance.printBitmap(bytes);
+          debugPrint('[PRINTER] >>> IMPRIMINDO SENHA NATIVA PARA SK210 <<<');
+          final sk210 = GertecSK210Repository();
+          if (!_sk210TemplateSent) {
+            // Lança se o plugin recusar: só marca como enviado depois do sucesso
+            await sk210.setTicketTemplate(_sk210TicketTemplate);
+            _sk210TemplateSent = true;
+          }
+          // Senha, avanço e corte numa única chamada ao plugin; lança com o
+          // código do erro (sem papel, sem impressora) para tentar o próximo tipo
+          await _printSk210Job(sk210, [
+            {
+              'type': 'ticket',
+              'fields': {
+                'terreiro': terreiroName,
+                'gira': _giraTitle(giraName),
+                'entity': entityName,
+                'medium': _mediumDisplayName(mediumName),
+                'code': ticketCode,
+                'date': dateStr,
+              },
+            },
+            {'type': 'feed', 'lines': 1},
+            {'type': 'cut', 'mode': 0},
+          ]);
+          debugPrint('[PRINTER] Impressão concluída com sucesso usando $type.');
+          return;
         } else if (type == GertecType.network) {
           debugPrint('[PRINTER] >>> CONFIGURANDO IMPRESSÃO VIA REDE <<<');
           final bytes = await _generateTicketBitmap(
@@ -97,11 +134,14 @@ class PrinterService {
             txt('Aguarde ser chamado(a).', align: TextAlignment.center),
             txt(' '),
           ];
-          await printer.instance.printTextList(lines);
+          // Linhas e avanço num único Output
+          await GertecPrinterRepository().printJob(lines, feedLines: 3);
+          debugPrint('[PRINTER] Impressão concluída com sucesso usando $type.');
+          return;
         }
 
         debugPrint('[PRINTER] Avancando papel e cortando ticket único...');
-        await printer.instance.wrapLine(type == GertecType.sk210 ? 1 : 3);
+        await printer.instance.wrapLine(3);
         await printer.instance.cut();
 
         debugPrint('[PRINTER] Impressão concluída com sucesso usando $type.');
@@ -115,6 +155,32 @@ class PrinterService {
     debugPrint('[PRINTER] AVISO: Impressão falhou com todos os tipos de Gertec disponíveis.');
   }
 
+  Future<void> _printSk210Job(GertecSK210Repository sk210, List<Map<String, dynamic>> ops) async {
+    try {
+      await sk210.printJob(ops);
+    } on GertecPrinterException catch (e) {
+      // Plugin sem o layout (ex: reiniciado sem o spool): reenvia na próxima senha
+      if (e.code == _errorNotConfigured) {
+        _sk210TemplateSent = false;
+      }
+      rethrow;
+    }
+  }
+
+  // Título da Gira sem duplicar 'GIRA DE'
+  String _giraTitle(String giraName) {
+    final String giraTitleUpper = giraName.toUpperCase().trim();
+    return giraTitleUpper.startsWith('GIRA DE') ? giraTitleUpper : 'GIRA DE $giraTitleUpper';
+  }
+
+  // Primeiro e último nome do médium
+  String _mediumDisplayName(String mediumName) {
+    final mediumParts = mediumName.trim().split(' ');
+    return mediumParts.length > 1
+        ? '${mediumParts.first} ${mediumParts.last}'
+        : mediumName;
+  }
+
   Future<Uint8List> _generateTicketBitmap({
     required String terreiroName,
     required String giraName,
@@ -159,12 +225,7 @@ class PrinterService {
     currentY += 20;
 
     // 2. Título da Gira (Não duplicar 'GIRA DE')
-    final String giraTitleUpper = giraName.toUpperCase().trim();
-    if (giraTitleUpper.startsWith('GIRA DE')) {
-      drawText(giraTitleUpper, bold: true, fontSize: 30, center: true);
-    } else {
-      drawText('GIRA DE $giraTitleUpper', bold: true, fontSize: 30, center: true);
-    }
+    drawText(_giraTitle(giraName), bold: true, fontSize: 30, center: true);
     
     // 3. Data e Hora
     drawText(dateStr, fontSize: 18, center: true);
@@ -173,11 +234,7 @@ class PrinterService {
     drawText(entityName.toUpperCase(), bold: true, fontSize: 42, center: true);
 
     // 5. Médium Simplificado (Primeiro e Último Nome, Sem título)
-    final mediumParts = mediumName.trim().split(' ');
-    final displayName = mediumParts.length > 1 
-        ? '${mediumParts.first} ${mediumParts.last}' 
-        : mediumName;
-    drawText(displayName.toUpperCase(), fontSize: 18, center: true);
+    drawText(_mediumDisplayName(mediumName).toUpperCase(), fontSize: 18, center: true);
 
     // 6. Senha (Centralizada)
     drawText('SENHA:', bold: true, fontSize: 22, center: true);
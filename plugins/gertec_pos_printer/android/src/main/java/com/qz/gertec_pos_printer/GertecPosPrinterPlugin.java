@@ -1,37 +1,132 @@
 package com.qz.gertec_pos_printer;
 
 import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.RemoteException;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 
+import com.qz.gertec_pos_printer.backend.PrinterBackend;
+import com.qz.gertec_pos_printer.barcode.PixPayloadBuilder;
+import com.qz.gertec_pos_printer.barcode.QrRenderer;
 import com.qz.gertec_pos_printer.gertec.GertecPrinter;
+import com.qz.gertec_pos_printer.job.PrintJob;
+import com.qz.gertec_pos_printer.job.PrintJobQueue;
+import com.qz.gertec_pos_printer.job.PrintJobState;
+import com.qz.gertec_pos_printer.metrics.PrinterMetrics;
+import com.qz.gertec_pos_printer.network.NetworkPrinterBackend;
+import com.qz.gertec_pos_printer.raster.Dither;
+import com.qz.gertec_pos_printer.raster.SegmentCache;
 import com.qz.gertec_pos_printer.sku210.GertecPrinter210;
+import com.qz.gertec_pos_printer.sku210.ImageBands;
+import com.qz.gertec_pos_printer.spool.PrintSpool;
+import com.qz.gertec_pos_printer.spool.SpoolReplay;
+import com.qz.gertec_pos_printer.wire.WireCommand;
+import com.qz.gertec_pos_printer.wire.WireMessage;
+import com.qz.gertec_pos_printer.wire.WireProtocol;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
+import io.flutter.plugin.common.BasicMessageChannel;
+import io.flutter.plugin.common.BinaryCodec;
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.EventChannel;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
+import io.flutter.plugin.common.StandardMessageCodec;
+import io.flutter.plugin.common.StandardMethodCodec;
 
 /** GertecPosPrinterPlugin */
-public class GertecPosPrinterPlugin implements FlutterPlugin, MethodCallHandler {
+public class GertecPosPrinterPlugin implements FlutterPlugin, MethodCallHandler, PrintJobQueue.Listener {
+
+  private static final Object NOT_IMPLEMENTED = new Object();
+  // Método dos trabalhos que vêm do canal binário; os argumentos são a lista de WireCommand
+  private static final String BINARY_JOB = "binaryCommands";
+  // Mesmo que BINARY_JOB, com WireProtocol.FLAG_NETWORK
+  private static final String BINARY_NETWORK_JOB = "binaryCommandsNetwork";
+  // Uma leitura de status no GPOS700 não espera mais que isso por uma impressão
+  private static final long STATUS_SAMPLE_TIMEOUT_MS = 500;
+  // Diário dos trabalhos aceitos, em getFilesDir()
+  private static final String SPOOL_FILE = "print_spool.journal";
+  private static final int SPOOL_CAPACITY = 4 * 1024 * 1024;
+  // Normalmente o force da janela já passou quando o trabalho chega na impressora
+  private static final long SPOOL_DURABLE_TIMEOUT_MS = 200;
+
+  // Senhas inteiras: só elas vão para o spool e voltam depois de uma queda.
+  // Comandos avulsos (uma linha, um corte) não fazem sentido sozinhos, e o
+  // callPrintSegments210 depende do cache de faixas, que não sobrevive à queda
+  private static final Set<String> SPOOLED_METHODS = new HashSet<>(Arrays.asList(
+      "callPrintJobGertec", "callPrintBitmap210", "callPrintRaster210", "callPrintTicket210",
+      "callPrintJob210", "callPrintPix", "callPrintBitmapNetwork", BINARY_JOB, BINARY_NETWORK_JOB));
+  // Estado que os trabalhos do spool pedem: gravado no spool e aplicado de
+  // novo no attach, antes de reimprimir
+  private static final Set<String> CONFIG_METHODS = new HashSet<>(Arrays.asList(
+      "callSetTicketTemplate210", "callSetPixConfig", "callSetNetworkPrinter"));
+  // Tudo o que põe papel para fora; passa pelo monitor de status antes
+  private static final Set<String> PRINT_METHODS = new HashSet<>(SPOOLED_METHODS);
+
+  static {
+    PRINT_METHODS.addAll(Arrays.asList(
+        "callPrintGertec", "callNextLine", "callCutGertec", "callPrint210", "callPrintTextList210",
+        "callPrintSegments210", "callCut210", "callPrinterWrap210", "callPrinterBarcode210",
+        "callPrinterQRCode210"));
+  }
 
   private MethodChannel channel;
+  private BasicMessageChannel<ByteBuffer> binaryChannel;
+  private EventChannel jobChannel;
+  private volatile EventChannel.EventSink jobEvents;
+  private PrintJobQueue jobQueue;
+  private EventChannel statusChannel;
+  private volatile EventChannel.EventSink statusEvents;
+  private PrinterStatusMonitor statusMonitor;
+  // null se o arquivo não abriu; as impressões seguem sem spool
+  private volatile PrintSpool spool;
+  private Future<?> spoolOpened;
+  // Reexecução do que ficou no spool; null junto com ele. Só a thread da impressora mexe
+  private SpoolReplay replay;
+  private final SegmentCache segmentCache = new SegmentCache();
+  // Compartilhado com as duas impressoras; lido pelo callPrinterMetrics
+  private final PrinterMetrics metrics = new PrinterMetrics();
   private Context context;
   private Object gertecPrinterObj;
   private GertecPrinter210 printer210;
-  private Response response;
+  // Impressora ESC/POS na rede (callSetNetworkPrinter); só a thread da impressora mexe
+  private NetworkPrinterBackend networkPrinter;
+  // Recebedor do PIX; só a thread da impressora mexe
+  private PixPayloadBuilder pix;
+  private PrinterThread printerThread;
+  private Handler mainHandler;
+
+  // Pré-aquecimento e tempo até a primeira impressão
+  private Future<?> ready;
+  private long attachedAt;
+  private volatile long warmupMs = -1;
+  private volatile long firstPrintMs = -1;
 
   private GertecPrinter getGertecPrinter() {
     if (gertecPrinterObj == null) {
       try {
-        gertecPrinterObj = new GertecPrinter(this.context);
+        gertecPrinterObj = new GertecPrinter(this.context, metrics);
       } catch (Throwable t) {
         Log.e("GERTEC_PLUGIN", "FALHA GPOS700: " + t.toString());
       }
@@ -39,59 +134,807 @@ public class GertecPosPrinterPlugin implements FlutterPlugin, MethodCallHandler
     return (GertecPrinter) gertecPrinterObj;
   }
 
+  private GertecPrinter requireGertecPrinter() throws PrinterException {
+    GertecPrinter gp = getGertecPrinter();
+    if (gp == null) {
+      throw new PrinterException(PrinterException.ERROR_NOT_AVAILABLE, "GPOS700 indisponível");
+    }
+    return gp;
+  }
+
+  private GertecPrinter210 getPrinter210() {
+    if (printer210 == null) {
+      printer210 = new GertecPrinter210(context, segmentCache, metrics);
+    }
+    return printer210;
+  }
+
+  /** Impressora do modelo atual, pelos comandos comuns aos dois. */
+  private PrinterBackend backend() throws PrinterException {
+    return isGpos700() ? requireGertecPrinter() : getPrinter210();
+  }
+
+  private NetworkPrinterBackend requireNetworkPrinter() throws PrinterException {
+    if (networkPrinter == null) {
+      throw new PrinterException(PrinterException.ERROR_NOT_CONFIGURED,
+          "Impressora de rede não configurada (callSetNetworkPrinter)");
+    }
+    return networkPrinter;
+  }
+
+  /**
+   * Troca a impressora de rede. A conexão abre em segundo plano; o status
+   * aparece no callStatusNetwork.
+   *
+   * @param host = IP da impressora; vazio ou null desliga
+   * @param port = porta do ESC/POS, normalmente 9100
+   */
+  private void setNetworkPrinter(String host, Integer port) throws IOException {
+    if (networkPrinter != null) {
+      networkPrinter.close();
+      networkPrinter = null;
+    }
+    if (host != null && !host.isEmpty()) {
+      networkPrinter = new NetworkPrinterBackend(host, port != null ? port : NetworkPrinterBackend.DEFAULT_PORT,
+          segmentCache, metrics);
+      Log.i("GERTEC_PLUGIN", "Impressora de rede: " + networkPrinter.getAddress());
+    }
+  }
+
+  /** PNG/JPEG na impressora de rede, lido e convertido em faixas enquanto a anterior vai pelo socket. */
+  private void printNetworkImage(NetworkPrinterBackend printer, byte[] bytes, String dither) throws PrinterException {
+    metrics.increment("bytes.received", bytes != null ? bytes.length : 0);
+    // Na rede não há limiar do firmware: "none" vira limiar simples
+    Dither.Mode mode = "none".equals(dither)
+        ? Dither.Mode.THRESHOLD : Dither.Mode.fromName(dither, Dither.Mode.FLOYD_STEINBERG);
+    printer.printBands(new ImageBands(bytes, mode));
+  }
+
+  private PixPayloadBuilder requirePix() throws PrinterException {
+    if (pix == null) {
+      throw new PrinterException(PrinterException.ERROR_NOT_CONFIGURED, "PIX não configurado (callSetPixConfig)");
+    }
+    return pix;
+  }
+
+  private static boolean isGpos700() {
+    return GertecPrinter.G700.equals(Build.MODEL);
+  }
+
+  /**
+   * Carrega só a biblioteca do modelo em que o app está rodando (GEDI no
+   * GPOS700, serviço AIDL da Topwise nos demais) já no attach, na thread da
+   * impressora. A outra impressora continua preguiçosa, criada no primeiro uso.
+   */
+  private void warmUp() {
+    long start = SystemClock.elapsedRealtime();
+    PrinterStatusMonitor.Sampler sampler;
+    if (isGpos700()) {
+      final GertecPrinter gp = getGertecPrinter();
+      sampler = () -> sampleGpos700(gp);
+    } else {
+      final GertecPrinter210 sk210 = getPrinter210();
+      sampler = () -> sampleSk210(sk210);
+    }
+    warmupMs = SystemClock.elapsedRealtime() - start;
+    Log.i("GERTEC_PLUGIN", "Impressora pronta (" + Build.MODEL + ") em " + warmupMs + "ms");
+    statusMonitor.start(sampler);
+  }
+
+  /**
+   * O GEDI não é thread-safe: a leitura entra na fila da impressora. Se uma
+   * impressão estiver ocupando a thread, a rodada é descartada.
+   */
+  private PrinterStatusMonitor.Status sampleGpos700(final GertecPrinter gp) throws Exception {
+    if (gp == null) {
+      return new PrinterStatusMonitor.Status(PrinterState.OFFLINE, "OFFLINE");
+    }
+    Future<PrinterStatusMonitor.Status> read = printerThread.submit(() -> {
+      String text = gp.getStatusImpressora();
+      return new PrinterStatusMonitor.Status(gp.getEstadoImpressora(), text);
+    });
+    try {
+      return read.get(STATUS_SAMPLE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      read.cancel(false);
+      return null;
+    }
+  }
+
+  /** O serviço AIDL aceita chamadas de qualquer thread; lê direto. */
+  private PrinterStatusMonitor.Status sampleSk210(GertecPrinter210 sk210) throws Exception {
+    int state = sk210.readPrinterState();
+    return new PrinterStatusMonitor.Status(PrinterState.fromSk210(state), state);
+  }
+
+  /**
+   * Status em cache do modelo atual.
+   *
+   * @return Object = valor no formato de callStatusGertec / callPrinterStatus210,
+   *         ou null se o método é de outro modelo ou ainda não houve leitura
+   */
+  private Object cachedStatus(String method) {
+    PrinterStatusMonitor.Status status = statusMonitor.getStatus();
+    if (status == null || status.raw == null) {
+      return null;
+    }
+    boolean gpos700 = isGpos700();
+    if ((method.equals("callStatusGertec") && gpos700) || (method.equals("callPrinterStatus210") && !gpos700)) {
+      return status.raw;
+    }
+    return null;
+  }
+
+  private static boolean isPrintMethod(String method) {
+    return PRINT_METHODS.contains(method);
+  }
+
+  private static boolean isSpooledMethod(String method) {
+    return SPOOLED_METHODS.contains(method);
+  }
+
+  /** Vai para a impressora de rede: o monitor de status do aparelho não se aplica. */
+  private static boolean isNetworkMethod(String method) {
+    return method.equals(BINARY_NETWORK_JOB) || method.equals("callPrintBitmapNetwork");
+  }
+
+  private boolean isReady() {
+    if (ready == null || !ready.isDone()) {
+      return false;
+    }
+    try {
+      ready.get();
+      return true;
+    } catch (InterruptedException | ExecutionException e) {
+      return false;
+    }
+  }
+
+  private Map<String, Object> readiness() {
+    Map<String, Object> map = new HashMap<>();
+    map.put("ready", isReady());
+    map.put("model", Build.MODEL);
+    map.put("warmupMs", warmupMs);
+    map.put("coldStartToFirstPrintMs", firstPrintMs);
+    return map;
+  }
+
+  /** Contador do erro: código do {@link PrinterException} ou tipo da exceção. */
+  private void countError(Exception e) {
+    if (e instanceof PrinterException) {
+      metrics.increment("errors." + ((PrinterException) e).getErrorCode());
+    } else {
+      metrics.increment("errors." + e.getClass().getSimpleName());
+    }
+  }
+
+  private Map<String, Object> metricsSnapshot() {
+    // As filas podem ter esvaziado desde a última atualização
+    metrics.updateGauge("jobs.pending", jobQueue.getPendingCount());
+    metrics.updateGauge("printer.waiting", printerThread.getWaitingCount());
+    PrintSpool s = spool;
+    if (s != null) {
+      metrics.updateGauge("spool.pending", s.getPendingCount());
+      metrics.updateGauge("spool.bytes", s.getUsedBytes());
+    }
+    return metrics.snapshot();
+  }
+
+  /** Abre o spool. É o primeiro comando da thread da impressora. */
+  private void openSpool() {
+    try {
+      spool = new PrintSpool(new File(context.getFilesDir(), SPOOL_FILE), SPOOL_CAPACITY);
+      replay = new SpoolReplay(spool, metrics, this::submitReplay);
+    } catch (IOException e) {
+      Log.e("GERTEC_PLUGIN", "Spool indisponível: " + e.toString());
+    }
+  }
+
+  /**
+   * Devolve à fila os trabalhos que ficaram no spool sem resposta (queda do
+   * app ou do totem). Chegam pelo canal de jobs com ids que o app não pediu.
+   *
+   * Antes, aplica de novo as configurações gravadas ({@link #CONFIG_METHODS}):
+   * o Dart só as reenvia quando precisa, e uma senha do spool não pode falhar
+   * por isso. Tentativas e trabalhos guardados ficam com o {@link SpoolReplay}.
+   */
+  private void replaySpool() {
+    PrintSpool s = spool;
+    if (s == null) {
+      return;
+    }
+    for (PrintSpool.Entry config : s.getConfigs()) {
+      try {
+        dispatch(new MethodCall(config.method, decodeSpooled(config)));
+        Log.i("GERTEC_PLUGIN", "Configuração restaurada do spool: " + config.method);
+      } catch (Exception e) {
+        Log.e("GERTEC_PLUGIN", "Falha ao restaurar " + config.method + " do spool: " + e.toString());
+        metrics.increment("spool.errors");
+      }
+    }
+    replay.replay(SPOOLED_METHODS);
+  }
+
+  private void submitReplay(PrintSpool.Entry entry) {
+    Object arguments;
+    try {
+      arguments = decodeSpooled(entry);
+    } catch (RuntimeException e) {
+      Log.e("GERTEC_PLUGIN", "Trabalho " + entry.id + " do spool ilegível: " + e.toString());
+      throw e;
+    }
+    Log.i("GERTEC_PLUGIN", "Reimprimindo do spool: " + entry.id + " " + entry.method);
+    jobQueue.submit(entry.method, arguments, entry.id);
+  }
+
+  private static Object decodeSpooled(PrintSpool.Entry entry) {
+    if (entry.format == PrintSpool.FORMAT_WIRE) {
+      return WireMessage.decode(ByteBuffer.wrap(entry.payload)).getCommands();
+    }
+    return StandardMessageCodec.INSTANCE.decodeMessage(entry.payload.length > 0 ? ByteBuffer.wrap(entry.payload) : null);
+  }
+
+  /** Devolve à fila os trabalhos do spool guardados; a impressora voltou ou chegou uma configuração. */
+  private void retryHeld() {
+    if (replay != null) {
+      replay.retryHeld();
+    }
+  }
+
+  /**
+   * Grava no spool uma configuração que acabou de ser aplicada, para o
+   * próximo attach, e tenta de novo os trabalhos guardados. Roda na thread da
+   * impressora.
+   */
+  private void saveConfig(String method, Object arguments) {
+    if (!CONFIG_METHODS.contains(method)) {
+      return;
+    }
+    PrintSpool s = spool;
+    if (s != null) {
+      try {
+        s.putConfig(method, PrintSpool.FORMAT_CODEC, encodeArguments(arguments));
+      } catch (IOException | RuntimeException e) {
+        Log.e("GERTEC_PLUGIN", "Falha ao gravar " + method + " no spool: " + e.toString());
+        metrics.increment("spool.errors");
+      }
+    }
+    retryHeld();
+  }
+
+  /**
+   * Grava os argumentos de um comando no spool antes de ele entrar na fila.
+   *
+   * @return long = id no spool, 0 se não foi gravado
+   */
+  private long spoolArguments(String method, Object arguments) {
+    ByteBuffer payload;
+    try {
+      payload = encodeArguments(arguments);
+    } catch (RuntimeException e) {
+      Log.e("GERTEC_PLUGIN", "Argumentos de " + method + " fora do spool: " + e.toString());
+      metrics.increment("spool.errors");
+      return 0;
+    }
+    return spoolAppend(method, PrintSpool.FORMAT_CODEC, payload);
+  }
+
+  private static ByteBuffer encodeArguments(Object arguments) {
+    ByteBuffer payload = StandardMessageCodec.INSTANCE.encodeMessage(arguments);
+    if (payload != null) {
+      // O codec deixa a posição no fim, que é como o DartMessenger lê o tamanho
+      payload.flip();
+    }
+    return payload;
+  }
+
+  private long spoolAppend(String method, int format, ByteBuffer payload) {
+    PrintSpool s = spool();
+    if (s == null) {
+      return 0;
+    }
+    try {
+      long id = s.append(method, format, payload);
+      metrics.increment("spool.appended");
+      return id;
+    } catch (IOException e) {
+      Log.e("GERTEC_PLUGIN", "Falha ao gravar " + method + " no spool: " + e.toString());
+      metrics.increment("spool.errors");
+      return 0;
+    }
+  }
+
+  /** Espera a abertura do spool; chamado fora da thread da impressora. */
+  private PrintSpool spool() {
+    try {
+      spoolOpened.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException e) {
+      return null;
+    }
+    return spool;
+  }
+
+  /** Garante, antes do papel, que o trabalho sobrevive a uma queda de energia. */
+  private void awaitSpool(long spoolId) {
+    PrintSpool s = spool;
+    if (spoolId == 0 || s == null) {
+      return;
+    }
+    try {
+      if (!s.awaitDurable(spoolId, SPOOL_DURABLE_TIMEOUT_MS)) {
+        metrics.increment("spool.lateForce");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** O trabalho foi respondido (com sucesso ou erro) e não volta no próximo attach. */
+  private void completeSpool(long spoolId) {
+    PrintSpool s = spool;
+    if (spoolId == 0 || s == null) {
+      return;
+    }
+    try {
+      s.complete(spoolId);
+    } catch (IOException e) {
+      Log.e("GERTEC_PLUGIN", "Falha ao concluir " + spoolId + " no spool: " + e.toString());
+      metrics.increment("spool.errors");
+    }
+  }
+
+  private void markFirstPrint(String method) {
+    if (firstPrintMs < 0 && isPrintMethod(method)) {
+      firstPrintMs = SystemClock.elapsedRealtime() - attachedAt;
+      Log.i("GERTEC_PLUGIN", "Primeira impressão " + firstPrintMs + "ms após o attach");
+    }
+  }
+
   @Override
   public void onAttachedToEngine(@NonNull FlutterPluginBinding flutterPluginBinding) {
-    channel = new MethodChannel(flutterPluginBinding.getBinaryMessenger(), "qz_gertec_printer");
+    BinaryMessenger messenger = flutterPluginBinding.getBinaryMessenger();
+    // Decodificação dos argumentos (bitmaps grandes) fora da thread principal
+    BinaryMessenger.TaskQueue taskQueue = messenger.makeBackgroundTaskQueue();
+    channel = new MethodChannel(messenger, "qz_gertec_printer", StandardMethodCodec.INSTANCE, taskQueue);
     context = flutterPluginBinding.getApplicationContext();
+    mainHandler = new Handler(Looper.getMainLooper());
+    printerThread = new PrinterThread();
+    attachedAt = SystemClock.elapsedRealtime();
+    statusMonitor = new PrinterStatusMonitor(this::onStatusChanged);
+    jobQueue = new PrintJobQueue(printerThread, this::runJob, this);
+    // O spool abre antes de tudo; os trabalhos pendentes voltam depois do aquecimento
+    spoolOpened = printerThread.submit(this::openSpool);
+    // As duas impressoras pertencem à thread da impressora, inclusive na criação
+    ready = printerThread.submit(this::warmUp);
+    printerThread.execute(this::replaySpool);
+    jobChannel = new EventChannel(messenger, "qz_gertec_printer/jobs");
+    jobChannel.setStreamHandler(new EventChannel.StreamHandler() {
+      @Override
+      public void onListen(Object arguments, EventChannel.EventSink events) {
+        jobEvents = events;
+      }
+
+      @Override
+      public void onCancel(Object arguments) {
+        jobEvents = null;
+      }
+    });
+    statusChannel = new EventChannel(messenger, "qz_gertec_printer/status");
+    statusChannel.setStreamHandler(new EventChannel.StreamHandler() {
+      @Override
+      public void onListen(Object arguments, EventChannel.EventSink events) {
+        statusEvents = events;
+      }
+
+      @Override
+      public void onCancel(Object arguments) {
+        statusEvents = null;
+      }
+    });
     channel.setMethodCallHandler(this);
-    printer210 = new GertecPrinter210(context);
-    response = new Response();
+    // Direto: o buffer chega sem cópia e só vale durante o onMessage
+    binaryChannel = new BasicMessageChannel<>(messenger, WireProtocol.CHANNEL, BinaryCodec.INSTANCE_DIRECT, taskQueue);
+    binaryChannel.setMessageHandler(this::onBinaryMessage);
+  }
+
+  /**
+   * Mensagem do canal binário ({@link WireProtocol}). É lida aqui, na fila de
+   * segundo plano do canal; só a impressão vai para a thread da impressora.
+   */
+  private void onBinaryMessage(ByteBuffer message, BasicMessageChannel.Reply<ByteBuffer> reply) {
+    final ByteBuffer received = message != null ? message.duplicate() : null;
+    final WireMessage decoded;
+    try {
+      decoded = WireMessage.decode(message);
+    } catch (IllegalArgumentException e) {
+      Log.e("GERTEC_PLUGIN", "Mensagem binária inválida: " + e.getMessage());
+      metrics.increment("errors.malformed");
+      reply.reply(WireProtocol.reply(0, WireProtocol.RESULT_MALFORMED, null, PrinterException.ERROR_UNKNOWN, 0));
+      return;
+    }
+    if (decoded.isStatusOnly()) {
+      // Estado do monitor, como o status em cache do canal de métodos
+      PrinterStatusMonitor.Status status = statusMonitor.getStatus();
+      long raw = status != null && status.raw instanceof Number ? ((Number) status.raw).longValue() : 0;
+      reply.reply(WireProtocol.reply(WireProtocol.OP_STATUS, WireProtocol.RESULT_OK,
+          status != null ? status.state : null, 0, raw));
+      return;
+    }
+    // Gravado ainda aqui: o buffer só vale durante o onMessage
+    final boolean network = decoded.hasFlag(WireProtocol.FLAG_NETWORK);
+    final String method = network ? BINARY_NETWORK_JOB : BINARY_JOB;
+    final long spoolId = spoolAppend(method, PrintSpool.FORMAT_WIRE, received);
+    if (decoded.hasFlag(WireProtocol.FLAG_ASYNC)) {
+      long jobId = jobQueue.submit(method, decoded.getCommands(), spoolId);
+      reply.reply(WireProtocol.reply(0, WireProtocol.RESULT_QUEUED, null, 0, jobId));
+      return;
+    }
+    final long queuedAt = System.nanoTime();
+    printerThread.execute(() -> {
+      metrics.recordStage(PrinterMetrics.Stage.QUEUE, queuedAt);
+      final ByteBuffer answer = runBinary(decoded.getCommands(), network, spoolId);
+      mainHandler.post(() -> reply.reply(answer));
+    });
+    metrics.updateGauge("printer.waiting", printerThread.getWaitingCount());
+  }
+
+  /**
+   * Executa os comandos de uma mensagem síncrona e monta a resposta. Em caso
+   * de erro, a resposta traz o opcode do comando que falhou e, no valor,
+   * quantos comandos já tinham saído.
+   */
+  private ByteBuffer runBinary(List<WireCommand> commands, boolean network, long spoolId) {
+    String method = network ? BINARY_NETWORK_JOB : BINARY_JOB;
+    long start = System.nanoTime();
+    int done = 0;
+    try {
+      PrinterBackend backend;
+      if (network) {
+        // O monitor de status é da impressora do aparelho
+        backend = requireNetworkPrinter();
+      } else {
+        statusMonitor.ensurePrintable();
+        backend = backend();
+      }
+      awaitSpool(spoolId);
+      for (WireCommand command : commands) {
+        runCommand(backend, command);
+        done++;
+      }
+      backend.flush();
+      metrics.increment("calls.ok");
+      markFirstPrint(method);
+      return WireProtocol.reply(0, WireProtocol.RESULT_OK, null, 0, done);
+    } catch (Exception e) {
+      metrics.increment("calls.failed");
+      countError(e);
+      Log.e("GERTEC_PLUGIN", "ERRO NO COMANDO BINÁRIO " + done + ": " + e.toString());
+      int opcode = done < commands.size() ? commands.get(done).opcode : 0;
+      int code = e instanceof PrinterException ? ((PrinterException) e).getErrorCode() : PrinterException.ERROR_UNKNOWN;
+      return WireProtocol.reply(opcode, WireProtocol.RESULT_ERROR, null, code, done);
+    } finally {
+      metrics.method(method).recordSince(start);
+      completeSpool(spoolId);
+    }
+  }
+
+  /** Mesmo que {@link #runBinary(List, boolean, long)}, para os trabalhos da fila. */
+  private int runCommands(List<WireCommand> commands, boolean network) throws Exception {
+    PrinterBackend backend = network ? requireNetworkPrinter() : backend();
+    for (WireCommand command : commands) {
+      runCommand(backend, command);
+    }
+    backend.flush();
+    return commands.size();
+  }
+
+  private void runCommand(PrinterBackend backend, WireCommand command) throws Exception {
+    switch (command.opcode) {
+      case WireProtocol.OP_TEXT:
+        backend.printText(command.text, command.size, command.hasFlag(WireProtocol.FLAG_BOLD));
+        break;
+      case WireProtocol.OP_RASTER:
+        backend.printRaster(command.raster);
+        break;
+      case WireProtocol.OP_IMAGE:
+        if (backend instanceof NetworkPrinterBackend) {
+          printNetworkImage((NetworkPrinterBackend) backend, command.image, command.dither);
+          break;
+        }
+        if (isGpos700()) {
+          throw new PrinterException(PrinterException.ERROR_UNKNOWN, "Imagem PNG/JPEG só no SK210");
+        }
+        getPrinter210().printImage(command.image, command.dither);
+        break;
+      case WireProtocol.OP_QRCODE:
+        backend.printQrCode(command.text, command.size);
+        break;
+      case WireProtocol.OP_BARCODE:
+        backend.printBarcode(command.symbology, command.text, command.width, command.height);
+        break;
+      case WireProtocol.OP_FEED:
+        backend.feed(command.size);
+        break;
+      case WireProtocol.OP_CUT:
+        backend.cut();
+        break;
+      case WireProtocol.OP_PIX:
+        backend.printQrCode(requirePix().build(command.amount, command.text), command.size);
+        break;
+      default:
+        // OP_STATUS no meio de uma senha não imprime nada
+        break;
+    }
   }
 
   @Override
   public void onMethodCall(@NonNull MethodCall call, @NonNull Result result) {
+    if (call.method.equals("isReady")) {
+      // Não entra na fila: responde mesmo com uma impressão em andamento
+      result.success(ResultMaps.of("success", readiness(), true));
+      return;
+    }
+    if (call.method.equals("callPrinterMetrics")) {
+      // Só lê atômicos: responde mesmo durante uma gira movimentada
+      result.success(ResultMaps.of("success", metricsSnapshot(), true));
+      return;
+    }
+    if (call.method.equals("setStatusInterval")) {
+      Object interval = call.argument("intervalMs");
+      if (!(interval instanceof Number)) {
+        result.success(ResultMaps.of("Error", "setStatusInterval sem \"intervalMs\" numérico", false));
+        return;
+      }
+      statusMonitor.setPeriod(((Number) interval).longValue());
+      result.success(ResultMaps.of("success", statusMonitor.getPeriod(), true));
+      return;
+    }
+    Object cached = cachedStatus(call.method);
+    if (cached != null) {
+      // Status servido do monitor, sem esperar a fila da impressora
+      result.success(ResultMaps.of("success", cached, true));
+      return;
+    }
+    if (call.method.equals("submitJob")) {
+      // Responde na hora com o id; o andamento chega pelo canal de eventos
+      String method = call.argument("method");
+      if (method == null) {
+        result.success(ResultMaps.of("Error", "submitJob sem \"method\"", false));
+        return;
+      }
+      Object arguments = call.argument("arguments");
+      long spoolId = isSpooledMethod(method) ? spoolArguments(method, arguments) : 0;
+      long jobId = jobQueue.submit(method, arguments, spoolId);
+      result.success(ResultMaps.of("success", jobId, true));
+      return;
+    }
+    final Result mainResult = new MainThreadResult(result);
+    final long spoolId = isSpooledMethod(call.method) ? spoolArguments(call.method, call.arguments) : 0;
+    final long queuedAt = System.nanoTime();
+    printerThread.execute(() -> handleMethodCall(call, mainResult, queuedAt, spoolId));
+    metrics.updateGauge("printer.waiting", printerThread.getWaitingCount());
+  }
+
+  private void handleMethodCall(@NonNull MethodCall call, @NonNull Result result, long queuedAt, long spoolId) {
+    metrics.recordStage(PrinterMetrics.Stage.QUEUE, queuedAt);
     // Log minimal para evitar overhead mas confirmar atividade
     if (!call.method.equals("callPrintBitmap210")) {
       Log.d("GERTEC_PLUGIN", "Método: " + call.method);
     }
 
+    long start = System.nanoTime();
     try {
-      if (call.method.equals("callStatusGertec")) {
-        GertecPrinter gp = getGertecPrinter();
-        result.success(response.send("success", gp != null ? gp.getStatusImpressora() : "OFFLINE", true));
-      } else if (call.method.equals("callPrint210")) {
-        printer210.printTextCustom((Map) call.arguments);
-        result.success(response.send("success", "", true));
-      } else if (call.method.equals("callPrintTextList210")) {
-        printer210.printTextListCustom((List<Map>) call.argument("params"));
-        result.success(response.send("success", "", true));
-      } else if (call.method.equals("callPrintBitmap210")) {
-        byte[] bitmapBytes = (byte[]) call.argument("bitmap");
-        android.graphics.Bitmap bitmap = android.graphics.BitmapFactory.decodeByteArray(bitmapBytes, 0,
-            bitmapBytes.length);
-        printer210.printBitmapCustom(bitmap);
-        result.success(response.send("success", "", true));
-      } else if (call.method.equals("callCut210")) {
-        int r = printer210.cut((int) call.argument("mode"));
-        result.success(response.send("success", r, true));
-      } else if (call.method.equals("callPrinterWrap210")) {
-        printer210.wrap((int) call.argument("linesWrap"));
-        result.success(response.send("success", "", true));
-      } else if (call.method.equals("callPrinterStatus210")) {
-        result.success(response.send("success", printer210.getPrinterStatus(), true));
-      } else if (call.method.equals("callPrinterBarcode210")) {
-        printer210.printBarcode((HashMap) call.argument("params"));
-        result.success(response.send("success", "", true));
-      } else if (call.method.equals("callPrinterQRCode210")) {
-        printer210.printerQRCode((HashMap) call.argument("params"));
-        result.success(response.send("success", "", true));
-      } else {
+      if (isPrintMethod(call.method) && !isNetworkMethod(call.method)) {
+        statusMonitor.ensurePrintable();
+      }
+      awaitSpool(spoolId);
+      Object message = dispatch(call);
+      if (message == NOT_IMPLEMENTED) {
         result.notImplemented();
+      } else {
+        metrics.method(call.method).recordSince(start);
+        metrics.increment("calls.ok");
+        markFirstPrint(call.method);
+        saveConfig(call.method, call.arguments);
+        result.success(ResultMaps.of("success", message, true));
       }
     } catch (Exception e) {
+      metrics.method(call.method).recordSince(start);
+      metrics.increment("calls.failed");
+      countError(e);
       Log.e("GERTEC_PLUGIN", "ERRO EM " + call.method + ": " + e.toString());
-      result.success(response.send("Error", e.getMessage(), false));
+      int errorCode = e instanceof PrinterException ? ((PrinterException) e).getErrorCode() : PrinterException.ERROR_UNKNOWN;
+      result.success(ResultMaps.error(errorCode, e.getMessage()));
+    } finally {
+      completeSpool(spoolId);
+    }
+  }
+
+  /**
+   * Executa um comando na impressora. Roda sempre na thread da impressora.
+   *
+   * @return Object = conteúdo do campo "message" da resposta, ou
+   *         {@link #NOT_IMPLEMENTED}
+   */
+  private Object dispatch(@NonNull MethodCall call) throws Exception {
+    if (call.method.equals("callStatusGertec")) {
+      GertecPrinter gp = getGertecPrinter();
+      return gp != null ? gp.getStatusImpressora() : "OFFLINE";
+    } else if (call.method.equals("callPrintGertec")) {
+      requireGertecPrinter().desenhaLinha((Map) call.arguments);
+      return "";
+    } else if (call.method.equals("callNextLine")) {
+      GertecPrinter gp = requireGertecPrinter();
+      gp.ImpressoraInit();
+      gp.avancaLinha((int) call.argument("lineQuantity"));
+      return "";
+    } else if (call.method.equals("callCutGertec")) {
+      // O GPOS700 não tem guilhotina: o "corte" imprime o que foi desenhado
+      requireGertecPrinter().ImpressoraOutput();
+      return "";
+    } else if (call.method.equals("callPrintJobGertec")) {
+      return requireGertecPrinter().imprimeTrabalho((List<Map>) call.argument("ops"));
+    } else if (call.method.equals("callPrint210")) {
+      getPrinter210().printTextCustom((Map) call.arguments);
+      return "";
+    } else if (call.method.equals("callPrintTextList210")) {
+      getPrinter210().printTextListCustom((List<Map>) call.argument("params"));
+      return "";
+    } else if (call.method.equals("callPrintBitmap210")) {
+      getPrinter210().printImage((byte[]) call.argument("bitmap"), (String) call.argument("dither"));
+      return "";
+    } else if (call.method.equals("callPrintRaster210")) {
+      getPrinter210().printRaster((int) call.argument("width"), (byte[]) call.argument("data"));
+      return "";
+    } else if (call.method.equals("callPrintSegments210")) {
+      return getPrinter210().printSegments((List<Map>) call.argument("segments"));
+    } else if (call.method.equals("callSetTicketTemplate210")) {
+      getPrinter210().setTicketTemplate((Map) call.argument("template"));
+      return "";
+    } else if (call.method.equals("callPrintTicket210")) {
+      getPrinter210().printTicket((Map) call.argument("fields"));
+      return "";
+    } else if (call.method.equals("callPrintJob210")) {
+      return getPrinter210().printJob((List<Map>) call.argument("ops"));
+    } else if (call.method.equals("callSetPixConfig")) {
+      pix = new PixPayloadBuilder((String) call.argument("key"), (String) call.argument("name"),
+          (String) call.argument("city"), (String) call.argument("description"));
+      if (!isGpos700()) {
+        getPrinter210().setPix(pix);
+      }
+      return "";
+    } else if (call.method.equals("callPrintPix")) {
+      return printPix(call);
+    } else if (call.method.equals(BINARY_JOB)) {
+      return runCommands((List<WireCommand>) call.arguments, false);
+    } else if (call.method.equals(BINARY_NETWORK_JOB)) {
+      return runCommands((List<WireCommand>) call.arguments, true);
+    } else if (call.method.equals("callSetNetworkPrinter")) {
+      setNetworkPrinter((String) call.argument("host"), (Integer) call.argument("port"));
+      return "";
+    } else if (call.method.equals("callStatusNetwork")) {
+      NetworkPrinterBackend np = networkPrinter;
+      Map<String, Object> status = new HashMap<>();
+      status.put("address", np != null ? np.getAddress() : null);
+      status.put("connected", np != null && np.isConnected());
+      status.put("state", np != null ? np.getState().name() : PrinterState.OFFLINE.name());
+      return status;
+    } else if (call.method.equals("callPrintBitmapNetwork")) {
+      NetworkPrinterBackend np = requireNetworkPrinter();
+      printNetworkImage(np, (byte[]) call.argument("bitmap"), (String) call.argument("dither"));
+      Boolean cut = call.argument("cut");
+      if (cut == null || cut) {
+        np.cut();
+      }
+      np.flush();
+      return "";
+    } else if (call.method.equals("callCut210")) {
+      return getPrinter210().cut((int) call.argument("mode"));
+    } else if (call.method.equals("callPrinterWrap210")) {
+      getPrinter210().wrap((int) call.argument("linesWrap"));
+      return "";
+    } else if (call.method.equals("callPrinterStatus210")) {
+      return getPrinter210().getPrinterStatus();
+    } else if (call.method.equals("callPrinterBarcode210")) {
+      getPrinter210().printBarcode((HashMap) call.argument("params"));
+      return "";
+    } else if (call.method.equals("callPrinterQRCode210")) {
+      getPrinter210().printerQRCode((HashMap) call.argument("params"));
+      return "";
+    }
+    return NOT_IMPLEMENTED;
+  }
+
+  /**
+   * Imprime o QR do PIX no modelo atual. Só valor, txid e CRC são montados por
+   * senha.
+   *
+   * @return String = payload impresso, para conferência no app
+   */
+  private Object printPix(MethodCall call) throws Exception {
+    Number amount = call.argument("amount");
+    Integer size = call.argument("size");
+    CharSequence payload = requirePix().build(amount != null ? amount.longValue() : 0, (String) call.argument("txid"));
+    PrinterBackend backend = backend();
+    backend.printQrCode(payload, size != null ? size : QrRenderer.DEFAULT_SCAN_SIZE);
+    backend.flush();
+    return payload.toString();
+  }
+
+  private void runJob(PrintJob job) throws Exception {
+    Log.d("GERTEC_PLUGIN", "Job " + job.getId() + ": " + job.getMethod());
+    metrics.recordStage(PrinterMetrics.Stage.QUEUE, job.getSubmittedAt());
+    long start = System.nanoTime();
+    try {
+      if (isPrintMethod(job.getMethod()) && !isNetworkMethod(job.getMethod())) {
+        statusMonitor.ensurePrintable();
+      }
+      awaitSpool(job.getSpoolId());
+      if (replay != null) {
+        replay.begin(job.getSpoolId());
+      }
+      if (dispatch(new MethodCall(job.getMethod(), job.getArguments())) == NOT_IMPLEMENTED) {
+        throw new PrinterException(PrinterException.ERROR_UNKNOWN, "Método não implementado: " + job.getMethod());
+      }
+    } finally {
+      metrics.method(job.getMethod()).recordSince(start);
     }
+    markFirstPrint(job.getMethod());
+    saveConfig(job.getMethod(), job.getArguments());
+  }
+
+  @Override
+  public void onJobStateChanged(PrintJob job, int errorCode, String message) {
+    PrintJobState state = job.getState();
+    if (state == PrintJobState.QUEUED) {
+      metrics.increment("jobs.queued");
+    } else if (state == PrintJobState.FINISHED) {
+      metrics.increment("jobs.finished");
+      if (replay != null) {
+        replay.finished(job.getSpoolId());
+      }
+    } else if (state == PrintJobState.ERROR) {
+      metrics.increment("jobs.failed");
+      metrics.increment("errors." + errorCode);
+      if (replay != null && replay.failed(job.getSpoolId(), errorCode)) {
+        Log.w("GERTEC_PLUGIN", "Trabalho " + job.getSpoolId() + " do spool aguardando impressora (erro " + errorCode + ")");
+      }
+    }
+    metrics.updateGauge("jobs.pending", jobQueue.getPendingCount());
+    Map<String, Object> event = new HashMap<>();
+    event.put("jobId", job.getId());
+    event.put("method", job.getMethod());
+    event.put("state", job.getState().name());
+    event.put("errorCode", errorCode);
+    event.put("message", message);
+    mainHandler.post(() -> {
+      EventChannel.EventSink sink = jobEvents;
+      if (sink != null) {
+        sink.success(event);
+      }
+    });
+  }
+
+  private void onStatusChanged(PrinterStatusMonitor.Status previous, PrinterStatusMonitor.Status current) {
+    Log.i("GERTEC_PLUGIN", "Status: " + (previous != null ? previous.state : null) + " -> " + current.state);
+    metrics.increment("status." + (previous != null ? previous.state : null) + "->" + current.state);
+    if (current.state == PrinterState.OK) {
+      // Papel reposto ou cabeça esfriou: os trabalhos do spool que esperavam saem agora
+      printerThread.execute(this::retryHeld);
+    }
+    Map<String, Object> event = new HashMap<>();
+    event.put("state", current.state.name());
+    event.put("previous", previous != null ? previous.state.name() : null);
+    event.put("raw", current.raw);
+    mainHandler.post(() -> {
+      EventChannel.EventSink sink = statusEvents;
+      if (sink != null) {
+        sink.success(event);
+      }
+    });
   }
 
   @Override
@@ -99,15 +942,54 @@ public class GertecPosPrinterPlugin implements FlutterPlugin, MethodCallHandler
     if (channel != null) {
       channel.setMethodCallHandler(null);
     }
+    if (binaryChannel != null) {
+      binaryChannel.setMessageHandler(null);
+    }
+    if (jobChannel != null) {
+      jobChannel.setStreamHandler(null);
+    }
+    if (statusChannel != null) {
+      statusChannel.setStreamHandler(null);
+    }
+    if (statusMonitor != null) {
+      statusMonitor.shutdown();
+    }
+    if (printerThread != null) {
+      // Depois dos comandos já aceitos, que ainda marcam o fim no spool
+      printerThread.execute(() -> {
+        if (networkPrinter != null) {
+          networkPrinter.close();
+        }
+        PrintSpool s = spool;
+        if (s != null) {
+          s.close();
+        }
+      });
+      printerThread.shutdown();
+    }
   }
 
-  private class Response {
-    public Map<String, Object> send(String status, Object msg, boolean success) {
-      Map<String, Object> map = new HashMap<>();
-      map.put("status", status);
-      map.put("message", msg);
-      map.put("success", success);
-      return map;
+  /** Devolve as respostas na thread principal, quando o hardware terminar. */
+  private class MainThreadResult implements Result {
+    private final Result result;
+
+    MainThreadResult(Result result) {
+      this.result = result;
+    }
+
+    @Override
+    public void success(Object r) {
+      mainHandler.post(() -> result.success(r));
+    }
+
+    @Override
+    public void error(@NonNull String code, String msg, Object details) {
+      mainHandler.post(() -> result.error(code, msg, details));
+    }
+
+    @Override
+    public void notImplemented() {
+      mainHandler.post(result::notImplemented);
     }
   }
 }
@@ -0,0 +1,36 @@
+package com.qz.gertec_pos_printer;
+
+/**
+ * Erro reportado pela impressora durante um comando.
+ *
+ * O {@link #getErrorCode()} carrega o código devolvido pelo hardware (por
+ * exemplo o valor recebido em {@code AidlPrinterListener.onError}) ou um dos
+ * códigos internos abaixo.
+ */
+public class PrinterException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    /** Erro sem código conhecido. */
+    public static final int ERROR_UNKNOWN = -1;
+    /** A impressora não respondeu dentro do tempo limite. */
+    public static final int ERROR_TIMEOUT = -2;
+    /** Nenhuma impressora disponível no aparelho. */
+    public static final int ERROR_NOT_AVAILABLE = -3;
+    /** O monitor de status já sabe que a impressora está sem papel. */
+    public static final int ERROR_OUT_OF_PAPER = -4;
+    /** O monitor de status já sabe que a cabeça está superaquecida. */
+    public static final int ERROR_OVERHEAT = -5;
+    /** Falta uma configuração do app (template da senha, PIX, impressora de rede). */
+    public static final int ERROR_NOT_CONFIGURED = -6;
+
+    private final int errorCode;
+
+    public PrinterException(int errorCode, String message) {
+        super(message);
+        this.errorCode = errorCode;
+    }
+
+    public int getErrorCode() {
+        return errorCode;
+    }
+}
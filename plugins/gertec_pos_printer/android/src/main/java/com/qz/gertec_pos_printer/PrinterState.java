@@ -0,0 +1,53 @@
+package com.qz.gertec_pos_printer;
+
+/**
+ * Estado da impressora, igual para os dois modelos.
+ *
+ * Segue os valores de {@code GEDI_PRNTR_e_Status} do GPOS700; o estado do
+ * SK210 é convertido por {@link #fromSk210(int)}.
+ */
+public enum PrinterState {
+    OK,
+    OUT_OF_PAPER,
+    OVERHEAT,
+    UNKNOWN,
+    /** Nenhuma impressora respondeu (serviço ausente ou reconectando). */
+    OFFLINE;
+
+    /**
+     * Converte o retorno de {@code AidlPrinter.getPrinterState()}.
+     *
+     * @param state = valor de {@code PrinterConstant.PrinterState}, ou -1 sem
+     *              impressora
+     */
+    public static PrinterState fromSk210(int state) {
+        switch (state) {
+            case -1:
+                return OFFLINE;
+            case 0: // PRINTER_STATE_NORMAL
+                return OK;
+            case 1: // PRINTER_STATE_NOPAPER
+            case 10: // PRINTER_PAPER_RUN_OUT
+                return OUT_OF_PAPER;
+            case 2: // PRINTER_STATE_HIGHTEMP
+                return OVERHEAT;
+            default:
+                return UNKNOWN;
+        }
+    }
+
+    /**
+     * Converte pelo nome do {@code GEDI_PRNTR_e_Status}; nomes que não existem
+     * aqui viram {@link #UNKNOWN}.
+     */
+    public static PrinterState fromName(String name) {
+        if (name != null) {
+            for (PrinterState state : values()) {
+                if (state.name().equals(name)) {
+                    return state;
+                }
+            }
+        }
+        return UNKNOWN;
+    }
+}
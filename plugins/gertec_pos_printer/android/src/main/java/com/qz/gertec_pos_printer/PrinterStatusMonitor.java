@@ -0,0 +1,150 @@
+package com.qz.gertec_pos_printer;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lê o status da impressora em segundo plano e guarda a última leitura.
+ *
+ * As consultas de status do app são respondidas com {@link #getStatus()}, sem
+ * chamada ao hardware. Só as mudanças de {@link PrinterState} chegam ao
+ * {@link Listener}.
+ */
+final class PrinterStatusMonitor {
+
+    static final String THREAD_NAME = "gertec-status";
+    static final long DEFAULT_PERIOD_MS = 1000;
+    static final long MIN_PERIOD_MS = 100;
+
+    /** Uma leitura: o estado normalizado e o valor original do modelo. */
+    static final class Status {
+        final PrinterState state;
+        /** String de {@code traduzStatusImpressora} no GPOS700, int no SK210. */
+        final Object raw;
+
+        Status(PrinterState state, Object raw) {
+            this.state = state;
+            this.raw = raw;
+        }
+    }
+
+    /** Faz uma leitura no hardware. */
+    interface Sampler {
+        /** @return Status = ou null para ignorar esta rodada */
+        Status sample() throws Exception;
+    }
+
+    /** Recebe só as transições de estado. */
+    interface Listener {
+        void onStatusChanged(Status previous, Status current);
+    }
+
+    private final ScheduledExecutorService scheduler;
+    private final Listener listener;
+    private volatile Status status;
+
+    // Protegidos por this
+    private Sampler sampler;
+    private ScheduledFuture<?> task;
+    private long periodMs = DEFAULT_PERIOD_MS;
+
+    PrinterStatusMonitor(Listener listener) {
+        this.listener = listener;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, THREAD_NAME);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /** Começa a ler com o sampler do modelo atual. */
+    synchronized void start(Sampler sampler) {
+        this.sampler = sampler;
+        schedule();
+    }
+
+    /**
+     * Muda o intervalo entre leituras.
+     *
+     * @param periodMs = intervalo em ms, no mínimo {@link #MIN_PERIOD_MS}
+     */
+    synchronized void setPeriod(long periodMs) {
+        this.periodMs = Math.max(MIN_PERIOD_MS, periodMs);
+        if (sampler != null) {
+            schedule();
+        }
+    }
+
+    synchronized long getPeriod() {
+        return periodMs;
+    }
+
+    /** @return Status = última leitura, ou null antes da primeira */
+    Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Falha na hora se a última leitura já diz que não dá para imprimir, antes
+     * de qualquer renderização.
+     */
+    void ensurePrintable() throws PrinterException {
+        Status current = status;
+        if (current == null) {
+            return;
+        }
+        if (current.state == PrinterState.OUT_OF_PAPER) {
+            throw new PrinterException(PrinterException.ERROR_OUT_OF_PAPER, "Impressora sem papel");
+        }
+        if (current.state == PrinterState.OVERHEAT) {
+            throw new PrinterException(PrinterException.ERROR_OVERHEAT, "Impressora superaquecida");
+        }
+    }
+
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void schedule() {
+        if (task != null) {
+            task.cancel(false);
+        }
+        task = scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                sample();
+            }
+        }, 0, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void sample() {
+        Sampler current;
+        synchronized (this) {
+            current = sampler;
+        }
+        Status next;
+        try {
+            next = current.sample();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            // Uma exceção aqui cancelaria as próximas leituras
+            next = new Status(PrinterState.UNKNOWN, null);
+        }
+        if (next == null) {
+            return;
+        }
+        Status previous = status;
+        status = next;
+        if (previous == null || previous.state != next.state) {
+            listener.onStatusChanged(previous, next);
+        }
+    }
+}
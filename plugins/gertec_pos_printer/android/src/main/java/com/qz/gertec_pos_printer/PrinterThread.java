@@ -0,0 +1,121 @@
+package com.qz.gertec_pos_printer;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread única e dedicada à impressora.
+ *
+ * Todos os comandos de hardware (SK210 e GPOS700) passam por aqui, em ordem de
+ * chegada. Assim a thread da UI nunca espera pelo papel, e os objetos
+ * {@code GertecPrinter210} / {@code GertecPrinter} só são tocados por uma
+ * thread.
+ */
+final class PrinterThread implements Executor {
+
+    static final String THREAD_NAME = "gertec-printer";
+
+    private final ExecutorService executor;
+    private volatile Thread thread;
+    // Comandos aceitos que ainda não começaram
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    PrinterThread() {
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, THREAD_NAME);
+                t.setDaemon(true);
+                thread = t;
+                return t;
+            }
+        });
+    }
+
+    /** Enfileira um comando para ser executado na thread da impressora. */
+    @Override
+    public void execute(final Runnable command) {
+        waiting.incrementAndGet();
+        executor.execute(() -> {
+            waiting.decrementAndGet();
+            command.run();
+        });
+    }
+
+    /** Enfileira um comando e devolve um {@link Future} para acompanhar o fim. */
+    Future<?> submit(final Runnable command) {
+        return enqueue(new Task<Void>(command, null));
+    }
+
+    /** Enfileira uma leitura e devolve um {@link Future} com o resultado. */
+    <T> Future<T> submit(final Callable<T> task) {
+        return enqueue(new Task<>(task));
+    }
+
+    private <T> Future<T> enqueue(Task<T> task) {
+        waiting.incrementAndGet();
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.leaveQueue();
+            throw e;
+        }
+        return task;
+    }
+
+    /** Comandos na fila que ainda não começaram a rodar. */
+    int getWaitingCount() {
+        return waiting.get();
+    }
+
+    /** Indica se o chamador já está rodando na thread da impressora. */
+    boolean isCurrentThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Comando com {@link Future}. Sai da contagem de {@link #waiting} quando
+     * começa ou quando é cancelado ainda na fila, o que vier primeiro: um
+     * cancelado continua na fila do executor e, ao chegar a vez, não roda.
+     */
+    private final class Task<T> extends FutureTask<T> {
+        private final AtomicBoolean queued = new AtomicBoolean(true);
+
+        Task(Callable<T> callable) {
+            super(callable);
+        }
+
+        Task(Runnable runnable, T result) {
+            super(runnable, result);
+        }
+
+        @Override
+        public void run() {
+            leaveQueue();
+            super.run();
+        }
+
+        @Override
+        protected void done() {
+            leaveQueue();
+        }
+
+        void leaveQueue() {
+            if (queued.compareAndSet(true, false)) {
+                waiting.decrementAndGet();
+            }
+        }
+    }
+}
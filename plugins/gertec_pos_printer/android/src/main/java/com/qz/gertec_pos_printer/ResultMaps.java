@@ -0,0 +1,42 @@
+package com.qz.gertec_pos_printer;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/** Mapa de resposta do canal: {status, message, success}; erros levam também errorCode. */
+final class ResultMaps {
+
+    // A resposta da maioria dos comandos de impressão; o codec só lê o mapa
+    private static final Map<String, Object> EMPTY_SUCCESS = Collections.unmodifiableMap(build("success", "", true));
+
+    private ResultMaps() {
+    }
+
+    /** Devolve a mesma instância para {success, "", true}, sem alocar. */
+    static Map<String, Object> of(String status, Object message, boolean success) {
+        if (success && "".equals(message) && "success".equals(status)) {
+            return EMPTY_SUCCESS;
+        }
+        return build(status, message, success);
+    }
+
+    /**
+     * {Error, message, false, errorCode}.
+     *
+     * @param errorCode = código do {@link PrinterException}
+     */
+    static Map<String, Object> error(int errorCode, String message) {
+        Map<String, Object> map = build("Error", message, false);
+        map.put("errorCode", errorCode);
+        return map;
+    }
+
+    private static Map<String, Object> build(String status, Object message, boolean success) {
+        Map<String, Object> map = new HashMap<>(4);
+        map.put("status", status);
+        map.put("message", message);
+        map.put("success", success);
+        return map;
+    }
+}
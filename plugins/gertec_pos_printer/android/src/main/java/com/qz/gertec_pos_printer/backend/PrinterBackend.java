@@ -0,0 +1,63 @@
+package com.qz.gertec_pos_printer.backend;
+
+import com.qz.gertec_pos_printer.PrinterState;
+import com.qz.gertec_pos_printer.barcode.Symbology;
+import com.qz.gertec_pos_printer.raster.MonoRaster;
+
+/**
+ * Comandos de impressão comuns a todos os modelos: o SK210, o GPOS700 e o
+ * {@link SimulatedPrinterBackend}, que roda numa JVM comum sem aparelho.
+ *
+ * Os comandos saem no papel na ordem em que são chamados. Cada modelo decide
+ * quando o papel anda: o SK210 imprime a cada comando e o GPOS700 só no
+ * {@link #flush()}; quem monta uma senha chama {@link #flush()} no fim.
+ *
+ * @apiNote = Não é thread-safe; pertence à thread da impressora.
+ */
+public interface PrinterBackend {
+
+    /**
+     * @param text     = linha de texto
+     * @param fontSize = tamanho da fonte, na unidade do modelo
+     * @param bold     = negrito
+     */
+    void printText(String text, int fontSize, boolean bold) throws Exception;
+
+    /**
+     * @param raster = imagem em 1 bit por ponto, até {@link MonoRaster#MAX_WIDTH}
+     */
+    void printRaster(MonoRaster raster) throws Exception;
+
+    /**
+     * @param payload = conteúdo do QR Code
+     * @param size    = lado máximo em pontos
+     */
+    void printQrCode(CharSequence payload, int size) throws Exception;
+
+    /**
+     * @param type   = tipo do código
+     * @param text   = conteúdo
+     * @param width  = largura; 0 usa o padrão do modelo
+     * @param height = altura; 0 usa o padrão do modelo
+     *
+     * @throws IllegalArgumentException = se o conteúdo não é válido para o tipo
+     */
+    void printBarcode(Symbology type, String text, int width, int height) throws Exception;
+
+    /**
+     * Avança o papel.
+     *
+     * @param dots = pontos (linhas da cabeça); o modelo arredonda para a
+     *             própria unidade
+     */
+    void feed(int dots) throws Exception;
+
+    /** Corta o papel, onde há guilhotina. */
+    void cut() throws Exception;
+
+    /** Garante que tudo o que foi pedido saiu no papel. */
+    void flush() throws Exception;
+
+    /** Lê o estado atual da impressora. */
+    PrinterState getState() throws Exception;
+}
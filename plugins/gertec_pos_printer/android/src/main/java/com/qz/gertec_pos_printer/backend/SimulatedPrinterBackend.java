@@ -0,0 +1,244 @@
+package com.qz.gertec_pos_printer.backend;
+
+import com.google.zxing.WriterException;
+import com.qz.gertec_pos_printer.PrinterException;
+import com.qz.gertec_pos_printer.PrinterState;
+import com.qz.gertec_pos_printer.barcode.BarcodeRenderer;
+import com.qz.gertec_pos_printer.barcode.QrRenderer;
+import com.qz.gertec_pos_printer.barcode.Symbology;
+import com.qz.gertec_pos_printer.raster.MonoRaster;
+import com.qz.gertec_pos_printer.raster.SegmentCache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Impressora em memória, para testes de carga numa JVM comum.
+ *
+ * Cada comando espera a latência configurada para a operação mais o tempo do
+ * papel andar ({@link #setRowLatency(long)} por linha da cabeça). QR Codes e
+ * códigos de barras passam pelos mesmos renderizadores do SK210, então o custo
+ * de CPU e memória é o do aparelho.
+ *
+ * Falta de papel e superaquecimento entram por
+ * {@link #injectFault(PrinterState, int, long)}: a partir daí os comandos
+ * falham com o {@link PrinterException} que o monitor de status daria.
+ *
+ * @apiNote = Os comandos pertencem a uma thread, como nos aparelhos. A
+ *          injeção de falhas, a latência e os contadores podem ser usados de
+ *          qualquer thread.
+ */
+public final class SimulatedPrinterBackend implements PrinterBackend {
+
+    public enum Operation {
+        TEXT,
+        RASTER,
+        QR_CODE,
+        BARCODE,
+        FEED,
+        CUT,
+        FLUSH,
+        STATUS
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final QrRenderer qrRenderer;
+    private final BarcodeRenderer barcodeRenderer;
+    private final AtomicLongArray latencyNanos = new AtomicLongArray(OPERATIONS.length);
+    private final AtomicLongArray counts = new AtomicLongArray(OPERATIONS.length);
+    private final AtomicLong rows = new AtomicLong();
+    private volatile long rowNanos;
+
+    // Falha injetada; só mexe com o lock
+    private final Object lock = new Object();
+    private PrinterState state = PrinterState.OK;
+    private PrinterState pendingFault;
+    private int faultCountdown;
+    private long faultNanos;
+    private long recoverAt;
+    private int faults;
+
+    public SimulatedPrinterBackend() {
+        this(new SegmentCache());
+    }
+
+    public SimulatedPrinterBackend(SegmentCache cache) {
+        this.qrRenderer = new QrRenderer(cache);
+        this.barcodeRenderer = new BarcodeRenderer(cache, qrRenderer);
+    }
+
+    /**
+     * @param op     = operação
+     * @param micros = tempo fixo de cada chamada (ida e volta ao serviço)
+     */
+    public void setLatency(Operation op, long micros) {
+        latencyNanos.set(op.ordinal(), TimeUnit.MICROSECONDS.toNanos(micros));
+    }
+
+    /**
+     * @param micros = tempo de cada linha da cabeça que sai no papel; 1250 µs
+     *               são 100 mm/s a 8 pontos por mm
+     */
+    public void setRowLatency(long micros) {
+        rowNanos = TimeUnit.MICROSECONDS.toNanos(micros);
+    }
+
+    /**
+     * Programa uma falha.
+     *
+     * @param fault           = {@link PrinterState#OUT_OF_PAPER},
+     *                        {@link PrinterState#OVERHEAT} ou
+     *                        {@link PrinterState#OFFLINE}
+     * @param afterOperations = comandos que ainda funcionam antes da falha
+     * @param durationMs      = tempo até a impressora voltar sozinha (a cabeça
+     *                        esfriar); 0 fica até {@link #clearFault()} (a
+     *                        bobina ser trocada)
+     */
+    public void injectFault(PrinterState fault, int afterOperations, long durationMs) {
+        synchronized (lock) {
+            pendingFault = fault;
+            faultCountdown = afterOperations;
+            faultNanos = TimeUnit.MILLISECONDS.toNanos(durationMs);
+        }
+    }
+
+    /** Volta ao estado OK e cancela a falha programada. */
+    public void clearFault() {
+        synchronized (lock) {
+            state = PrinterState.OK;
+            pendingFault = null;
+            recoverAt = 0;
+        }
+    }
+
+    /** Falhas que já aconteceram. */
+    public int getFaultCount() {
+        synchronized (lock) {
+            return faults;
+        }
+    }
+
+    /** Comandos aceitos da operação, sem contar os que falharam. */
+    public long getCount(Operation op) {
+        return counts.get(op.ordinal());
+    }
+
+    /** Linhas da cabeça que saíram no papel, incluindo avanços. */
+    public long getPrintedRows() {
+        return rows.get();
+    }
+
+    /** Texto conta {@code fontSize} linhas da cabeça. */
+    @Override
+    public void printText(String text, int fontSize, boolean bold) throws PrinterException, InterruptedException {
+        run(Operation.TEXT, fontSize);
+    }
+
+    @Override
+    public void printRaster(MonoRaster raster) throws PrinterException, InterruptedException {
+        run(Operation.RASTER, raster.getHeight());
+    }
+
+    @Override
+    public void printQrCode(CharSequence payload, int size) throws PrinterException, InterruptedException {
+        begin(Operation.QR_CODE);
+        MonoRaster raster;
+        try {
+            raster = qrRenderer.render(payload, size);
+        } catch (WriterException e) {
+            throw new IllegalArgumentException("QR Code inválido: " + e.getMessage(), e);
+        }
+        paper(Operation.QR_CODE, raster.getHeight());
+    }
+
+    @Override
+    public void printBarcode(Symbology type, String text, int width, int height)
+            throws PrinterException, InterruptedException {
+        begin(Operation.BARCODE);
+        MonoRaster raster;
+        try {
+            raster = barcodeRenderer.render(type, text, width, height);
+        } catch (WriterException e) {
+            throw new IllegalArgumentException(type + " inválido: " + e.getMessage(), e);
+        }
+        paper(Operation.BARCODE, raster.getHeight());
+    }
+
+    @Override
+    public void feed(int dots) throws PrinterException, InterruptedException {
+        run(Operation.FEED, Math.max(0, dots));
+    }
+
+    @Override
+    public void cut() throws PrinterException, InterruptedException {
+        run(Operation.CUT, 0);
+    }
+
+    @Override
+    public void flush() throws PrinterException, InterruptedException {
+        run(Operation.FLUSH, 0);
+    }
+
+    /** Não falha com a falha injetada: é assim que se descobre que ela existe. */
+    @Override
+    public PrinterState getState() throws InterruptedException {
+        PrinterState current;
+        synchronized (lock) {
+            current = refresh();
+        }
+        sleep(latencyNanos.get(Operation.STATUS.ordinal()));
+        counts.incrementAndGet(Operation.STATUS.ordinal());
+        return current;
+    }
+
+    private void run(Operation op, int paperRows) throws PrinterException, InterruptedException {
+        begin(op);
+        paper(op, paperRows);
+    }
+
+    /** Dispara a falha programada e falha se a impressora não está OK. */
+    private void begin(Operation op) throws PrinterException {
+        PrinterState current;
+        synchronized (lock) {
+            current = refresh();
+            if (current == PrinterState.OK && pendingFault != null && faultCountdown-- <= 0) {
+                current = state = pendingFault;
+                recoverAt = faultNanos > 0 ? System.nanoTime() + faultNanos : 0;
+                pendingFault = null;
+                faults++;
+            }
+        }
+        if (current == PrinterState.OUT_OF_PAPER) {
+            throw new PrinterException(PrinterException.ERROR_OUT_OF_PAPER, "Impressora sem papel");
+        }
+        if (current == PrinterState.OVERHEAT) {
+            throw new PrinterException(PrinterException.ERROR_OVERHEAT, "Impressora superaquecida");
+        }
+        if (current != PrinterState.OK) {
+            throw new PrinterException(PrinterException.ERROR_NOT_AVAILABLE, "Impressora " + current);
+        }
+    }
+
+    private void paper(Operation op, int paperRows) throws InterruptedException {
+        sleep(latencyNanos.get(op.ordinal()) + paperRows * rowNanos);
+        rows.addAndGet(paperRows);
+        counts.incrementAndGet(op.ordinal());
+    }
+
+    // Só com o lock
+    private PrinterState refresh() {
+        if (recoverAt != 0 && System.nanoTime() - recoverAt >= 0) {
+            state = PrinterState.OK;
+            recoverAt = 0;
+        }
+        return state;
+    }
+
+    private static void sleep(long nanos) throws InterruptedException {
+        if (nanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.qz.gertec_pos_printer.barcode;
+
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.qz.gertec_pos_printer.raster.ContentHash;
+import com.qz.gertec_pos_printer.raster.MonoRaster;
+import com.qz.gertec_pos_printer.raster.SegmentCache;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Desenha códigos de barras em 1 bit por ponto, para os tipos que o modelo não
+ * imprime sozinho ou quando a imagem sai mais rápido que o comando do modelo.
+ *
+ * O resultado fica no {@link SegmentCache} por tipo, conteúdo e tamanho: a
+ * reimpressão de uma senha não passa de novo pelo ZXing. QR Code vai para o
+ * {@link QrRenderer}.
+ *
+ * @apiNote = Não é thread-safe; pertence à thread da impressora.
+ */
+public final class BarcodeRenderer {
+    /** Altura das barras em pontos quando o chamador não informa (10 mm). */
+    public static final int DEFAULT_HEIGHT = 80;
+    /** Margem branca dos lados de um código 1D, em módulos. */
+    public static final int QUIET_ZONE_1D = 10;
+
+    private static final long KEY_SALT = 0x4243L;
+
+    private final SegmentCache cache;
+    private final QrRenderer qrRenderer;
+    private final MultiFormatWriter writer = new MultiFormatWriter();
+    private final Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+
+    public BarcodeRenderer(SegmentCache cache, QrRenderer qrRenderer) {
+        this.cache = cache;
+        this.qrRenderer = qrRenderer;
+        hints.put(EncodeHintType.MARGIN, 0);
+    }
+
+    /**
+     * Devolve o código centralizado numa faixa da largura da cabeça.
+     *
+     * @param type    = tipo do código
+     * @param payload = conteúdo; só vira String se não estiver no cache
+     * @param width   = largura máxima em pontos
+     * @param height  = altura das barras em pontos; no QR Code o lado é o menor
+     *                entre largura e altura ({@link QrRenderer#DEFAULT_SCAN_SIZE}
+     *                se 0)
+     *
+     * @return MonoRaster = compartilhado com o cache; não alterar
+     *
+     * @throws WriterException          = se o conteúdo não cabe no tipo
+     * @throws IllegalArgumentException = se o conteúdo não é válido para o tipo
+     *                                  (ex.: EAN_13 com letras) ou não cabe na
+     *                                  largura
+     */
+    public MonoRaster render(Symbology type, CharSequence payload, int width, int height) throws WriterException {
+        width = Math.min(width > 0 ? width : MonoRaster.MAX_WIDTH, MonoRaster.MAX_WIDTH);
+        if (type == Symbology.QR_CODE) {
+            return qrRenderer.render(payload, Math.min(width, height > 0 ? height : QrRenderer.DEFAULT_SCAN_SIZE));
+        }
+        height = height > 0 ? height : DEFAULT_HEIGHT;
+        long key = ContentHash.combine(ContentHash.of(payload), type.ordinal());
+        key = ContentHash.combine(ContentHash.combine(key, (long) width << 32 | height), KEY_SALT);
+        MonoRaster raster = cache.get(key);
+        if (raster == null) {
+            raster = encode(type, payload.toString(), width, height);
+            cache.put(key, raster);
+        }
+        return raster;
+    }
+
+    private MonoRaster encode(Symbology type, String payload, int width, int height) throws WriterException {
+        if (type.isTwoDimensional()) {
+            // Largura 0: uma célula da matriz por módulo, sem escala
+            BitMatrix matrix = writer.encode(payload, type.getFormat(), 0, 0, hints);
+            int module = Math.min(width / matrix.getWidth(), height / matrix.getHeight());
+            return draw(matrix, checkModule(module, type), module);
+        }
+        // Um código 1D é uma linha só, repetida na altura pedida
+        BitMatrix row = writer.encode(payload, type.getFormat(), 0, 1, hints);
+        int module = width / (row.getWidth() + 2 * QUIET_ZONE_1D);
+        if (module < 1 && row.getWidth() <= width) {
+            // Sem margem completa, mas ainda legível com a margem do papel
+            module = 1;
+        }
+        return draw(row, checkModule(module, type), height);
+    }
+
+    private static int checkModule(int module, Symbology type) {
+        if (module < 1) {
+            throw new IllegalArgumentException(type + " não cabe na largura pedida");
+        }
+        return module;
+    }
+
+    /** Cada célula vira {@code module} pontos de largura e {@code rowHeight} de altura. */
+    private static MonoRaster draw(BitMatrix matrix, int module, int rowHeight) {
+        int cols = matrix.getWidth();
+        int rows = matrix.getHeight();
+        MonoRaster raster = MonoRaster.create(MonoRaster.MAX_WIDTH, rows * rowHeight);
+        byte[] data = raster.getData();
+        int stride = raster.getStride();
+        int left = (MonoRaster.MAX_WIDTH - cols * module) / 2;
+        for (int my = 0; my < rows; my++) {
+            int y = my * rowHeight;
+            for (int mx = 0; mx < cols; mx++) {
+                if (matrix.get(mx, my)) {
+                    int x = left + mx * module;
+                    for (int dx = 0; dx < module; dx++) {
+                        raster.setBlack(x + dx, y);
+                    }
+                }
+            }
+            // As outras linhas da célula são cópia da primeira
+            for (int dy = 1; dy < rowHeight; dy++) {
+                System.arraycopy(data, y * stride, data, (y + dy) * stride, stride);
+            }
+        }
+        return raster;
+    }
+}
@@ -0,0 +1,231 @@
+package com.qz.gertec_pos_printer.barcode;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+
+/**
+ * Monta o payload BR Code (EMV MPM) de um PIX estático.
+ *
+ * Chave, nome e cidade não mudam durante a gira: os campos 00 a 53 e 58 a 60
+ * são montados uma vez no construtor, junto com o CRC parcial do início. Por
+ * senha só entram o valor (54), o txid (62) e o CRC final, escritos no mesmo
+ * buffer, sem alocação.
+ *
+ * O próprio builder é o {@link CharSequence} do último payload montado; ele
+ * muda no próximo {@link #build(long, CharSequence)}.
+ *
+ * @apiNote = Não é thread-safe; pertence à thread da impressora.
+ */
+public final class PixPayloadBuilder implements CharSequence {
+    static final String GUI = "br.gov.bcb.pix";
+    static final int MAX_NAME = 25;
+    static final int MAX_CITY = 15;
+    static final int MAX_TXID = 25;
+    // Campo 26 inteiro tem no máximo 99 caracteres
+    static final int MAX_MERCHANT_INFO = 99;
+
+    private static final int[] CRC_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            CRC_TABLE[i] = crc & 0xFFFF;
+        }
+    }
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    // 512 cobre o maior payload possível (~300 bytes)
+    private final byte[] buffer = new byte[512];
+    private final int prefixLength;
+    private final int prefixCrc;
+    private final byte[] suffix;
+    private int length;
+
+    public PixPayloadBuilder(String key, String name, String city) {
+        this(key, name, city, null);
+    }
+
+    /**
+     * @param key         = chave PIX (CPF, CNPJ, e-mail, telefone ou aleatória)
+     * @param name        = nome do recebedor; acentos removidos, até 25
+     *                    caracteres
+     * @param city        = cidade do recebedor; acentos removidos, até 15
+     *                    caracteres
+     * @param description = texto opcional mostrado no app do banco
+     *
+     * @throws IllegalArgumentException = se chave e descrição passam do limite do
+     *                                  campo 26
+     */
+    public PixPayloadBuilder(String key, String name, String city, String description) {
+        if (key == null || key.trim().isEmpty()) {
+            throw new IllegalArgumentException("Chave PIX vazia");
+        }
+        StringBuilder merchant = new StringBuilder();
+        appendField(merchant, "00", GUI);
+        appendField(merchant, "01", key.trim());
+        if (description != null && !description.isEmpty()) {
+            appendField(merchant, "02", ascii(description, MAX_MERCHANT_INFO));
+        }
+        if (merchant.length() > MAX_MERCHANT_INFO) {
+            throw new IllegalArgumentException("Chave e descrição PIX passam de " + MAX_MERCHANT_INFO + " caracteres");
+        }
+
+        StringBuilder prefix = new StringBuilder();
+        appendField(prefix, "00", "01");
+        appendField(prefix, "26", merchant.toString());
+        appendField(prefix, "52", "0000");
+        appendField(prefix, "53", "986");
+        byte[] bytes = prefix.toString().getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, buffer, 0, bytes.length);
+        this.prefixLength = bytes.length;
+        this.prefixCrc = crc16(0xFFFF, buffer, 0, prefixLength);
+
+        StringBuilder tail = new StringBuilder();
+        appendField(tail, "58", "BR");
+        appendField(tail, "59", ascii(name, MAX_NAME));
+        appendField(tail, "60", ascii(city, MAX_CITY));
+        this.suffix = tail.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Monta o payload de uma senha.
+     *
+     * @param amountCents = valor em centavos; 0 deixa o valor em aberto
+     * @param txid        = identificador da senha; só letras e números, até 25.
+     *                    Vazio vira "***"
+     *
+     * @return CharSequence = este builder, com o payload completo
+     */
+    public CharSequence build(long amountCents, CharSequence txid) {
+        int p = prefixLength;
+        if (amountCents > 0) {
+            p = writeAmount(p, amountCents);
+        }
+        System.arraycopy(suffix, 0, buffer, p, suffix.length);
+        p += suffix.length;
+
+        // 62 { 05 txid }: escreve o txid e depois volta para os tamanhos
+        int start = p;
+        int value = start + 8;
+        int n = 0;
+        if (txid != null) {
+            for (int i = 0; i < txid.length() && n < MAX_TXID; i++) {
+                char c = txid.charAt(i);
+                if ((c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')) {
+                    buffer[value + n++] = (byte) c;
+                }
+            }
+        }
+        if (n == 0) {
+            buffer[value] = '*';
+            buffer[value + 1] = '*';
+            buffer[value + 2] = '*';
+            n = 3;
+        }
+        writeTag(start, '6', '2', n + 4);
+        writeTag(start + 4, '0', '5', n);
+        p = value + n;
+
+        buffer[p++] = '6';
+        buffer[p++] = '3';
+        buffer[p++] = '0';
+        buffer[p++] = '4';
+        int crc = crc16(prefixCrc, buffer, prefixLength, p);
+        buffer[p++] = HEX[(crc >>> 12) & 0xF];
+        buffer[p++] = HEX[(crc >>> 8) & 0xF];
+        buffer[p++] = HEX[(crc >>> 4) & 0xF];
+        buffer[p++] = HEX[crc & 0xF];
+        length = p;
+        return this;
+    }
+
+    /** Campo 54: "reais.centavos" com duas casas. */
+    private int writeAmount(int p, long cents) {
+        long reais = cents / 100;
+        int digits = 1;
+        for (long r = reais; r >= 10; r /= 10) {
+            digits++;
+        }
+        int size = digits + 3;
+        writeTag(p, '5', '4', size);
+        int end = p + 4 + digits;
+        for (int i = end - 1; i >= p + 4; i--) {
+            buffer[i] = (byte) ('0' + reais % 10);
+            reais /= 10;
+        }
+        int frac = (int) (cents % 100);
+        buffer[end] = '.';
+        buffer[end + 1] = (byte) ('0' + frac / 10);
+        buffer[end + 2] = (byte) ('0' + frac % 10);
+        return end + 3;
+    }
+
+    private void writeTag(int p, char id0, char id1, int size) {
+        buffer[p] = (byte) id0;
+        buffer[p + 1] = (byte) id1;
+        buffer[p + 2] = (byte) ('0' + size / 10);
+        buffer[p + 3] = (byte) ('0' + size % 10);
+    }
+
+    /** CRC16-CCITT (polinômio 0x1021) continuando de {@code crc}. */
+    static int crc16(int crc, byte[] data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            crc = ((crc << 8) ^ CRC_TABLE[((crc >>> 8) ^ data[i]) & 0xFF]) & 0xFFFF;
+        }
+        return crc;
+    }
+
+    private static void appendField(StringBuilder sb, String id, String value) {
+        if (value.length() > 99) {
+            throw new IllegalArgumentException("Campo " + id + " passa de 99 caracteres");
+        }
+        sb.append(id);
+        if (value.length() < 10) {
+            sb.append('0');
+        }
+        sb.append(value.length()).append(value);
+    }
+
+    // Sem acentos e só ASCII imprimível, como pede o manual do BR Code
+    private static String ascii(String text, int max) {
+        if (text == null) {
+            return "";
+        }
+        String plain = Normalizer.normalize(text.trim(), Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(Math.min(plain.length(), max));
+        for (int i = 0; i < plain.length() && sb.length() < max; i++) {
+            char c = plain.charAt(i);
+            if (c >= 0x20 && c < 0x7F) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index);
+        }
+        return (char) buffer[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,126 @@
+package com.qz.gertec_pos_printer.barcode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.qz.gertec_pos_printer.raster.ContentHash;
+import com.qz.gertec_pos_printer.raster.MonoRaster;
+import com.qz.gertec_pos_printer.raster.SegmentCache;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Gera QR codes direto em 1 bit por ponto, com cache por conteúdo.
+ *
+ * O QR do PIX é o mesmo durante a gira inteira: a partir da segunda senha ele
+ * sai do {@link SegmentCache} sem passar pelo ZXing.
+ *
+ * @apiNote = Não é thread-safe; pertence à thread da impressora.
+ */
+public final class QrRenderer {
+    /** Lado do QR em pontos quando o chamador não informa (o antigo 240x240). */
+    public static final int DEFAULT_SCAN_SIZE = 240;
+    /** Módulo mínimo para o leitor do celular, em pontos de 0,125 mm. */
+    public static final int MIN_MODULE_DOTS = 3;
+    /** Margem branca em módulos; a margem do papel completa o resto. */
+    public static final int QUIET_ZONE_MODULES = 2;
+
+    // Do mais robusto para o menor símbolo
+    private static final ErrorCorrectionLevel[] LEVELS = {
+            ErrorCorrectionLevel.H, ErrorCorrectionLevel.Q, ErrorCorrectionLevel.M, ErrorCorrectionLevel.L
+    };
+    // Separa as chaves de QR das outras faixas no mesmo cache
+    private static final long KEY_SALT = 0x5152L;
+
+    private final SegmentCache cache;
+    private final MultiFormatWriter writer = new MultiFormatWriter();
+    private final Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+
+    public QrRenderer(SegmentCache cache) {
+        this.cache = cache;
+        hints.put(EncodeHintType.MARGIN, 0);
+    }
+
+    /**
+     * Devolve o QR centralizado numa faixa da largura da cabeça.
+     *
+     * @param payload  = conteúdo do QR; só vira String se não estiver no cache
+     * @param scanSize = lado máximo do QR em pontos, incluindo a margem
+     *
+     * @return MonoRaster = compartilhado com o cache; não alterar
+     *
+     * @throws WriterException = se o conteúdo não cabe em nenhum QR
+     */
+    public MonoRaster render(CharSequence payload, int scanSize) throws WriterException {
+        int size = Math.min(Math.max(scanSize, 21 + 2 * QUIET_ZONE_MODULES), MonoRaster.MAX_WIDTH);
+        long key = ContentHash.combine(ContentHash.combine(ContentHash.of(payload), size), KEY_SALT);
+        MonoRaster raster = cache.get(key);
+        if (raster == null) {
+            raster = encode(payload.toString(), size);
+            cache.put(key, raster);
+        }
+        return raster;
+    }
+
+    /**
+     * Escolhe o nível de correção mais alto cujo módulo ainda tem
+     * {@link #MIN_MODULE_DOTS} pontos dentro de {@code size}; se nenhum tiver,
+     * usa o nível L com o maior módulo que couber.
+     */
+    MonoRaster encode(String payload, int size) throws WriterException {
+        BitMatrix matrix = null;
+        int module = 0;
+        WriterException failure = null;
+        for (ErrorCorrectionLevel level : LEVELS) {
+            hints.put(EncodeHintType.ERROR_CORRECTION, level);
+            BitMatrix candidate;
+            try {
+                // Largura 0: uma célula da matriz por módulo, sem escala
+                candidate = writer.encode(payload, BarcodeFormat.QR_CODE, 0, 0, hints);
+            } catch (WriterException e) {
+                // Não cabe neste nível; os seguintes geram símbolos menores
+                failure = e;
+                continue;
+            }
+            matrix = candidate;
+            module = size / (candidate.getWidth() + 2 * QUIET_ZONE_MODULES);
+            if (module >= MIN_MODULE_DOTS) {
+                break;
+            }
+        }
+        if (matrix == null) {
+            throw failure;
+        }
+        return draw(matrix, Math.max(1, module));
+    }
+
+    private static MonoRaster draw(BitMatrix matrix, int module) {
+        int modules = matrix.getWidth();
+        int side = (modules + 2 * QUIET_ZONE_MODULES) * module;
+        MonoRaster raster = MonoRaster.create(MonoRaster.MAX_WIDTH, side);
+        byte[] data = raster.getData();
+        int stride = raster.getStride();
+        int left = (MonoRaster.MAX_WIDTH - side) / 2 + QUIET_ZONE_MODULES * module;
+        int top = QUIET_ZONE_MODULES * module;
+        for (int my = 0; my < modules; my++) {
+            int y = top + my * module;
+            for (int mx = 0; mx < modules; mx++) {
+                if (matrix.get(mx, my)) {
+                    int x = left + mx * module;
+                    for (int dx = 0; dx < module; dx++) {
+                        raster.setBlack(x + dx, y);
+                    }
+                }
+            }
+            // As outras linhas do módulo são cópia da primeira
+            for (int dy = 1; dy < module; dy++) {
+                System.arraycopy(data, y * stride, data, (y + dy) * stride, stride);
+            }
+        }
+        return raster;
+    }
+}
@@ -0,0 +1,72 @@
+package com.qz.gertec_pos_printer.barcode;
+
+import com.google.zxing.BarcodeFormat;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Tipos de código de barras aceitos pelo plugin, com o formato do ZXing usado
+ * quando o código é desenhado aqui.
+ *
+ * Cada modelo resolve o próprio tipo uma vez, numa tabela indexada por este
+ * enum, em vez de procurar pelo nome a cada impressão.
+ */
+public enum Symbology {
+    CODE_128(BarcodeFormat.CODE_128, false),
+    EAN_13(BarcodeFormat.EAN_13, false),
+    EAN_8(BarcodeFormat.EAN_8, false),
+    ITF(BarcodeFormat.ITF, false),
+    QR_CODE(BarcodeFormat.QR_CODE, true),
+    PDF_417(BarcodeFormat.PDF_417, true);
+
+    // Nome sem "_" e em maiúsculas: aceita "CODE_128", "code128", "QRCODE"...
+    private static final Map<String, Symbology> BY_NAME = new HashMap<>();
+
+    static {
+        for (Symbology s : values()) {
+            BY_NAME.put(key(s.name()), s);
+        }
+    }
+
+    private final BarcodeFormat format;
+    private final boolean twoDimensional;
+
+    Symbology(BarcodeFormat format, boolean twoDimensional) {
+        this.format = format;
+        this.twoDimensional = twoDimensional;
+    }
+
+    public BarcodeFormat getFormat() {
+        return format;
+    }
+
+    public boolean isTwoDimensional() {
+        return twoDimensional;
+    }
+
+    /**
+     * @param name = nome do tipo, como vem do canal ("CODE_128" ou "code128")
+     *
+     * @return Symbology = {@code fallback} se o nome é nulo
+     *
+     * @throws IllegalArgumentException = se o tipo não é suportado
+     */
+    public static Symbology fromName(String name, Symbology fallback) {
+        if (name == null) {
+            return fallback;
+        }
+        Symbology s = BY_NAME.get(key(name));
+        if (s == null) {
+            throw new IllegalArgumentException("Tipo de código de barras não suportado: " + name);
+        }
+        return s;
+    }
+
+    private static String key(String name) {
+        // BarcodeType.code128.toString() do Dart vem como "BarcodeType.code128"
+        int dot = name.lastIndexOf('.');
+        return name.substring(dot + 1).replace("_", "").toUpperCase(Locale.ROOT);
+    }
+}
@@ -1,46 +1,44 @@
 package com.qz.gertec_pos_printer.gertec;
 
-public class ConfigPrintGertec {
-    private String fonte = "NORMAL";
-    private String alinhamento;
-    private int tamanho;
-    private int offSet;
-    private int iHeight;
-    private int iWidth;
-    private int lineSpace;
-    private boolean negrito;
-    private boolean italico;
-    private boolean sublinhado;
-    private int avancaLinhas;
+/**
+ * Configuração de impressão do GPOS700.
+ *
+ * Imutável: cada {@code with*} devolve uma cópia com um campo trocado. Uma
+ * linha impressa com uma variação nunca altera a configuração de quem a
+ * criou, mesmo que a impressão falhe no meio.
+ */
+public final class ConfigPrintGertec {
+    private final String fonte;
+    private final String alinhamento;
+    private final int tamanho;
+    private final int offSet;
+    private final int iHeight;
+    private final int iWidth;
+    private final int lineSpace;
+    private final boolean negrito;
+    private final boolean italico;
+    private final boolean sublinhado;
+    private final int avancaLinhas;
+
+    // Calculada na primeira impressão; imutável como o resto
+    private volatile StyleKey styleKey;
 
     public ConfigPrintGertec() {
-        this.fonte = "NORMAL";
-        this.alinhamento = "CENTER";
-        this.tamanho = 20;
-        this.offSet = 0;
-        this.iHeight = 700;
-        this.iWidth = 430;
-        this.lineSpace = 0;
-        this.negrito = true;
-        this.italico = true;
-        this.sublinhado = false;
-        this.avancaLinhas = 0;
+        this("NORMAL", "CENTER", 20, 0, 700, 430, 0, true, true, false, 0);
     }
 
     public ConfigPrintGertec(String fonte, String alinhamento, int tamanho, int offSet, int lineSpace, boolean negrito,
             boolean italico, boolean sublinhado) {
-        this.fonte = fonte;
-        this.alinhamento = alinhamento;
-        this.tamanho = tamanho;
-        this.offSet = offSet;
-        this.lineSpace = lineSpace;
-        this.negrito = negrito;
-        this.italico = italico;
-        this.sublinhado = sublinhado;
+        this(fonte, alinhamento, tamanho, offSet, 0, 0, lineSpace, negrito, italico, sublinhado, 0);
     }
 
     public ConfigPrintGertec(String fonte, String alinhamento, int tamanho, int offSet, int iHeight, int iWidth,
             int lineSpace, boolean negrito, boolean italico, boolean sublinhado) {
+        this(fonte, alinhamento, tamanho, offSet, iHeight, iWidth, lineSpace, negrito, italico, sublinhado, 0);
+    }
+
+    private ConfigPrintGertec(String fonte, String alinhamento, int tamanho, int offSet, int iHeight, int iWidth,
+            int lineSpace, boolean negrito, boolean italico, boolean sublinhado, int avancaLinhas) {
         this.fonte = fonte;
         this.alinhamento = alinhamento;
         this.tamanho = tamanho;
@@ -51,6 +49,7 @@ public class ConfigPrintGertec {
         this.negrito = negrito;
         this.italico = italico;
         this.sublinhado = sublinhado;
+        this.avancaLinhas = avancaLinhas;
     }
 
     // Obter a fonte selecionada
@@ -58,108 +57,120 @@ public class ConfigPrintGertec {
         return fonte;
     }
 
-    // Definir a fonte para ser utilizada
-    public void setFonte(String fonte) {
-        this.fonte = fonte;
+    // Copia com a fonte para ser utilizada; fontes fora da lista vêm de assets/fonts
+    public ConfigPrintGertec withFonte(String fonte) {
         switch (fonte) {
             case "NORMAL":
-                break;
             case "DEFAULT":
-                break;
             case "DEFAULT BOLD":
-                break;
             case "MONOSPACE":
-                break;
             case "SANS SERIF":
-                break;
             case "SERIF":
                 break;
             default:
-                setFont(fonte);
+                fonte = "fonts/" + fonte;
         }
+        return new ConfigPrintGertec(fonte, alinhamento, tamanho, offSet, iHeight, iWidth, lineSpace, negrito,
+                italico, sublinhado, avancaLinhas);
     }
 
     public String getAlinhamento() {
         return alinhamento;
     }
 
-    public void setAlinhamento(String alinhamento) {
-        this.alinhamento = alinhamento;
+    public ConfigPrintGertec withAlinhamento(String alinhamento) {
+        return new ConfigPrintGertec(fonte, alinhamento, tamanho, offSet, iHeight, iWidth, lineSpace, negrito,
+                italico, sublinhado, avancaLinhas);
     }
 
     public int getTamanho() {
         return tamanho;
     }
 
-    public void setTamanho(int tamanho) {
-        this.tamanho = tamanho;
+    public ConfigPrintGertec withTamanho(int tamanho) {
+        return new ConfigPrintGertec(fonte, alinhamento, tamanho, offSet, iHeight, iWidth, lineSpace, negrito,
+                italico, sublinhado, avancaLinhas);
     }
 
     public int getOffSet() {
         return offSet;
     }
 
-    public void setOffSet(int offSet) {
-        this.offSet = offSet;
+    public ConfigPrintGertec withOffSet(int offSet) {
+        return new ConfigPrintGertec(fonte, alinhamento, tamanho, offSet, iHeight, iWidth, lineSpace, negrito,
+                italico, sublinhado, avancaLinhas);
     }
 
     public int getLineSpace() {
         return lineSpace;
     }
 
-    public void setLineSpace(int lineSpace) {
-        this.lineSpace = lineSpace;
-    }
-
-    private void setFont(String fonte) {
-        this.fonte = "fonts/" + fonte;
+    public ConfigPrintGertec withLineSpace(int lineSpace) {
+        return new ConfigPrintGertec(fonte, alinhamento, tamanho, offSet, iHeight, iWidth, lineSpace, negrito,
+                italico, sublinhado, avancaLinhas);
     }
 
     public int getiHeight() {
         return iHeight;
     }
 
-    public void setiHeight(int iHeight) {
-        this.iHeight = iHeight;
+    public ConfigPrintGertec withiHeight(int iHeight) {
+        return new ConfigPrintGertec(fonte, alinhamento, tamanho, offSet, iHeight, iWidth, lineSpace, negrito,
+                italico, sublinhado, avancaLinhas);
     }
 
     public int getiWidth() {
         return iWidth;
     }
 
-    public void setiWidth(int iWidth) {
-        this.iWidth = iWidth;
+    public ConfigPrintGertec withiWidth(int iWidth) {
+        return new ConfigPrintGertec(fonte, alinhamento, tamanho, offSet, iHeight, iWidth, lineSpace, negrito,
+                italico, sublinhado, avancaLinhas);
     }
 
     public boolean isNegrito() {
         return negrito;
     }
 
-    public void setNegrito(boolean negrito) {
-        this.negrito = negrito;
+    public ConfigPrintGertec withNegrito(boolean negrito) {
+        return new ConfigPrintGertec(fonte, alinhamento, tamanho, offSet, iHeight, iWidth, lineSpace, negrito,
+                italico, sublinhado, avancaLinhas);
     }
 
     public boolean isItalico() {
         return italico;
     }
 
-    public void setItalico(boolean italico) {
-        this.italico = italico;
+    public ConfigPrintGertec withItalico(boolean italico) {
+        return new ConfigPrintGertec(fonte, alinhamento, tamanho, offSet, iHeight, iWidth, lineSpace, negrito,
+                italico, sublinhado, avancaLinhas);
     }
 
     public boolean isSublinhado() {
         return sublinhado;
     }
 
-    public void setSublinhado(boolean sublinhado) {
-        this.sublinhado = sublinhado;
+    public ConfigPrintGertec withSublinhado(boolean sublinhado) {
+        return new ConfigPrintGertec(fonte, alinhamento, tamanho, offSet, iHeight, iWidth, lineSpace, negrito,
+                italico, sublinhado, avancaLinhas);
     }
 
     public int getAvancaLinhas() {
         return avancaLinhas;
     }
 
-    public void setAvancaLinhas(int avancaLinhas) {
-        this.avancaLinhas = avancaLinhas;
+    public ConfigPrintGertec withAvancaLinhas(int avancaLinhas) {
+        return new ConfigPrintGertec(fonte, alinhamento, tamanho, offSet, iHeight, iWidth, lineSpace, negrito,
+                italico, sublinhado, avancaLinhas);
+    }
+
+    // Chave do estilo no StyleCache
+    StyleKey getStyleKey() {
+        StyleKey key = styleKey;
+        if (key == null) {
+            key = StyleKey.of(this);
+            styleKey = key;
+        }
+        return key;
     }
 }
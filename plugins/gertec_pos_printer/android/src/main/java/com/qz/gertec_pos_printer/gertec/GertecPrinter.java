@@ -4,11 +4,20 @@ import android.app.Activity;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Typeface;
 import android.os.Build;
 import android.util.Log;
 
+import com.qz.gertec_pos_printer.PrinterState;
+import com.qz.gertec_pos_printer.backend.PrinterBackend;
+import com.qz.gertec_pos_printer.barcode.Symbology;
+import com.qz.gertec_pos_printer.metrics.PrinterMetrics;
+import com.qz.gertec_pos_printer.metrics.PrinterMetrics.Stage;
+import com.qz.gertec_pos_printer.raster.BlankRows;
+import com.qz.gertec_pos_printer.raster.MonoRaster;
+
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.MultiFormatWriter;
 import com.google.zxing.WriterException;
@@ -26,13 +35,36 @@ import br.com.gertec.gedi.structs.GEDI_PRNTR_st_BarCodeConfig;
 import br.com.gertec.gedi.structs.GEDI_PRNTR_st_PictureConfig;
 import br.com.gertec.gedi.structs.GEDI_PRNTR_st_StringConfig;
 
-public class GertecPrinter implements GertecPrinterContract {
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Impressora do GPOS700 (GEDI).
+ *
+ * Cada instância tem um único dono, a thread da impressora do plugin: os
+ * comandos de qualquer origem entram na fila dessa thread, e nenhum estado
+ * (configuração, buffer inicializado) é compartilhado entre instâncias.
+ */
+public class GertecPrinter implements GertecPrinterContract, PrinterBackend {
     public static String Model = Build.MODEL;
     public static final String G700 = "GPOS700";
+    // Brancos menores que isso continuam como imagem no printRaster
+    private static final int BRANCO_MINIMO = 8;
     ICL icl = null;
     private final String IMPRESSORA_ERRO = "Impressora com erro.";
 
-    private static boolean isPrintInit = false;
+    // Tipo do GEDI de cada Symbology, resolvido uma vez; os nomes coincidem
+    private static final Map<Symbology, GEDI_PRNTR_e_BarCodeType> BARCODE_TYPES = new EnumMap<>(Symbology.class);
+
+    static {
+        for (Symbology s : Symbology.values()) {
+            BARCODE_TYPES.put(s, GEDI_PRNTR_e_BarCodeType.valueOf(s.name()));
+        }
+    }
+
+    // Estado do buffer da impressora; só a thread da impressora mexe
+    private boolean isPrintInit = false;
 
     private Context context;
     private IGEDI iGedi = null;
@@ -48,6 +80,10 @@ public class GertecPrinter implements GertecPrinterContract {
     };
 
     private Typeface typeface;
+    private StyleCache styleCache;
+    // Mede a altura das linhas em branco trocadas por DrawBlankLine
+    private final Paint medidor = new Paint();
+    private final PrinterMetrics metrics;
 
     /**
      * Método construtor da classe
@@ -55,7 +91,20 @@ public class GertecPrinter implements GertecPrinterContract {
      * @param c = Context atual que esta sendo inicializada a class
      */
     public GertecPrinter(Context c) {
+        this(c, new PrinterMetrics());
+    }
+
+    /**
+     * Método construtor da classe com as métricas do plugin
+     *
+     * @param c       = Context atual que esta sendo inicializada a class
+     * @param metrics = Onde gravar o tempo dos comandos do GEDI e os códigos de
+     *                erro
+     */
+    public GertecPrinter(Context c, PrinterMetrics metrics) {
+        this.metrics = metrics;
         this.context = c;
+        this.styleCache = new StyleCache(c);
         this.mconfigPrint = new ConfigPrintGertec();
         setConfigImpressao(this.mconfigPrint);
         startIGEDI();
@@ -64,22 +113,17 @@ public class GertecPrinter implements GertecPrinterContract {
     /**
      * Método que instância a classe GEDI da lib
      *
-     * @apiNote = Este mátodo faz a instância da classe GEDI através de uma Thread.
-     *          Será sempre chamado na construção da classe. Não alterar...
+     * @apiNote = Este método faz a instância da classe GEDI de forma síncrona.
+     *          Será sempre chamado na construção da classe, que acontece na
+     *          thread da impressora; ao terminar o iPrint já está pronto e
+     *          nenhum comando é ignorado. Não alterar...
      */
     @Override
     public void startIGEDI() {
-        new Thread(() -> {
-            GEDI.init(this.context);
-            this.iGedi = GEDI.getInstance(this.context);
-            this.iPrint = this.iGedi.getPRNTR();
-            icl = GEDI.getInstance().getCL(); // Get ICL
-            try {
-                new Thread().sleep(250);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-        }).start();
+        GEDI.init(this.context);
+        this.iGedi = GEDI.getInstance(this.context);
+        this.iPrint = this.iGedi.getPRNTR();
+        icl = this.iGedi.getCL(); // Get ICL
     }
 
     /**
@@ -94,48 +138,9 @@ public class GertecPrinter implements GertecPrinterContract {
 
         this.mconfigPrint = config;
 
-        this.stringConfig = new GEDI_PRNTR_st_StringConfig(new Paint());
-        this.stringConfig.paint.setTextSize(mconfigPrint.getTamanho());
-        this.stringConfig.paint.setTextAlign(Paint.Align.valueOf(mconfigPrint.getAlinhamento()));
-        this.stringConfig.offset = mconfigPrint.getOffSet();
-        this.stringConfig.lineSpace = mconfigPrint.getLineSpace();
-
-        switch (mconfigPrint.getFonte()) {
-            case "NORMAL":
-                this.typeface = Typeface.create(mconfigPrint.getFonte(), Typeface.NORMAL);
-                break;
-            case "DEFAULT":
-                this.typeface = Typeface.create(Typeface.DEFAULT, Typeface.NORMAL);
-                break;
-            case "DEFAULT BOLD":
-                this.typeface = Typeface.create(Typeface.DEFAULT_BOLD, Typeface.NORMAL);
-                break;
-            case "MONOSPACE":
-                this.typeface = Typeface.create(Typeface.MONOSPACE, Typeface.NORMAL);
-                break;
-            case "SANS SERIF":
-                this.typeface = Typeface.create(Typeface.SANS_SERIF, Typeface.NORMAL);
-                break;
-            case "SERIF":
-                this.typeface = Typeface.create(Typeface.SERIF, Typeface.NORMAL);
-                break;
-            default:
-                this.typeface = Typeface.createFromAsset(this.context.getAssets(), mconfigPrint.getFonte());
-        }
-
-        if (this.mconfigPrint.isNegrito() && this.mconfigPrint.isItalico()) {
-            typeface = Typeface.create(typeface, Typeface.BOLD_ITALIC);
-        } else if (this.mconfigPrint.isNegrito()) {
-            typeface = Typeface.create(typeface, Typeface.BOLD);
-        } else if (this.mconfigPrint.isItalico()) {
-            typeface = Typeface.create(typeface, Typeface.ITALIC);
-        }
-
-        if (this.mconfigPrint.isSublinhado()) {
-            this.stringConfig.paint.setFlags(Paint.UNDERLINE_TEXT_FLAG);
-        }
-
-        this.stringConfig.paint.setTypeface(this.typeface);
+        // Paint e Typeface vêm prontos do cache; fontes de assets são lidas uma vez
+        this.stringConfig = this.styleCache.get(config.getStyleKey());
+        this.typeface = this.stringConfig.paint.getTypeface();
     }
 
     /**
@@ -145,21 +150,33 @@ public class GertecPrinter implements GertecPrinterContract {
      *
      * @return String = traduzStatusImpressora()
      *
+     * @apiNote = Só lê o status; não chama o ImpressoraInit, que desliga o
+     *          módulo NFC. Pode ser chamado periodicamente pelo monitor de
+     *          status.
      */
     @Override
     public String getStatusImpressora() {
         try {
-            Log.d("print", "***ENTREI NA FUNCAO GERTEC");
-            ImpressoraInit();
             this.status = this.iPrint.Status();
         } catch (GediException e) {
             // throw new GediException(e.getErrorCode());
+            this.status = null;
             return "ERRO DESCONHECIDO";
         }
 
         return traduzStatusImpressora(this.status);
     }
 
+    /**
+     * Método que retorna o estado lido na última chamada de
+     * {@link #getStatusImpressora()}.
+     *
+     * @return PrinterState = {@link PrinterState#UNKNOWN} se a leitura falhou
+     */
+    public PrinterState getEstadoImpressora() {
+        return this.status != null ? PrinterState.fromName(this.status.name()) : PrinterState.UNKNOWN;
+    }
+
     /**
      * Método que recebe o atual texto a ser impresso
      *
@@ -169,16 +186,7 @@ public class GertecPrinter implements GertecPrinterContract {
      *
      */
     public void imprimeTexto(String texto) throws Exception {
-
-        // this.getStatusImpressora();
-        try {
-            if (!isImpressoraOK()) {
-                throw new Exception(IMPRESSORA_ERRO);
-            }
-            sPrintLine(texto);
-        } catch (Exception e) {
-            throw new Exception(e.getMessage());
-        }
+        imprimeTexto(texto, this.mconfigPrint);
     }
 
     /**
@@ -190,28 +198,13 @@ public class GertecPrinter implements GertecPrinterContract {
      *
      * @throws Exception = caso a impressora esteja com erro.
      *
-     * @apiNote = Esse mátodo só altera o tamanho do texto na impressão que for
-     *          chamado a classe {@link ConfigPrintGertec} não será alterada para
-     *          continuar sendo usado na impressão da proxíma linha
+     * @apiNote = Esse método só altera o tamanho do texto na impressão que for
+     *          chamado; a {@link ConfigPrintGertec} atual não é alterada e
+     *          continua valendo para a próxima linha
      *
      */
     public void imprimeTexto(String texto, int tamanho) throws Exception {
-
-        int tamanhoOld;
-
-        // this.getStatusImpressora();
-
-        try {
-            if (!isImpressoraOK()) {
-                throw new Exception(IMPRESSORA_ERRO);
-            }
-            tamanhoOld = this.mconfigPrint.getTamanho();
-            this.mconfigPrint.setTamanho(tamanho);
-            sPrintLine(texto);
-            this.mconfigPrint.setTamanho(tamanhoOld);
-        } catch (Exception e) {
-            throw new Exception(e.getMessage());
-        }
+        imprimeTexto(texto, this.mconfigPrint.withTamanho(tamanho));
     }
 
     /**
@@ -222,32 +215,14 @@ public class GertecPrinter implements GertecPrinterContract {
      *
      * @throws Exception = caso a impressora esteja com erro.
      *
-     * @apiNote = Esse mátodo só altera o tamanho do texto na impressão que for
-     *          chamado * a classe {@link ConfigPrintGertec} não será alterada para
-     *          continuar sendo usado na impressão da * proxíma linha
+     * @apiNote = Esse método só altera o estilo do texto na impressão que for
+     *          chamado; a {@link ConfigPrintGertec} atual não é alterada e
+     *          continua valendo para a próxima linha
      *
      */
     @Override
     public void imprimeTexto(String texto, boolean negrito) throws Exception {
-
-        boolean negritoOld = false;
-
-        // this.getStatusImpressora();
-
-        try {
-            if (!isImpressoraOK()) {
-                throw new Exception(IMPRESSORA_ERRO);
-            }
-            negritoOld = this.mconfigPrint.isNegrito();
-            this.mconfigPrint.setNegrito(negrito);
-
-            sPrintLine(texto);
-
-            this.mconfigPrint.setNegrito(negritoOld);
-
-        } catch (Exception e) {
-            throw new Exception(e.getMessage());
-        }
+        imprimeTexto(texto, this.mconfigPrint.withNegrito(negrito));
     }
 
     /**
@@ -260,36 +235,14 @@ public class GertecPrinter implements GertecPrinterContract {
      *
      * @throws Exception = caso a impressora esteja com erro.
      *
-     * @apiNote = Esse mátodo só altera o tamanho do texto na impressão que for
-     *          chamado * a classe {@link ConfigPrintGertec} não será alterada para
-     *          continuar sendo usado na impressão da * proxíma linha
+     * @apiNote = Esse método só altera o estilo do texto na impressão que for
+     *          chamado; a {@link ConfigPrintGertec} atual não é alterada e
+     *          continua valendo para a próxima linha
      *
      */
     @Override
     public void imprimeTexto(String texto, boolean negrito, boolean italico) throws Exception {
-
-        boolean negritoOld = false;
-        boolean italicoOld = false;
-
-        // this.getStatusImpressora();
-
-        try {
-            if (!isImpressoraOK()) {
-                throw new Exception(IMPRESSORA_ERRO);
-            }
-            negritoOld = this.mconfigPrint.isNegrito();
-            italicoOld = this.mconfigPrint.isItalico();
-            this.mconfigPrint.setNegrito(negrito);
-            this.mconfigPrint.setItalico(italico);
-
-            sPrintLine(texto);
-
-            this.mconfigPrint.setNegrito(negritoOld);
-            this.mconfigPrint.setItalico(italicoOld);
-
-        } catch (Exception e) {
-            throw new Exception(e.getMessage());
-        }
+        imprimeTexto(texto, this.mconfigPrint.withNegrito(negrito).withItalico(italico));
     }
 
     /**
@@ -303,41 +256,31 @@ public class GertecPrinter implements GertecPrinterContract {
      *
      * @throws Exception = caso a impressora esteja com erro.
      *
-     * @apiNote = Esse mátodo só altera o tamanho do texto na impressão que for
-     *          chamado * a classe {@link ConfigPrintGertec} não será alterada para
-     *          continuar sendo usado na impressão da * proxíma linha
+     * @apiNote = Esse método só altera o estilo do texto na impressão que for
+     *          chamado; a {@link ConfigPrintGertec} atual não é alterada e
+     *          continua valendo para a próxima linha
      *
      */
     @Override
     public void imprimeTexto(String texto, boolean negrito, boolean italico, boolean sublinhado) throws Exception {
+        imprimeTexto(texto,
+                this.mconfigPrint.withNegrito(negrito).withItalico(italico).withSublinhado(sublinhado));
+    }
 
-        boolean negritoOld = false;
-        boolean italicoOld = false;
-        boolean sublinhadoOld = false;
-
-        // this.getStatusImpressora();
-
-        try {
-            if (!isImpressoraOK()) {
-                throw new Exception(IMPRESSORA_ERRO);
-            }
-            negritoOld = this.mconfigPrint.isNegrito();
-            italicoOld = this.mconfigPrint.isItalico();
-            sublinhadoOld = this.mconfigPrint.isSublinhado();
-
-            this.mconfigPrint.setNegrito(negrito);
-            this.mconfigPrint.setItalico(italico);
-            this.mconfigPrint.setSublinhado(sublinhado);
-
-            sPrintLine(texto);
-
-            this.mconfigPrint.setNegrito(negritoOld);
-            this.mconfigPrint.setItalico(italicoOld);
-            this.mconfigPrint.setSublinhado(sublinhadoOld);
-
-        } catch (Exception e) {
-            throw new Exception(e.getMessage());
+    /**
+     * Método que imprime o texto com uma configuração só desta linha.
+     *
+     * @param texto  = Texto que será impresso.
+     * @param config = Cópia da configuração com as variações desta linha
+     *
+     * @throws Exception = caso a impressora esteja com erro.
+     *
+     */
+    public void imprimeTexto(String texto, ConfigPrintGertec config) throws Exception {
+        if (!isImpressoraOK()) {
+            throw new Exception(IMPRESSORA_ERRO);
         }
+        sPrintLine(texto, config);
     }
 
     /**
@@ -350,14 +293,21 @@ public class GertecPrinter implements GertecPrinterContract {
      */
     @Override
     public boolean sPrintLine(String texto) throws Exception {
+        return sPrintLine(texto, this.mconfigPrint);
+    }
+
+    private boolean sPrintLine(String texto, ConfigPrintGertec config) throws Exception {
         // Print Data
         try {
             ImpressoraInit();
-            this.iPrint.DrawStringExt(this.stringConfig, texto);
-            this.avancaLinha(mconfigPrint.getAvancaLinhas());
+            long inicio = System.nanoTime();
+            this.iPrint.DrawStringExt(this.styleCache.get(config.getStyleKey()), texto);
+            metrics.recordStage(Stage.SUBMIT, inicio);
+            this.avancaLinha(config.getAvancaLinhas());
             // ImpressoraOutput();
             return true;
         } catch (GediException e) {
+            contaErro(e);
             throw new GediException(e.getErrorCode());
         }
     }
@@ -369,7 +319,9 @@ public class GertecPrinter implements GertecPrinterContract {
      *                    barras
      * @param height      = Tamanho
      * @param width       = Tamanho
-     * @param barCodeType = Tipo do código que será impresso
+     * @param barCodeType = Tipo do código que será impresso, como em
+     *                    {@link Symbology#fromName(String, Symbology)}; nulo
+     *                    vira QR_CODE
      *
      * @throws IllegalArgumentException = Argumento passado ilegal
      * @throws GediException            = retorna o código do erro.
@@ -377,12 +329,27 @@ public class GertecPrinter implements GertecPrinterContract {
      */
     @Override
     public boolean imprimeBarCode(String texto, int height, int width, String barCodeType) throws GediException {
+        return imprimeBarCode(texto, height, width, Symbology.fromName(barCodeType, Symbology.QR_CODE));
+    }
+
+    /**
+     * Método que faz a impressão de código de barras com o tipo já resolvido.
+     *
+     * @param texto  = Texto que será usado para a impressão do código de barras
+     * @param height = Tamanho
+     * @param width  = Tamanho
+     * @param type   = Tipo do código que será impresso
+     *
+     * @throws GediException = retorna o código do erro.
+     *
+     */
+    public boolean imprimeBarCode(String texto, int height, int width, Symbology type) throws GediException {
 
         try {
 
             GEDI_PRNTR_st_BarCodeConfig barCodeConfig = new GEDI_PRNTR_st_BarCodeConfig();
             // Bar Code Type
-            barCodeConfig.barCodeType = GEDI_PRNTR_e_BarCodeType.valueOf(barCodeType);
+            barCodeConfig.barCodeType = BARCODE_TYPES.get(type);
 
             // Height
             barCodeConfig.height = height;
@@ -390,7 +357,9 @@ public class GertecPrinter implements GertecPrinterContract {
             barCodeConfig.width = width;
 
             ImpressoraInit();
+            long inicio = System.nanoTime();
             this.iPrint.DrawBarCode(barCodeConfig, texto);
+            metrics.recordStage(Stage.SUBMIT, inicio);
             this.avancaLinha(mconfigPrint.getAvancaLinhas());
             // ImpressoraOutput();
             // this.iPrint.Output();
@@ -398,11 +367,276 @@ public class GertecPrinter implements GertecPrinterContract {
         } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException(e);
         } catch (GediException e) {
+            contaErro(e);
             throw new GediException(e.getErrorCode());
         }
 
     }
 
+    /**
+     * Método que desenha uma linha vinda do canal, sem imprimir. O papel só sai
+     * no {@link #ImpressoraOutput()}.
+     *
+     * @param linha = Map no formato de GertecPrinterStyle.lineToMethodChannel:
+     *              texto {message, alignment, fontSize, fontType, bold,
+     *              italic, underline} ou código de barras {message, width,
+     *              height, barcodeType}
+     *
+     * @throws Exception = caso a impressora esteja com erro.
+     *
+     */
+    public void desenhaLinha(Map linha) throws Exception {
+        if (!isImpressoraOK()) {
+            throw new Exception(IMPRESSORA_ERRO);
+        }
+        String texto = linha.get("message") != null ? linha.get("message").toString() : " ";
+        if ("barcode".equals(linha.get("type")) || (linha.get("type") == null && linha.get("barcodeType") != null)) {
+            imprimeBarCode(texto, getInt(linha.get("height"), 120), getInt(linha.get("width"), 120),
+                    (String) linha.get("barcodeType"));
+            return;
+        }
+        sPrintLine(texto, new ConfigPrintGertec(
+                getFonte((String) linha.get("fontType")),
+                linha.get("alignment") != null ? (String) linha.get("alignment") : "LEFT",
+                getInt(linha.get("fontSize"), 20),
+                0,
+                0,
+                Boolean.TRUE.equals(linha.get("bold")),
+                Boolean.TRUE.equals(linha.get("italic")),
+                Boolean.TRUE.equals(linha.get("underline"))));
+    }
+
+    /**
+     * Método que imprime uma senha inteira com um único Output no final.
+     *
+     * Linhas de texto em branco e avanços seguidos viram um único DrawBlankLine
+     * com a altura somada, sem desenhar texto vazio.
+     *
+     * @param linhas = linhas no formato de {@link #desenhaLinha(Map)}, mais
+     *               {type: "feed", lines} para avançar o papel
+     *
+     * @apiNote = O que um callPrintGertec deixou desenhado sem Output é
+     *          descartado, não impresso junto.
+     *
+     * @throws Exception = caso a impressora esteja com erro. Nada do que foi
+     *                   desenhado é impresso.
+     *
+     * @return int = número de linhas desenhadas
+     *
+     */
+    public int imprimeTrabalho(List<Map> linhas) throws Exception {
+        try {
+            if (isPrintInit) {
+                // Linhas de um callPrintGertec sem callCutGertec sairiam no topo
+                // desta senha: o Init de novo começa um buffer limpo
+                metrics.increment("gedi.discarded");
+                isPrintInit = false;
+            }
+            ImpressoraInit();
+            int branco = 0;
+            for (Map linha : linhas) {
+                if ("feed".equals(linha.get("type"))) {
+                    branco += getInt(linha.get("lines"), 1);
+                } else if (isLinhaEmBranco(linha)) {
+                    branco += alturaLinha(getInt(linha.get("fontSize"), 20));
+                } else {
+                    avancaLinha(branco);
+                    branco = 0;
+                    desenhaLinha(linha);
+                }
+            }
+            avancaLinha(branco);
+            ImpressoraOutput();
+            return linhas.size();
+        } catch (Exception e) {
+            // O próximo trabalho chama o Init de novo e descarta o que ficou
+            isPrintInit = false;
+            throw e;
+        }
+    }
+
+    /**
+     * Método do {@link PrinterBackend} que desenha uma linha de texto; o papel
+     * só sai no {@link #flush()}.
+     *
+     * @param text     = Texto que será impresso.
+     * @param fontSize = Tamanho da fonte que será usada
+     * @param bold     = Caso o texto deva ser impresso em negrito
+     *
+     * @throws Exception = caso a impressora esteja com erro.
+     *
+     */
+    @Override
+    public void printText(String text, int fontSize, boolean bold) throws Exception {
+        imprimeTexto(text, this.mconfigPrint.withTamanho(fontSize).withNegrito(bold));
+    }
+
+    /**
+     * Método do {@link PrinterBackend} que desenha uma imagem de 1 bit
+     * centralizada. Trechos brancos de {@link #BRANCO_MINIMO} pontos ou mais
+     * viram DrawBlankLine; só os trechos com tinta vão pelo DrawPictureExt.
+     *
+     * @param raster = Imagem, um bit por ponto
+     *
+     * @throws GediException = retorna o código do erro.
+     *
+     */
+    @Override
+    public void printRaster(MonoRaster raster) throws GediException {
+        try {
+            ImpressoraInit();
+            for (BlankRows.Run trecho : BlankRows.split(raster, BRANCO_MINIMO)) {
+                if (trecho.blank) {
+                    avancaLinha(trecho.rows);
+                } else {
+                    desenhaImagem(raster, trecho.top, trecho.rows);
+                }
+            }
+        } catch (GediException e) {
+            contaErro(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Método que desenha as linhas {@code [topo, topo + linhas)} da imagem pelo
+     * DrawPictureExt.
+     *
+     * @throws GediException = retorna o código do erro.
+     *
+     */
+    private void desenhaImagem(MonoRaster raster, int topo, int linhas) throws GediException {
+        int width = raster.getWidth();
+        long inicio = System.nanoTime();
+        Bitmap bitmap = Bitmap.createBitmap(width, linhas, Bitmap.Config.RGB_565);
+        int[] row = new int[width];
+        for (int y = 0; y < linhas; y++) {
+            raster.unpackRow(topo + y, row, Color.BLACK, Color.WHITE);
+            bitmap.setPixels(row, 0, width, 0, y, width, 1);
+        }
+        metrics.recordStage(Stage.RENDER, inicio);
+        try {
+            inicio = System.nanoTime();
+            this.iPrint.DrawPictureExt(
+                    new GEDI_PRNTR_st_PictureConfig(GEDI_PRNTR_e_Alignment.CENTER, 0, width, linhas), bitmap);
+            metrics.recordStage(Stage.SUBMIT, inicio);
+            metrics.increment("bytes.submitted", bitmap.getByteCount());
+        } finally {
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * Método do {@link PrinterBackend} que desenha um QR Code pelo DrawBarCode.
+     *
+     * @param payload = Conteúdo do QR Code
+     * @param size    = Lado em pontos
+     *
+     * @throws GediException = retorna o código do erro.
+     *
+     */
+    @Override
+    public void printQrCode(CharSequence payload, int size) throws GediException {
+        imprimeBarCode(payload.toString(), size, size, Symbology.QR_CODE);
+    }
+
+    /**
+     * Método do {@link PrinterBackend} que desenha um código de barras.
+     *
+     * @param type   = Tipo do código que será impresso
+     * @param text   = Texto que será usado para a impressão do código de barras
+     * @param width  = Tamanho; 0 usa 120, como no {@link #desenhaLinha(Map)}
+     * @param height = Tamanho; 0 usa 120, como no {@link #desenhaLinha(Map)}
+     *
+     * @throws GediException = retorna o código do erro.
+     *
+     */
+    @Override
+    public void printBarcode(Symbology type, String text, int width, int height) throws GediException {
+        imprimeBarCode(text, height > 0 ? height : 120, width > 0 ? width : 120, type);
+    }
+
+    /**
+     * Método do {@link PrinterBackend} que avança o papel.
+     *
+     * @param dots = Pontos em branco, como no DrawBlankLine
+     *
+     * @throws GediException = retorna o código do erro.
+     *
+     */
+    @Override
+    public void feed(int dots) throws GediException {
+        ImpressoraInit();
+        avancaLinha(dots);
+    }
+
+    /**
+     * Método do {@link PrinterBackend} para o corte do papel.
+     *
+     * @throws GediException = retorna o código do erro.
+     *
+     * @apiNote = O GPOS700 não tem guilhotina: o que foi desenhado é impresso
+     *          para o papel ser destacado.
+     *
+     */
+    @Override
+    public void cut() throws GediException {
+        flush();
+    }
+
+    /**
+     * Método do {@link PrinterBackend} que imprime o que foi desenhado desde o
+     * último Output.
+     *
+     * @throws GediException = retorna o código do erro.
+     *
+     */
+    @Override
+    public void flush() throws GediException {
+        if (isPrintInit) {
+            ImpressoraOutput();
+        }
+    }
+
+    /**
+     * Método do {@link PrinterBackend} que lê o estado atual.
+     *
+     * @return PrinterState = {@link PrinterState#UNKNOWN} se a leitura falhou
+     *
+     */
+    @Override
+    public PrinterState getState() {
+        getStatusImpressora();
+        return getEstadoImpressora();
+    }
+
+    private static boolean isLinhaEmBranco(Map linha) {
+        if ("barcode".equals(linha.get("type")) || linha.get("barcodeType") != null) {
+            return false;
+        }
+        Object texto = linha.get("message");
+        return texto == null || texto.toString().trim().isEmpty();
+    }
+
+    // Altura que o DrawStringExt ocuparia com esse tamanho de fonte
+    private int alturaLinha(int tamanho) {
+        medidor.setTextSize(tamanho);
+        Paint.FontMetricsInt fm = medidor.getFontMetricsInt();
+        return fm.descent - fm.ascent;
+    }
+
+    // O Dart manda SANS_SERIF; aqui o nome é SANS SERIF
+    private static String getFonte(String fontType) {
+        return fontType != null ? fontType.replace('_', ' ') : "DEFAULT";
+    }
+
+    private static int getInt(Object value, int defaultValue) {
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        return defaultValue;
+    }
+
     /**
      * Método que faz o avanço de linhas após uma impressão.
      *
@@ -434,10 +668,11 @@ public class GertecPrinter implements GertecPrinterContract {
     @Override
     public boolean isImpressoraOK() {
 
-        if (status.getValue() == 0) {
-            return true;
+        if (this.status == null) {
+            // Primeira impressão antes de qualquer consulta de status
+            getStatusImpressora();
         }
-        return false;
+        return this.status == GEDI_PRNTR_e_Status.OK;
     }
 
     /**
@@ -471,15 +706,23 @@ public class GertecPrinter implements GertecPrinterContract {
     public void ImpressoraOutput() throws GediException {
         try {
             if (this.iPrint != null) {
+                long inicio = System.nanoTime();
                 this.iPrint.Output();
+                metrics.recordStage(Stage.PRINT, inicio);
                 isPrintInit = false;
             }
         } catch (GediException e) {
+            contaErro(e);
             e.printStackTrace();
             throw new GediException(e.getErrorCode());
         }
     }
 
+    // Conta os erros do GEDI por código nas métricas
+    private void contaErro(GediException e) {
+        metrics.increment("gedi." + e.getErrorCode());
+    }
+
     /**
      * Método que faz a tradução do status atual da impressora.
      *
@@ -512,72 +755,65 @@ public class GertecPrinter implements GertecPrinterContract {
     }
 
     public void ImprimeTodasAsFucoes() {
-        mconfigPrint.setItalico(false);
-        mconfigPrint.setNegrito(true);
-        mconfigPrint.setTamanho(20);
-        mconfigPrint.setFonte("MONOSPACE");
-        setConfigImpressao(mconfigPrint);
+        ConfigPrintGertec config = mconfigPrint
+                .withItalico(false)
+                .withNegrito(true)
+                .withTamanho(20)
+                .withFonte("MONOSPACE");
+        setConfigImpressao(config);
         try {
             getStatusImpressora();
 
-            mconfigPrint.setiWidth(339);
-            mconfigPrint.setiHeight(837);
-            mconfigPrint.setAlinhamento("CENTER");
-            setConfigImpressao(mconfigPrint);
+            config = config.withiWidth(339).withiHeight(837).withAlinhamento("CENTER");
+            setConfigImpressao(config);
             imprimeTexto("==[Iniciando Impressao Imagem]==");
             // imprimeImagem("cupomteste");
             avancaLinha(10);
             imprimeTexto("====[Fim Impressão Imagem]====");
             avancaLinha(10);
 
-            mconfigPrint.setAlinhamento("CENTER");
-            mconfigPrint.setTamanho(30);
-            setConfigImpressao(mconfigPrint);
+            config = config.withAlinhamento("CENTER").withTamanho(30);
+            setConfigImpressao(config);
             imprimeTexto("CENTRALIZADO");
             avancaLinha(10);
 
-            mconfigPrint.setAlinhamento("LEFT");
-            mconfigPrint.setTamanho(40);
-            setConfigImpressao(mconfigPrint);
+            config = config.withAlinhamento("LEFT").withTamanho(40);
+            setConfigImpressao(config);
             imprimeTexto("ESQUERDA");
             avancaLinha(10);
 
-            mconfigPrint.setAlinhamento("RIGHT");
-            mconfigPrint.setTamanho(20);
-            setConfigImpressao(mconfigPrint);
+            config = config.withAlinhamento("RIGHT").withTamanho(20);
+            setConfigImpressao(config);
             imprimeTexto("DIREITA");
             avancaLinha(10);
 
-            mconfigPrint.setNegrito(true);
-            mconfigPrint.setAlinhamento("LEFT");
-            mconfigPrint.setTamanho(20);
-            setConfigImpressao(mconfigPrint);
+            config = config.withNegrito(true).withAlinhamento("LEFT").withTamanho(20);
+            setConfigImpressao(config);
             imprimeTexto("=======[Escrita Netrigo]=======");
             avancaLinha(10);
 
-            mconfigPrint.setNegrito(false);
-            mconfigPrint.setItalico(true);
-            mconfigPrint.setAlinhamento("LEFT");
-            mconfigPrint.setTamanho(20);
-            setConfigImpressao(mconfigPrint);
+            config = config.withNegrito(false).withItalico(true).withAlinhamento("LEFT").withTamanho(20);
+            setConfigImpressao(config);
             imprimeTexto("=======[Escrita Italico]=======");
             avancaLinha(10);
 
-            mconfigPrint.setNegrito(false);
-            mconfigPrint.setItalico(false);
-            mconfigPrint.setSublinhado(true);
-            mconfigPrint.setAlinhamento("LEFT");
-            mconfigPrint.setTamanho(20);
-            setConfigImpressao(mconfigPrint);
+            config = config
+                    .withNegrito(false)
+                    .withItalico(false)
+                    .withSublinhado(true)
+                    .withAlinhamento("LEFT")
+                    .withTamanho(20);
+            setConfigImpressao(config);
             imprimeTexto("======[Escrita Sublinhado]=====");
             avancaLinha(10);
 
-            mconfigPrint.setNegrito(false);
-            mconfigPrint.setItalico(false);
-            mconfigPrint.setSublinhado(false);
-            mconfigPrint.setAlinhamento("CENTER");
-            mconfigPrint.setTamanho(20);
-            setConfigImpressao(mconfigPrint);
+            config = config
+                    .withNegrito(false)
+                    .withItalico(false)
+                    .withSublinhado(false)
+                    .withAlinhamento("CENTER")
+                    .withTamanho(20);
+            setConfigImpressao(config);
             imprimeTexto("====[Codigo Barras CODE 128]====");
             imprimeBarCode(
                     "12345678901234567890",
@@ -586,37 +822,40 @@ public class GertecPrinter implements GertecPrinterContract {
                     "CODE_128");
             avancaLinha(10);
 
-            mconfigPrint.setNegrito(false);
-            mconfigPrint.setItalico(false);
-            mconfigPrint.setSublinhado(true);
-            mconfigPrint.setAlinhamento("LEFT");
-            mconfigPrint.setTamanho(20);
-            setConfigImpressao(mconfigPrint);
+            config = config
+                    .withNegrito(false)
+                    .withItalico(false)
+                    .withSublinhado(true)
+                    .withAlinhamento("LEFT")
+                    .withTamanho(20);
+            setConfigImpressao(config);
             imprimeTexto("=======[Escrita Normal]=======");
             avancaLinha(10);
 
-            mconfigPrint.setNegrito(false);
-            mconfigPrint.setItalico(false);
-            mconfigPrint.setSublinhado(true);
-            mconfigPrint.setAlinhamento("LEFT");
-            mconfigPrint.setTamanho(20);
-            setConfigImpressao(mconfigPrint);
+            config = config
+                    .withNegrito(false)
+                    .withItalico(false)
+                    .withSublinhado(true)
+                    .withAlinhamento("LEFT")
+                    .withTamanho(20);
+            setConfigImpressao(config);
             imprimeTexto("=========[BlankLine 50]=========");
             avancaLinha(50);
             imprimeTexto("=======[Fim BlankLine 50]=======");
             avancaLinha(10);
 
-            mconfigPrint.setNegrito(false);
-            mconfigPrint.setItalico(false);
-            mconfigPrint.setSublinhado(false);
-            mconfigPrint.setAlinhamento("CENTER");
-            mconfigPrint.setTamanho(20);
-            setConfigImpressao(mconfigPrint);
+            config = config
+                    .withNegrito(false)
+                    .withItalico(false)
+                    .withSublinhado(false)
+                    .withAlinhamento("CENTER")
+                    .withTamanho(20);
+            setConfigImpressao(config);
             imprimeTexto("=====[Codigo Barras EAN13]=====");
             imprimeBarCode("7891234567895", 120, 120, "EAN_13");
             avancaLinha(10);
 
-            setConfigImpressao(mconfigPrint);
+            setConfigImpressao(config);
             imprimeTexto("===[Codigo QrCode Gertec LIB]==");
             avancaLinha(10);
             imprimeBarCode(
@@ -0,0 +1,113 @@
+package com.qz.gertec_pos_printer.gertec;
+
+import android.content.Context;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import br.com.gertec.gedi.structs.GEDI_PRNTR_st_StringConfig;
+
+/**
+ * Cache dos estilos de texto do GPOS700.
+ *
+ * Cada {@link StyleKey} vira um {@code GEDI_PRNTR_st_StringConfig} pronto, com
+ * Paint e Typeface já montados. Trocar de estilo entre linhas custa uma busca
+ * no mapa; fontes de assets são lidas uma única vez.
+ *
+ * @apiNote = Os objetos devolvidos são compartilhados e não devem ser
+ *          alterados. Usado só pela thread da impressora.
+ */
+final class StyleCache {
+    static final int MAX_STYLES = 64;
+
+    private final Context context;
+    private final Map<String, Typeface> typefaces = new HashMap<>();
+    private final LinkedHashMap<StyleKey, GEDI_PRNTR_st_StringConfig> configs =
+            new LinkedHashMap<StyleKey, GEDI_PRNTR_st_StringConfig>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<StyleKey, GEDI_PRNTR_st_StringConfig> eldest) {
+                    return size() > MAX_STYLES;
+                }
+            };
+
+    StyleCache(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Método que devolve a configuração de texto do estilo, criando na primeira
+     * vez.
+     *
+     * @param key = estilo desejado
+     */
+    GEDI_PRNTR_st_StringConfig get(StyleKey key) {
+        GEDI_PRNTR_st_StringConfig config = configs.get(key);
+        if (config == null) {
+            config = create(key);
+            configs.put(key, config);
+        }
+        return config;
+    }
+
+    int size() {
+        return configs.size();
+    }
+
+    private GEDI_PRNTR_st_StringConfig create(StyleKey key) {
+        GEDI_PRNTR_st_StringConfig config = new GEDI_PRNTR_st_StringConfig(new Paint());
+        config.paint.setTextSize(key.getTamanho());
+        config.paint.setTextAlign(Paint.Align.valueOf(key.getAlinhamento()));
+        config.offset = key.getOffSet();
+        config.lineSpace = key.getLineSpace();
+        if (key.isSublinhado()) {
+            config.paint.setFlags(Paint.UNDERLINE_TEXT_FLAG);
+        }
+        config.paint.setTypeface(getTypeface(key.getFonte(), estilo(key.isNegrito(), key.isItalico())));
+        return config;
+    }
+
+    private static int estilo(boolean negrito, boolean italico) {
+        if (negrito && italico) {
+            return Typeface.BOLD_ITALIC;
+        } else if (negrito) {
+            return Typeface.BOLD;
+        } else if (italico) {
+            return Typeface.ITALIC;
+        }
+        return Typeface.NORMAL;
+    }
+
+    private Typeface getTypeface(String fonte, int estilo) {
+        String key = fonte + '#' + estilo;
+        Typeface typeface = typefaces.get(key);
+        if (typeface == null) {
+            typeface = estilo == Typeface.NORMAL
+                    ? base(fonte)
+                    : Typeface.create(getTypeface(fonte, Typeface.NORMAL), estilo);
+            typefaces.put(key, typeface);
+        }
+        return typeface;
+    }
+
+    private Typeface base(String fonte) {
+        switch (fonte) {
+            case "NORMAL":
+                return Typeface.create(fonte, Typeface.NORMAL);
+            case "DEFAULT":
+                return Typeface.create(Typeface.DEFAULT, Typeface.NORMAL);
+            case "DEFAULT BOLD":
+                return Typeface.create(Typeface.DEFAULT_BOLD, Typeface.NORMAL);
+            case "MONOSPACE":
+                return Typeface.create(Typeface.MONOSPACE, Typeface.NORMAL);
+            case "SANS SERIF":
+                return Typeface.create(Typeface.SANS_SERIF, Typeface.NORMAL);
+            case "SERIF":
+                return Typeface.create(Typeface.SERIF, Typeface.NORMAL);
+            default:
+                return Typeface.createFromAsset(context.getAssets(), fonte);
+        }
+    }
+}
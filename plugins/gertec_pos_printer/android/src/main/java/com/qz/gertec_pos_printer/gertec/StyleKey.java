@@ -0,0 +1,107 @@
+package com.qz.gertec_pos_printer.gertec;
+
+/**
+ * Chave imutável de um estilo de texto do GPOS700.
+ *
+ * Dois {@link ConfigPrintGertec} com os mesmos valores geram chaves iguais e
+ * portanto o mesmo {@code GEDI_PRNTR_st_StringConfig} no {@link StyleCache}.
+ */
+public final class StyleKey {
+    private final String fonte;
+    private final int tamanho;
+    private final String alinhamento;
+    private final boolean negrito;
+    private final boolean italico;
+    private final boolean sublinhado;
+    private final int offSet;
+    private final int lineSpace;
+    private final int hash;
+
+    public StyleKey(String fonte, int tamanho, String alinhamento, boolean negrito, boolean italico,
+            boolean sublinhado, int offSet, int lineSpace) {
+        this.fonte = fonte;
+        this.tamanho = tamanho;
+        this.alinhamento = alinhamento;
+        this.negrito = negrito;
+        this.italico = italico;
+        this.sublinhado = sublinhado;
+        this.offSet = offSet;
+        this.lineSpace = lineSpace;
+        int h = fonte != null ? fonte.hashCode() : 0;
+        h = 31 * h + tamanho;
+        h = 31 * h + (alinhamento != null ? alinhamento.hashCode() : 0);
+        h = 31 * h + (negrito ? 1 : 0);
+        h = 31 * h + (italico ? 1 : 0);
+        h = 31 * h + (sublinhado ? 1 : 0);
+        h = 31 * h + offSet;
+        h = 31 * h + lineSpace;
+        this.hash = h;
+    }
+
+    /**
+     * Método que cria a chave a partir da configuração atual.
+     *
+     * @param config = Classe {@link ConfigPrintGertec} com o estilo
+     */
+    public static StyleKey of(ConfigPrintGertec config) {
+        return new StyleKey(config.getFonte(), config.getTamanho(), config.getAlinhamento(), config.isNegrito(),
+                config.isItalico(), config.isSublinhado(), config.getOffSet(), config.getLineSpace());
+    }
+
+    public String getFonte() {
+        return fonte;
+    }
+
+    public int getTamanho() {
+        return tamanho;
+    }
+
+    public String getAlinhamento() {
+        return alinhamento;
+    }
+
+    public boolean isNegrito() {
+        return negrito;
+    }
+
+    public boolean isItalico() {
+        return italico;
+    }
+
+    public boolean isSublinhado() {
+        return sublinhado;
+    }
+
+    public int getOffSet() {
+        return offSet;
+    }
+
+    public int getLineSpace() {
+        return lineSpace;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof StyleKey)) {
+            return false;
+        }
+        StyleKey k = (StyleKey) o;
+        return hash == k.hash
+                && tamanho == k.tamanho
+                && negrito == k.negrito
+                && italico == k.italico
+                && sublinhado == k.sublinhado
+                && offSet == k.offSet
+                && lineSpace == k.lineSpace
+                && (fonte == null ? k.fonte == null : fonte.equals(k.fonte))
+                && (alinhamento == null ? k.alinhamento == null : alinhamento.equals(k.alinhamento));
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
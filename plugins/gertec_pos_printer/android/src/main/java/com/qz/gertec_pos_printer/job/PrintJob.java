@@ -0,0 +1,54 @@
+package com.qz.gertec_pos_printer.job;
+
+/**
+ * Um comando de impressão aceito pela fila.
+ *
+ * O {@code method} e os {@code arguments} são os mesmos de uma chamada
+ * síncrona do canal (ex: {@code callPrintBitmap210}), só que executados em
+ * segundo plano.
+ */
+public final class PrintJob {
+    private final long id;
+    private final String method;
+    private final Object arguments;
+    private final long spoolId;
+    private final long submittedAt = System.nanoTime();
+    private volatile PrintJobState state = PrintJobState.QUEUED;
+
+    PrintJob(long id, String method, Object arguments, long spoolId) {
+        this.id = id;
+        this.method = method;
+        this.arguments = arguments;
+        this.spoolId = spoolId;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public Object getArguments() {
+        return arguments;
+    }
+
+    /** Id do trabalho no spool em disco; 0 se não foi gravado. */
+    public long getSpoolId() {
+        return spoolId;
+    }
+
+    /** Instante em que a fila aceitou o trabalho, em {@link System#nanoTime()}. */
+    public long getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public PrintJobState getState() {
+        return state;
+    }
+
+    void setState(PrintJobState state) {
+        this.state = state;
+    }
+}
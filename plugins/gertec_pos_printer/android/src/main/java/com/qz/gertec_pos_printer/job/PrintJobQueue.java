@@ -0,0 +1,91 @@
+package com.qz.gertec_pos_printer.job;
+
+import com.qz.gertec_pos_printer.PrinterException;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fila de trabalhos de impressão assíncronos.
+ *
+ * {@link #submit(String, Object)} devolve o id do trabalho na hora; a execução
+ * acontece no {@link Executor} da impressora e cada mudança de estado é
+ * reportada ao {@link Listener}.
+ */
+public final class PrintJobQueue {
+
+    /** Executa de fato o trabalho no hardware. */
+    public interface Runner {
+        void run(PrintJob job) throws Exception;
+    }
+
+    /** Recebe as mudanças de estado dos trabalhos. */
+    public interface Listener {
+        void onJobStateChanged(PrintJob job, int errorCode, String message);
+    }
+
+    private final Executor executor;
+    private final Runner runner;
+    private final Listener listener;
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public PrintJobQueue(Executor executor, Runner runner, Listener listener) {
+        this.executor = executor;
+        this.runner = runner;
+        this.listener = listener;
+    }
+
+    /**
+     * Aceita um trabalho e devolve o seu id imediatamente.
+     *
+     * @param method    = Método do canal que será executado
+     * @param arguments = Argumentos do método
+     *
+     * @return long = id do trabalho, usado nos eventos de estado
+     */
+    public long submit(String method, Object arguments) {
+        return submit(method, arguments, 0);
+    }
+
+    /**
+     * Mesmo que {@link #submit(String, Object)}, para um trabalho já gravado
+     * no spool em disco.
+     *
+     * @param spoolId = id no spool, devolvido em {@link PrintJob#getSpoolId()}
+     */
+    public long submit(String method, Object arguments, long spoolId) {
+        final PrintJob job = new PrintJob(nextId.getAndIncrement(), method, arguments, spoolId);
+        pending.incrementAndGet();
+        notify(job, PrintJobState.QUEUED, 0, null);
+        executor.execute(() -> execute(job));
+        return job.getId();
+    }
+
+    /** Quantidade de trabalhos aceitos que ainda não terminaram. */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    private void execute(PrintJob job) {
+        notify(job, PrintJobState.PRINTING, 0, null);
+        try {
+            runner.run(job);
+            notify(job, PrintJobState.FINISHED, 0, null);
+        } catch (PrinterException e) {
+            notify(job, PrintJobState.ERROR, e.getErrorCode(), e.getMessage());
+        } catch (Exception e) {
+            notify(job, PrintJobState.ERROR, PrinterException.ERROR_UNKNOWN, e.toString());
+        } finally {
+            pending.decrementAndGet();
+        }
+    }
+
+    private void notify(PrintJob job, PrintJobState state, int errorCode, String message) {
+        job.setState(state);
+        if (listener != null) {
+            listener.onJobStateChanged(job, errorCode, message);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.qz.gertec_pos_printer.job;
+
+/** Estados pelos quais um {@link PrintJob} passa. */
+public enum PrintJobState {
+    QUEUED,
+    PRINTING,
+    FINISHED,
+    ERROR
+}
@@ -0,0 +1,95 @@
+package com.qz.gertec_pos_printer.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latência com faixas fixas em potências de 2 de microssegundos
+ * (1 µs, 2 µs, 4 µs ... ~67 s).
+ *
+ * Gravar custa três somas atômicas, sem lock e sem alocação; os percentis
+ * saem do limite superior da faixa, com erro de no máximo 2x.
+ *
+ * @apiNote = Thread-safe. O {@link #snapshot()} não é atômico entre as faixas:
+ *          uma gravação concorrente pode aparecer na contagem e não na faixa.
+ */
+public final class LatencyHistogram {
+    /** Faixa {@code i} guarda latências abaixo de {@code 2^i} µs; a última guarda o resto. */
+    public static final int BUCKETS = 27;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * @param nanos = duração medida com {@link System#nanoTime()}
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        long micros = nanos / 1000;
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        sumNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+            // outra thread gravou um máximo; tenta de novo
+        }
+    }
+
+    /** Grava o tempo desde {@code startNanos}. */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @param percent = de 0 a 100
+     *
+     * @return long = limite superior, em nanossegundos, da faixa do percentil;
+     *         nunca maior que o máximo gravado. 0 sem gravações
+     */
+    public long percentile(double percent) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percent / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min((1L << i) * 1000, maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * @return Map = {count, meanMs, p50Ms, p90Ms, p99Ms, maxMs}, só com tipos
+     *         que o StandardMessageCodec envia
+     */
+    public Map<String, Object> snapshot() {
+        long total = count.get();
+        Map<String, Object> map = new HashMap<>();
+        map.put("count", total);
+        map.put("meanMs", total > 0 ? millis(sumNanos.get()) / total : 0.0);
+        map.put("p50Ms", millis(percentile(50)));
+        map.put("p90Ms", millis(percentile(90)));
+        map.put("p99Ms", millis(percentile(99)));
+        map.put("maxMs", millis(maxNanos.get()));
+        return map;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,158 @@
+package com.qz.gertec_pos_printer.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Métricas do caminho de impressão: latência por etapa e por método do canal,
+ * contadores e filas.
+ *
+ * Um único objeto é compartilhado pelo plugin e pelas duas impressoras. As
+ * etapas ficam num array fixo; métodos, contadores e filas são criados no
+ * primeiro uso e depois só somam atômicos.
+ *
+ * @apiNote = Thread-safe; o {@link #snapshot()} pode ser lido de qualquer
+ *          thread enquanto a impressora trabalha.
+ */
+public final class PrinterMetrics {
+
+    public enum Stage {
+        /** Espera na fila da thread da impressora. */
+        QUEUE,
+        /** Decodificação de PNG/JPEG e conversão para 1 bit. */
+        DECODE,
+        /** Desenho de senhas, QR Codes e códigos de barras. */
+        RENDER,
+        /** Chamada que entrega o comando ao serviço (binder no SK210, GEDI no GPOS700). */
+        SUBMIT,
+        /** Espera até o papel sair ({@code onPrintFinish} ou {@code Output}). */
+        PRINT
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final long createdAt = System.nanoTime();
+    private final LatencyHistogram[] stages = new LatencyHistogram[STAGES.length];
+    private final ConcurrentHashMap<String, LatencyHistogram> methods = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+    /** Valor atual e pico de uma fila. */
+    private static final class Gauge {
+        final AtomicLong value = new AtomicLong();
+        final AtomicLong max = new AtomicLong();
+    }
+
+    public PrinterMetrics() {
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new LatencyHistogram();
+        }
+    }
+
+    public LatencyHistogram stage(Stage stage) {
+        return stages[stage.ordinal()];
+    }
+
+    /** Grava o tempo da etapa desde {@code startNanos}. */
+    public void recordStage(Stage stage, long startNanos) {
+        stages[stage.ordinal()].recordSince(startNanos);
+    }
+
+    /** Histograma do método do canal, criado na primeira chamada. */
+    public LatencyHistogram method(String method) {
+        LatencyHistogram histogram = methods.get(method);
+        if (histogram == null) {
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = methods.putIfAbsent(method, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * @param name  = ex.: "jobs.finished", "bytes.printed", "errors.-4",
+     *              "status.OK->OUT_OF_PAPER"
+     * @param delta = quanto somar
+     */
+    public void increment(String name, long delta) {
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        counter.addAndGet(delta);
+    }
+
+    public void increment(String name) {
+        increment(name, 1);
+    }
+
+    /** Valor de um contador; 0 se nunca foi somado. */
+    public long getCounter(String name) {
+        AtomicLong counter = counters.get(name);
+        return counter != null ? counter.get() : 0;
+    }
+
+    /**
+     * Atualiza o tamanho atual de uma fila e guarda o pico.
+     *
+     * @param name  = ex.: "jobs.pending"
+     * @param value = tamanho atual
+     */
+    public void updateGauge(String name, long value) {
+        Gauge gauge = gauges.get(name);
+        if (gauge == null) {
+            Gauge created = new Gauge();
+            gauge = gauges.putIfAbsent(name, created);
+            if (gauge == null) {
+                gauge = created;
+            }
+        }
+        gauge.value.set(value);
+        long max;
+        while (value > (max = gauge.max.get()) && !gauge.max.compareAndSet(max, value)) {
+            // outra thread gravou um pico; tenta de novo
+        }
+    }
+
+    /**
+     * @return Map = {uptimeMs, stages, methods, counters, gauges}; cada
+     *         histograma no formato de {@link LatencyHistogram#snapshot()},
+     *         cada fila como {value, max}
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stageMap = new HashMap<>();
+        for (Stage stage : STAGES) {
+            stageMap.put(stage.name(), stages[stage.ordinal()].snapshot());
+        }
+        Map<String, Object> methodMap = new HashMap<>();
+        for (Map.Entry<String, LatencyHistogram> e : methods.entrySet()) {
+            methodMap.put(e.getKey(), e.getValue().snapshot());
+        }
+        Map<String, Object> counterMap = new HashMap<>();
+        for (Map.Entry<String, AtomicLong> e : counters.entrySet()) {
+            counterMap.put(e.getKey(), e.getValue().get());
+        }
+        Map<String, Object> gaugeMap = new HashMap<>();
+        for (Map.Entry<String, Gauge> e : gauges.entrySet()) {
+            Map<String, Object> gauge = new HashMap<>();
+            gauge.put("value", e.getValue().value.get());
+            gauge.put("max", e.getValue().max.get());
+            gaugeMap.put(e.getKey(), gauge);
+        }
+        Map<String, Object> map = new HashMap<>();
+        map.put("uptimeMs", (System.nanoTime() - createdAt) / 1000000);
+        map.put("stages", stageMap);
+        map.put("methods", methodMap);
+        map.put("counters", counterMap);
+        map.put("gauges", gaugeMap);
+        return map;
+    }
+}
@@ -0,0 +1,150 @@
+package com.qz.gertec_pos_printer.network;
+
+import com.qz.gertec_pos_printer.PrinterState;
+import com.qz.gertec_pos_printer.raster.MonoRaster;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Comandos ESC/POS usados pelo {@link NetworkPrinterBackend}. Cada método
+ * devolve um buffer pronto para o socket, com um comando inteiro: os pedidos
+ * de status em tempo real só entram entre dois buffers.
+ */
+final class EscPos {
+    static final byte ESC = 0x1B;
+    static final byte GS = 0x1D;
+    static final byte DLE = 0x10;
+    static final byte EOT = 0x04;
+    static final byte LF = 0x0A;
+
+    /** {@code DLE EOT n}: status da impressora (bit 3: offline). */
+    static final int STATUS_PRINTER = 1;
+    /** {@code DLE EOT n}: erros (bit 5: irrecuperável; bit 6: recuperável, como a cabeça quente). */
+    static final int STATUS_ERROR = 3;
+    /** {@code DLE EOT n}: sensor da bobina (bits 5 e 6: fim do papel). */
+    static final int STATUS_PAPER = 4;
+
+    /** Tabela PC860 (português), {@code ESC t 3}. */
+    static final int CODE_PAGE_PC860 = 3;
+    // PC860 de 0x80 em diante; o resto sai como '?'
+    private static final String PC860 = "ÇüéâãàÁçêÊèÍÔìÃÂÉÀÈôõòÚùÌÕÜ¢£Ù₧ÓáíóúñѪº¿Ò";
+    private static final char[] TO_PC860 = new char[256];
+
+    static {
+        for (int i = 0; i < PC860.length(); i++) {
+            char c = PC860.charAt(i);
+            if (c < TO_PC860.length) {
+                TO_PC860[c] = (char) (0x80 + i);
+            }
+        }
+    }
+
+    /** Maior faixa de um {@code GS v 0}; impressoras de entrada não aceitam mais. */
+    static final int BAND_ROWS = 256;
+    /** Maior avanço de um {@code ESC J}. */
+    private static final int MAX_FEED = 255;
+
+    private EscPos() {
+    }
+
+    /** {@code ESC @} e a tabela PC860: mandado a cada conexão nova. */
+    static ByteBuffer init() {
+        return ByteBuffer.wrap(new byte[]{ESC, '@', ESC, 't', CODE_PAGE_PC860});
+    }
+
+    /**
+     * Uma linha de texto na fonte A (12x24), ampliada com {@code GS !}.
+     *
+     * @param fontSize = altura em pontos; até 30 sai em 1x, até 54 em 2x e
+     *                 acima disso em 3x
+     */
+    static ByteBuffer text(String text, int fontSize, boolean bold) {
+        int scale = fontSize <= 30 ? 0 : fontSize <= 54 ? 1 : 2;
+        int length = text.length();
+        ByteBuffer out = ByteBuffer.allocate(length + 13);
+        out.put(ESC).put((byte) 'E').put((byte) (bold ? 1 : 0));
+        out.put(GS).put((byte) '!').put((byte) (scale << 4 | scale));
+        for (int i = 0; i < length; i++) {
+            out.put(pc860(text.charAt(i)));
+        }
+        out.put(LF);
+        out.put(GS).put((byte) '!').put((byte) 0);
+        out.put(ESC).put((byte) 'E').put((byte) 0);
+        out.flip();
+        return out;
+    }
+
+    /**
+     * Linhas {@code [top, top + rows)} em {@code GS v 0}, centralizadas. No
+     * máximo {@link #BAND_ROWS} linhas.
+     */
+    static ByteBuffer raster(MonoRaster raster, int top, int rows) {
+        int stride = raster.getStride();
+        ByteBuffer out = ByteBuffer.allocate(14 + rows * stride);
+        out.put(ESC).put((byte) 'a').put((byte) 1);
+        out.put(GS).put((byte) 'v').put((byte) '0').put((byte) 0);
+        out.put((byte) stride).put((byte) (stride >> 8));
+        out.put((byte) rows).put((byte) (rows >> 8));
+        out.put(raster.getData(), top * stride, rows * stride);
+        out.put(ESC).put((byte) 'a').put((byte) 0);
+        out.flip();
+        return out;
+    }
+
+    /** Avança {@code dots} pontos com {@code ESC J}, em passos de até 255. */
+    static ByteBuffer feed(int dots) {
+        int commands = (dots + MAX_FEED - 1) / MAX_FEED;
+        ByteBuffer out = ByteBuffer.allocate(commands * 3);
+        while (dots > 0) {
+            int step = Math.min(dots, MAX_FEED);
+            out.put(ESC).put((byte) 'J').put((byte) step);
+            dots -= step;
+        }
+        out.flip();
+        return out;
+    }
+
+    /** {@code GS V 66 0}: leva o fim da senha até a guilhotina e corta parcial. */
+    static ByteBuffer cut() {
+        return ByteBuffer.wrap(new byte[]{GS, 'V', 66, 0});
+    }
+
+    /** {@code DLE EOT n}, respondido na hora, mesmo com dados na fila. */
+    static byte[] statusRequest(int n) {
+        return new byte[]{DLE, EOT, (byte) n};
+    }
+
+    /** Respostas do {@code DLE EOT} têm o formato {@code 0xx1xx10}. */
+    static boolean isStatusReply(int b) {
+        return (b & 0x93) == 0x12;
+    }
+
+    /**
+     * Junta uma rodada de respostas do {@code DLE EOT}.
+     *
+     * @param printer = resposta do {@link #STATUS_PRINTER}
+     * @param error   = resposta do {@link #STATUS_ERROR}
+     * @param paper   = resposta do {@link #STATUS_PAPER}
+     */
+    static PrinterState state(int printer, int error, int paper) {
+        if ((paper & 0x60) == 0x60) {
+            return PrinterState.OUT_OF_PAPER;
+        }
+        if ((error & 0x40) != 0) {
+            return PrinterState.OVERHEAT;
+        }
+        if ((error & 0x20) != 0 || (printer & 0x08) != 0) {
+            // Tampa aberta, guilhotina travada ou erro irrecuperável
+            return PrinterState.UNKNOWN;
+        }
+        return PrinterState.OK;
+    }
+
+    private static byte pc860(char c) {
+        if (c < 0x80) {
+            return (byte) c;
+        }
+        char mapped = c < TO_PC860.length ? TO_PC860[c] : 0;
+        return (byte) (mapped != 0 ? mapped : '?');
+    }
+}
@@ -0,0 +1,573 @@
+package com.qz.gertec_pos_printer.network;
+
+import com.google.zxing.WriterException;
+import com.qz.gertec_pos_printer.PrinterException;
+import com.qz.gertec_pos_printer.PrinterState;
+import com.qz.gertec_pos_printer.backend.PrinterBackend;
+import com.qz.gertec_pos_printer.barcode.BarcodeRenderer;
+import com.qz.gertec_pos_printer.barcode.QrRenderer;
+import com.qz.gertec_pos_printer.barcode.Symbology;
+import com.qz.gertec_pos_printer.metrics.PrinterMetrics;
+import com.qz.gertec_pos_printer.raster.BandSource;
+import com.qz.gertec_pos_printer.raster.BlankRows;
+import com.qz.gertec_pos_printer.raster.MonoRaster;
+import com.qz.gertec_pos_printer.raster.SegmentCache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+
+/**
+ * Impressora térmica de rede que fala ESC/POS cru numa porta TCP (9100).
+ *
+ * A conexão fica aberta entre as senhas e é refeita sozinha, com espera
+ * crescente, por uma thread de rede ({@code gertec-net}) com {@link Selector}.
+ * Os comandos só montam o ESC/POS e entram numa fila: a thread de rede junta
+ * os buffers pendentes numa escrita só, enquanto a thread da impressora já
+ * monta o próximo. O {@link #flush()} espera a fila esvaziar no socket.
+ *
+ * O status vem de {@code DLE EOT}, lido sem bloquear pela mesma thread, com a
+ * conexão parada há {@link #STATUS_PERIOD_MS} ms: durante uma senha a
+ * resposta ficaria atrás dos dados que a impressora ainda não leu. O
+ * {@link #getState()} devolve a última rodada. Sem resposta por
+ * {@link #STATUS_TIMEOUT_MS} ms o estado fica UNKNOWN e a conexão continua:
+ * muitas impressoras genéricas não respondem {@code DLE EOT}. A conexão só é
+ * refeita por erro de I/O ou com a escrita parada por {@link #WRITE_STALL_MS}
+ * ms (impressora que parou de ler o socket).
+ *
+ * Se a conexão cai com dados na fila, tudo o que foi pedido até ali é
+ * descartado (a senha pode ter saído pela metade) e o {@link #flush()} falha;
+ * quem chamou decide se reimprime.
+ *
+ * @apiNote = Os comandos pertencem à thread da impressora, como nos
+ *          aparelhos. {@link #getState()}, {@link #isConnected()} e
+ *          {@link #close()} podem ser chamados de qualquer thread.
+ */
+public final class NetworkPrinterBackend implements PrinterBackend, Closeable {
+    public static final int DEFAULT_PORT = 9100;
+    public static final long STATUS_PERIOD_MS = 1000;
+    public static final long STATUS_TIMEOUT_MS = 5000;
+    public static final long WRITE_STALL_MS = 10000;
+    public static final long CONNECT_TIMEOUT_MS = 3000;
+    public static final long DEFAULT_FLUSH_TIMEOUT_MS = 10000;
+    private static final long MIN_BACKOFF_MS = 250;
+    private static final long MAX_BACKOFF_MS = 5000;
+    // Buffers juntados numa escrita
+    private static final int GATHER = 16;
+    // Brancos menores que isso continuam como imagem
+    private static final int FEED_UNIT = 8;
+    private static final int[] STATUS_ROUND = {EscPos.STATUS_PRINTER, EscPos.STATUS_ERROR, EscPos.STATUS_PAPER};
+
+    private final InetSocketAddress address;
+    private final PrinterMetrics metrics;
+    private final QrRenderer qrRenderer;
+    private final BarcodeRenderer barcodeRenderer;
+    private final Selector selector;
+    private final Thread thread;
+    private volatile long flushTimeoutMs = DEFAULT_FLUSH_TIMEOUT_MS;
+
+    // Fila e contadores; só mexe com o lock. A thread de rede escreve com o lock
+    // (escrita não bloqueante: só copia para o buffer do kernel)
+    private final Object lock = new Object();
+    private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+    private final ByteBuffer[] gather = new ByteBuffer[GATHER];
+    private long queuedBytes;
+    // Escritos no socket ou descartados
+    private long settledBytes;
+    // Tudo até aqui foi descartado (queda de conexão ou timeout)
+    private long droppedBytes;
+    // Fim do último flush; só a thread da impressora muda
+    private long flushedBytes;
+    private boolean connected;
+    private boolean closed;
+    private volatile PrinterState state = PrinterState.OFFLINE;
+
+    // Só a thread de rede
+    private SocketChannel channel;
+    private long connectStartedAt;
+    private long reconnectAt;
+    private long backoffMs = MIN_BACKOFF_MS;
+    private ByteBuffer statusRequest;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(64);
+    private final int[] statusReplies = new int[STATUS_ROUND.length];
+    private int statusReceived = STATUS_ROUND.length;
+    private long statusSentAt;
+    private long nextStatusAt;
+    private long lastWriteAt;
+    // Desde quando há dados na fila sem nada sair; 0 se a escrita anda
+    private long stalledSince;
+
+    /**
+     * Abre a thread de rede, que conecta em segundo plano.
+     *
+     * @param host = IP ou nome da impressora
+     * @param port = porta do ESC/POS cru, normalmente {@link #DEFAULT_PORT}
+     *
+     * @throws IOException = não foi possível abrir o {@link Selector}
+     */
+    public NetworkPrinterBackend(String host, int port, SegmentCache cache, PrinterMetrics metrics)
+            throws IOException {
+        this.address = InetSocketAddress.createUnresolved(host, port);
+        this.metrics = metrics != null ? metrics : new PrinterMetrics();
+        this.qrRenderer = new QrRenderer(cache);
+        this.barcodeRenderer = new BarcodeRenderer(cache, qrRenderer);
+        this.selector = Selector.open();
+        this.thread = new Thread(this::loop, "gertec-net");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public NetworkPrinterBackend(String host, int port) throws IOException {
+        this(host, port, new SegmentCache(), null);
+    }
+
+    /** @param timeoutMs = espera máxima do {@link #flush()}, conexão incluída */
+    public void setFlushTimeout(long timeoutMs) {
+        flushTimeoutMs = timeoutMs;
+    }
+
+    public String getAddress() {
+        return address.getHostString() + ":" + address.getPort();
+    }
+
+    public boolean isConnected() {
+        synchronized (lock) {
+            return connected;
+        }
+    }
+
+    @Override
+    public void printText(String text, int fontSize, boolean bold) throws PrinterException {
+        enqueue(EscPos.text(text, fontSize, bold));
+    }
+
+    /** Brancos viram avanço; o resto sai em faixas de {@link EscPos#BAND_ROWS} linhas. */
+    @Override
+    public void printRaster(MonoRaster raster) throws PrinterException {
+        checkState();
+        for (BlankRows.Run run : BlankRows.split(raster, FEED_UNIT)) {
+            if (run.blank) {
+                enqueue(EscPos.feed(run.rows));
+                continue;
+            }
+            for (int top = run.top; top < run.top + run.rows; top += EscPos.BAND_ROWS) {
+                enqueue(EscPos.raster(raster, top, Math.min(EscPos.BAND_ROWS, run.top + run.rows - top)));
+            }
+        }
+    }
+
+    /**
+     * Imprime uma imagem lida em faixas: a faixa seguinte é convertida enquanto
+     * a anterior ainda está indo pela rede. Fecha a fonte no fim.
+     */
+    public void printBands(BandSource source) throws PrinterException {
+        try {
+            checkState();
+            int height = source.getHeight();
+            for (int top = 0; top < height; top += EscPos.BAND_ROWS) {
+                int rows = Math.min(EscPos.BAND_ROWS, height - top);
+                MonoRaster band = MonoRaster.create(source.getWidth(), rows);
+                source.read(top, rows, band);
+                printRaster(band);
+            }
+        } finally {
+            source.close();
+        }
+    }
+
+    @Override
+    public void printQrCode(CharSequence payload, int size) throws PrinterException {
+        MonoRaster raster;
+        try {
+            raster = qrRenderer.render(payload, size);
+        } catch (WriterException e) {
+            throw new IllegalArgumentException("QR Code inválido: " + e.getMessage(), e);
+        }
+        printRaster(raster);
+    }
+
+    /** Desenhado aqui, como no SK210: o resultado não depende do firmware da impressora. */
+    @Override
+    public void printBarcode(Symbology type, String text, int width, int height) throws PrinterException {
+        MonoRaster raster;
+        try {
+            raster = barcodeRenderer.render(type, text, width, height);
+        } catch (WriterException e) {
+            throw new IllegalArgumentException(type + " inválido: " + e.getMessage(), e);
+        }
+        printRaster(raster);
+    }
+
+    @Override
+    public void feed(int dots) throws PrinterException {
+        if (dots > 0) {
+            enqueue(EscPos.feed(dots));
+        }
+    }
+
+    @Override
+    public void cut() throws PrinterException {
+        enqueue(EscPos.cut());
+    }
+
+    /**
+     * Espera tudo o que foi pedido sair pelo socket. A porta 9100 não avisa
+     * quando o papel sai; o que foi entregue a impressora imprime.
+     *
+     * @throws PrinterException = ERROR_NOT_AVAILABLE se a conexão caiu com
+     *                          dados na fila, ERROR_TIMEOUT se não conectou
+     *                          ou não escoou a tempo
+     */
+    @Override
+    public void flush() throws PrinterException, InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + flushTimeoutMs * 1000000;
+        synchronized (lock) {
+            long target = queuedBytes;
+            long from = flushedBytes;
+            flushedBytes = target;
+            while (settledBytes < target) {
+                if (closed) {
+                    throw new PrinterException(PrinterException.ERROR_NOT_AVAILABLE, "Impressora de rede fechada");
+                }
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    // Não deixa a senha sair atrasada, no meio da próxima
+                    drop();
+                    throw new PrinterException(PrinterException.ERROR_TIMEOUT,
+                            "Impressora " + getAddress() + " não recebeu a senha a tempo");
+                }
+                lock.wait(Math.max(1, left / 1000000));
+            }
+            if (droppedBytes > from) {
+                throw new PrinterException(PrinterException.ERROR_NOT_AVAILABLE,
+                        "Conexão com " + getAddress() + " caiu durante a impressão");
+            }
+        }
+        metrics.recordStage(PrinterMetrics.Stage.PRINT, start);
+    }
+
+    /** Última rodada do {@code DLE EOT}; OFFLINE sem conexão. Não bloqueia. */
+    @Override
+    public PrinterState getState() {
+        return state;
+    }
+
+    /** Fecha a conexão e a thread de rede. O que estiver na fila é descartado. */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkState() throws PrinterException {
+        PrinterState current = state;
+        if (current == PrinterState.OUT_OF_PAPER) {
+            throw new PrinterException(PrinterException.ERROR_OUT_OF_PAPER, "Impressora de rede sem papel");
+        }
+        if (current == PrinterState.OVERHEAT) {
+            throw new PrinterException(PrinterException.ERROR_OVERHEAT, "Impressora de rede superaquecida");
+        }
+    }
+
+    private void enqueue(ByteBuffer command) throws PrinterException {
+        checkState();
+        synchronized (lock) {
+            if (closed) {
+                throw new PrinterException(PrinterException.ERROR_NOT_AVAILABLE, "Impressora de rede fechada");
+            }
+            outbound.add(command);
+            queuedBytes += command.remaining();
+        }
+        selector.wakeup();
+    }
+
+    // Com o lock
+    private void drop() {
+        outbound.clear();
+        settledBytes = droppedBytes = queuedBytes;
+        lock.notifyAll();
+    }
+
+    private void loop() {
+        try {
+            while (true) {
+                synchronized (lock) {
+                    if (closed) {
+                        break;
+                    }
+                }
+                long now = System.currentTimeMillis();
+                if (channel == null && now >= reconnectAt) {
+                    connect(now);
+                }
+                long wait = step(now);
+                selector.select(Math.max(1, wait));
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isConnectable()) {
+                        finishConnect();
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        read();
+                    }
+                }
+                selector.selectedKeys().clear();
+                if (channel != null && isOpenAndConnected()) {
+                    write();
+                }
+            }
+        } catch (IOException e) {
+            // Selector quebrado: não há como continuar
+        } finally {
+            disconnect("fechada");
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // já fechando
+            }
+            synchronized (lock) {
+                state = PrinterState.OFFLINE;
+                drop();
+            }
+        }
+    }
+
+    /**
+     * Prazos de conexão e status.
+     *
+     * @return long = ms até o próximo prazo
+     */
+    private long step(long now) {
+        if (channel == null) {
+            return reconnectAt - now;
+        }
+        if (!isOpenAndConnected()) {
+            if (now - connectStartedAt >= CONNECT_TIMEOUT_MS) {
+                disconnect("sem resposta ao conectar");
+                return reconnectAt - now;
+            }
+            return connectStartedAt + CONNECT_TIMEOUT_MS - now;
+        }
+        if (stalledSince != 0) {
+            if (now - stalledSince >= WRITE_STALL_MS) {
+                disconnect("escrita parada");
+                return reconnectAt - now;
+            }
+            return stalledSince + WRITE_STALL_MS - now;
+        }
+        if (statusRequest != null) {
+            // Sai no próximo write
+            return STATUS_PERIOD_MS;
+        }
+        if (statusReceived < STATUS_ROUND.length) {
+            if (now - statusSentAt >= STATUS_TIMEOUT_MS) {
+                // Impressora que não responde DLE EOT: imprime mesmo assim
+                statusReceived = STATUS_ROUND.length;
+                state = PrinterState.UNKNOWN;
+                nextStatusAt = now + STATUS_TIMEOUT_MS;
+                metrics.increment("net.statusTimeouts");
+                return STATUS_TIMEOUT_MS;
+            }
+            return statusSentAt + STATUS_TIMEOUT_MS - now;
+        }
+        long due = Math.max(nextStatusAt, lastWriteAt + STATUS_PERIOD_MS);
+        if (now < due || !isIdle()) {
+            return Math.min(Math.max(1, due - now), STATUS_PERIOD_MS);
+        }
+        ByteBuffer request = ByteBuffer.allocate(STATUS_ROUND.length * 3);
+        for (int n : STATUS_ROUND) {
+            request.put(EscPos.statusRequest(n));
+        }
+        request.flip();
+        statusRequest = request;
+        return STATUS_TIMEOUT_MS;
+    }
+
+    private boolean isIdle() {
+        synchronized (lock) {
+            return outbound.isEmpty();
+        }
+    }
+
+    private void connect(long now) {
+        try {
+            SocketChannel ch = SocketChannel.open();
+            ch.configureBlocking(false);
+            ch.socket().setTcpNoDelay(true);
+            ch.socket().setKeepAlive(true);
+            channel = ch;
+            connectStartedAt = now;
+            // Resolve aqui, fora da thread da impressora
+            InetSocketAddress target = new InetSocketAddress(address.getHostString(), address.getPort());
+            if (ch.connect(target)) {
+                onConnected();
+            } else {
+                ch.register(selector, SelectionKey.OP_CONNECT);
+            }
+        } catch (IOException | RuntimeException e) {
+            disconnect(e.toString());
+        }
+    }
+
+    private void finishConnect() {
+        try {
+            if (channel.finishConnect()) {
+                onConnected();
+            }
+        } catch (IOException e) {
+            disconnect(e.toString());
+        }
+    }
+
+    private void onConnected() throws IOException {
+        channel.register(selector, SelectionKey.OP_READ);
+        backoffMs = MIN_BACKOFF_MS;
+        statusReceived = STATUS_ROUND.length;
+        statusRequest = null;
+        nextStatusAt = 0;
+        lastWriteAt = 0;
+        stalledSince = 0;
+        synchronized (lock) {
+            // Reinicia a impressora antes do que estiver na fila
+            ByteBuffer init = EscPos.init();
+            outbound.addFirst(init);
+            queuedBytes += init.remaining();
+            connected = true;
+        }
+        metrics.increment("net.connects");
+    }
+
+    private boolean isOpenAndConnected() {
+        return channel.isOpen() && channel.isConnected();
+    }
+
+    /**
+     * Escreve o que der sem bloquear: primeiro o pedido de status, se nenhum
+     * comando está pela metade, depois os comandos juntos.
+     */
+    private void write() {
+        boolean pending;
+        long written = 0;
+        try {
+            synchronized (lock) {
+                ByteBuffer head = outbound.peek();
+                if (statusRequest != null && (head == null || head.position() == 0)) {
+                    written += channel.write(statusRequest);
+                    if (!statusRequest.hasRemaining()) {
+                        statusRequest = null;
+                        statusReceived = 0;
+                        statusSentAt = System.currentTimeMillis();
+                    }
+                }
+                int count = 0;
+                for (ByteBuffer buffer : outbound) {
+                    if (count == GATHER) {
+                        break;
+                    }
+                    gather[count++] = buffer;
+                }
+                if (count > 0 && statusRequest == null) {
+                    long data = channel.write(gather, 0, count);
+                    written += data;
+                    settledBytes += data;
+                    while (!outbound.isEmpty() && !outbound.peek().hasRemaining()) {
+                        outbound.poll();
+                    }
+                    if (data > 0) {
+                        lastWriteAt = System.currentTimeMillis();
+                        metrics.increment("net.bytes", data);
+                        lock.notifyAll();
+                    }
+                }
+                for (int i = 0; i < count; i++) {
+                    gather[i] = null;
+                }
+                pending = !outbound.isEmpty() || statusRequest != null;
+            }
+        } catch (IOException e) {
+            disconnect(e.toString());
+            return;
+        }
+        if (!pending || written > 0) {
+            stalledSince = 0;
+        } else if (stalledSince == 0) {
+            stalledSince = System.currentTimeMillis();
+        }
+        SelectionKey key = channel.keyFor(selector);
+        if (key != null && key.isValid()) {
+            key.interestOps(SelectionKey.OP_READ | (pending ? SelectionKey.OP_WRITE : 0));
+        }
+    }
+
+    private void read() {
+        try {
+            readBuffer.clear();
+            int n = channel.read(readBuffer);
+            if (n < 0) {
+                disconnect("fechada pela impressora");
+                return;
+            }
+            for (int i = 0; i < n; i++) {
+                int b = readBuffer.get(i) & 0xFF;
+                if (!EscPos.isStatusReply(b) || statusReceived >= STATUS_ROUND.length) {
+                    continue;
+                }
+                statusReplies[statusReceived++] = b;
+                if (statusReceived == STATUS_ROUND.length) {
+                    state = EscPos.state(statusReplies[0], statusReplies[1], statusReplies[2]);
+                    nextStatusAt = System.currentTimeMillis() + STATUS_PERIOD_MS;
+                }
+            }
+        } catch (IOException e) {
+            disconnect(e.toString());
+        }
+    }
+
+    private void disconnect(String reason) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // já caiu
+            }
+            channel = null;
+        }
+        statusRequest = null;
+        statusReceived = STATUS_ROUND.length;
+        stalledSince = 0;
+        reconnectAt = System.currentTimeMillis() + backoffMs;
+        backoffMs = Math.min(MAX_BACKOFF_MS, backoffMs * 2);
+        boolean wasConnected;
+        synchronized (lock) {
+            wasConnected = connected;
+            connected = false;
+            state = PrinterState.OFFLINE;
+            // Um comando pela metade estragaria a próxima senha
+            if (!outbound.isEmpty() && wasConnected) {
+                drop();
+            }
+        }
+        if (wasConnected) {
+            metrics.increment("net.disconnects");
+        }
+    }
+}
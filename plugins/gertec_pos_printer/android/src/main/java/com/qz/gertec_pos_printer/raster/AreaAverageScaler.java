@@ -0,0 +1,101 @@
+package com.qz.gertec_pos_printer.raster;
+
+/**
+ * Redução de imagem por média de área (box filter exato), em aritmética
+ * inteira.
+ *
+ * Cada pixel de destino é a média ponderada de todos os pixels de origem que
+ * ele cobre, então traços finos do texto não somem como acontece no
+ * vizinho-mais-próximo. Pixels transparentes são compostos sobre branco, que é
+ * a cor do papel.
+ */
+public final class AreaAverageScaler {
+
+    private AreaAverageScaler() {
+    }
+
+    /**
+     * Reduz {@code src} (ARGB, {@code sw} x {@code sh}) para {@code dst} (ARGB
+     * opaco, {@code dw} x {@code dh}).
+     *
+     * @throws IllegalArgumentException = quando o destino é maior que a origem
+     */
+    public static void scale(int[] src, int sw, int sh, int[] dst, int dw, int dh) {
+        if (dw <= 0 || dh <= 0 || dw > sw || dh > sh) {
+            throw new IllegalArgumentException("Só reduz: " + sw + "x" + sh + " -> " + dw + "x" + dh);
+        }
+        // Soma horizontal já normalizada (0..255) da linha de origem atual
+        int[] hRow = new int[dw * 3];
+        // Acumulador vertical da linha de destino atual, em unidades de dh
+        int[] vAcc = new int[dw * 3];
+
+        // Na vertical, a linha de origem ocupa dh unidades e a de destino sh
+        int dy = 0;
+        int dstEnd = sh;
+        for (int sy = 0; sy < sh; sy++) {
+            scaleRow(src, sy * sw, sw, hRow, dw);
+            int srcStart = sy * dh;
+            int srcEnd = srcStart + dh;
+            while (srcStart < srcEnd) {
+                int end = Math.min(srcEnd, dstEnd);
+                int weight = end - srcStart;
+                for (int i = 0; i < vAcc.length; i++) {
+                    vAcc[i] += hRow[i] * weight;
+                }
+                srcStart = end;
+                if (end == dstEnd) {
+                    int base = dy * dw;
+                    for (int x = 0, i = 0; x < dw; x++, i += 3) {
+                        dst[base + x] = 0xFF000000
+                                | (vAcc[i] / sh) << 16
+                                | (vAcc[i + 1] / sh) << 8
+                                | (vAcc[i + 2] / sh);
+                        vAcc[i] = 0;
+                        vAcc[i + 1] = 0;
+                        vAcc[i + 2] = 0;
+                    }
+                    dy++;
+                    dstEnd += sh;
+                }
+            }
+        }
+    }
+
+    /** Mesma lógica na horizontal: pixel de origem ocupa dw unidades, o de destino sw. */
+    private static void scaleRow(int[] src, int offset, int sw, int[] out, int dw) {
+        int r = 0;
+        int g = 0;
+        int b = 0;
+        int dx = 0;
+        int dstEnd = sw;
+        for (int sx = 0; sx < sw; sx++) {
+            int p = src[offset + sx];
+            int a = p >>> 24;
+            // Composição sobre o branco do papel
+            int pr = (((p >> 16) & 0xFF) * a + 255 * (255 - a)) / 255;
+            int pg = (((p >> 8) & 0xFF) * a + 255 * (255 - a)) / 255;
+            int pb = ((p & 0xFF) * a + 255 * (255 - a)) / 255;
+            int srcStart = sx * dw;
+            int srcEnd = srcStart + dw;
+            while (srcStart < srcEnd) {
+                int end = Math.min(srcEnd, dstEnd);
+                int weight = end - srcStart;
+                r += pr * weight;
+                g += pg * weight;
+                b += pb * weight;
+                srcStart = end;
+                if (end == dstEnd) {
+                    int i = dx * 3;
+                    out[i] = r / sw;
+                    out[i + 1] = g / sw;
+                    out[i + 2] = b / sw;
+                    r = 0;
+                    g = 0;
+                    b = 0;
+                    dx++;
+                    dstEnd += sw;
+                }
+            }
+        }
+    }
+}
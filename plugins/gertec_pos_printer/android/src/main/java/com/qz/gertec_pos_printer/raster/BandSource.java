@@ -0,0 +1,21 @@
+package com.qz.gertec_pos_printer.raster;
+
+/**
+ * Imagem lida em faixas de linhas, de cima para baixo, para ser impressa sem
+ * existir inteira na memória.
+ */
+public interface BandSource {
+    int getWidth();
+
+    int getHeight();
+
+    /**
+     * Grava as linhas {@code [top, top + rows)} nas primeiras linhas de
+     * {@code dst}. As faixas são pedidas em ordem, sem pular linhas; pedir
+     * {@code top} 0 de novo recomeça a imagem.
+     */
+    void read(int top, int rows, MonoRaster dst);
+
+    /** Libera o que a fonte segura (decodificador, buffers). */
+    void close();
+}
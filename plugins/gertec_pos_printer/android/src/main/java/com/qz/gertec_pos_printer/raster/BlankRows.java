@@ -0,0 +1,87 @@
+package com.qz.gertec_pos_printer.raster;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Separa uma imagem em trechos com tinta e trechos em branco.
+ *
+ * Os espaços da senha (margens, linhas vazias) viram avanço de papel em vez de
+ * linhas brancas mandadas como imagem. O avanço anda em linhas inteiras de
+ * {@code unit} pontos; as linhas brancas que sobram da divisão ficam com o
+ * trecho seguinte, para a altura total não mudar.
+ */
+public final class BlankRows {
+
+    /** Um trecho de linhas consecutivas. */
+    public static final class Run {
+        public final int top;
+        public final int rows;
+        /** Sem tinta: {@link #rows} é múltiplo de unit, salvo no fim da imagem. */
+        public final boolean blank;
+
+        Run(int top, int rows, boolean blank) {
+            this.top = top;
+            this.rows = rows;
+            this.blank = blank;
+        }
+
+        /** Linhas de avanço deste trecho em branco, arredondando para cima. */
+        public int feedLines(int unit) {
+            return (rows + unit - 1) / unit;
+        }
+    }
+
+    private BlankRows() {
+    }
+
+    /**
+     * @param raster = imagem inteira
+     * @param unit   = pontos de uma linha de avanço; brancos menores que isso
+     *               continuam como imagem
+     *
+     * @return List = trechos em ordem, cobrindo a imagem
+     */
+    public static List<Run> split(MonoRaster raster, int unit) {
+        List<Run> runs = new ArrayList<>();
+        int height = raster.getHeight();
+        // Início do trecho com tinta atual (inclui sobras brancas), ou -1
+        int content = -1;
+        int y = 0;
+        while (y < height) {
+            if (!raster.isBlankRow(y)) {
+                if (content < 0) {
+                    content = y;
+                }
+                y++;
+                continue;
+            }
+            int start = y;
+            while (y < height && raster.isBlankRow(y)) {
+                y++;
+            }
+            int length = y - start;
+            if (y == height) {
+                // No fim a sobra vira uma linha de avanço a mais
+                addContent(runs, content, start);
+                runs.add(new Run(start, length, true));
+                content = -1;
+            } else if (length >= unit) {
+                int feed = length - length % unit;
+                addContent(runs, content, start);
+                runs.add(new Run(start, feed, true));
+                content = start + feed;
+            } else if (content < 0) {
+                content = start;
+            }
+        }
+        addContent(runs, content, height);
+        return runs;
+    }
+
+    private static void addContent(List<Run> runs, int from, int to) {
+        if (from >= 0 && to > from) {
+            runs.add(new Run(from, to - from, false));
+        }
+    }
+}
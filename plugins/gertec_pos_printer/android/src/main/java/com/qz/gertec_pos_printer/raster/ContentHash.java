@@ -0,0 +1,85 @@
+package com.qz.gertec_pos_printer.raster;
+
+/**
+ * Hash de 64 bits para indexar conteúdo já rasterizado.
+ *
+ * Consome 8 bytes por passo e termina com o {@code fmix64} do MurmurHash3.
+ * Não é criptográfico: serve só como chave de cache, onde uma colisão custa no
+ * máximo uma faixa errada e a chance em 64 bits é desprezível para o volume de
+ * uma gira.
+ */
+public final class ContentHash {
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+    private static final long C1 = 0x87C37B91114253D5L;
+    private static final long C2 = 0x4CF5AD432745937FL;
+
+    private ContentHash() {
+    }
+
+    public static long of(byte[] data, int offset, int length) {
+        long h = SEED ^ length;
+        int i = offset;
+        int end = offset + length;
+        for (; i + 8 <= end; i += 8) {
+            long k = (data[i] & 0xFFL)
+                    | (data[i + 1] & 0xFFL) << 8
+                    | (data[i + 2] & 0xFFL) << 16
+                    | (data[i + 3] & 0xFFL) << 24
+                    | (data[i + 4] & 0xFFL) << 32
+                    | (data[i + 5] & 0xFFL) << 40
+                    | (data[i + 6] & 0xFFL) << 48
+                    | (data[i + 7] & 0xFFL) << 56;
+            h = mixBlock(h, k);
+        }
+        long k = 0;
+        for (int shift = 0; i < end; i++, shift += 8) {
+            k |= (data[i] & 0xFFL) << shift;
+        }
+        return fmix64(mixBlock(h, k));
+    }
+
+    public static long of(byte[] data) {
+        return of(data, 0, data.length);
+    }
+
+    public static long of(CharSequence text) {
+        long h = SEED ^ text.length();
+        int i = 0;
+        int len = text.length();
+        for (; i + 4 <= len; i += 4) {
+            long k = text.charAt(i)
+                    | (long) text.charAt(i + 1) << 16
+                    | (long) text.charAt(i + 2) << 32
+                    | (long) text.charAt(i + 3) << 48;
+            h = mixBlock(h, k);
+        }
+        long k = 0;
+        for (int shift = 0; i < len; i++, shift += 16) {
+            k |= (long) text.charAt(i) << shift;
+        }
+        return fmix64(mixBlock(h, k));
+    }
+
+    /** Combina hashes, por exemplo conteúdo + parâmetros de renderização. */
+    public static long combine(long h, long value) {
+        return fmix64(mixBlock(h, value));
+    }
+
+    private static long mixBlock(long h, long k) {
+        k *= C1;
+        k = Long.rotateLeft(k, 31);
+        k *= C2;
+        h ^= k;
+        h = Long.rotateLeft(h, 27);
+        return h * 5 + 0x52DCE729;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xFF51AFD7ED558CCDL;
+        k ^= k >>> 33;
+        k *= 0xC4CEB9FE1A85EC53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
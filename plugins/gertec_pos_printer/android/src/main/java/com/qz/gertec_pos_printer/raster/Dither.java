@@ -0,0 +1,238 @@
+package com.qz.gertec_pos_printer.raster;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Converte imagens ARGB em 1 bit por ponto antes do {@code printBmp}, em vez
+ * de deixar o limiar para o firmware.
+ *
+ * Trabalha direto nos {@code int[]} das linhas e grava no {@link MonoRaster}
+ * de destino. Imagens altas são divididas em faixas de linhas processadas em
+ * paralelo num {@link ForkJoinPool}; cada faixa só escreve as próprias linhas
+ * do destino.
+ */
+public final class Dither {
+
+    public enum Mode {
+        /** Limiar fixo: o mais nítido para texto e logos de cor chapada. */
+        THRESHOLD,
+        /** Bayer 8x8: degradês sem costura entre as faixas. */
+        ORDERED,
+        /** Difusão de erro, varrendo em zigue-zague: o melhor para fotos. */
+        FLOYD_STEINBERG;
+
+        /**
+         * @param name = "threshold", "ordered", "floyd_steinberg" ou "floyd"
+         *
+         * @return Mode = {@code fallback} se o nome é nulo
+         */
+        public static Mode fromName(String name, Mode fallback) {
+            if (name == null) {
+                return fallback;
+            }
+            String upper = name.toUpperCase(Locale.ROOT);
+            if (upper.equals("FLOYD")) {
+                return FLOYD_STEINBERG;
+            }
+            return valueOf(upper);
+        }
+    }
+
+    /** Luminância abaixo da qual o ponto é preto no modo {@link Mode#THRESHOLD}. */
+    public static final int THRESHOLD = 128;
+    /**
+     * Menor faixa enviada a outra thread. Na difusão de erro cada faixa começa
+     * sem o erro da anterior, então poucas faixas grandes deixam menos emendas.
+     */
+    public static final int MIN_BAND_ROWS = 64;
+
+    // Limiares do Bayer 8x8 já na escala 0..255
+    private static final int[] BAYER = new int[64];
+
+    static {
+        int[] m = {
+                0, 32, 8, 40, 2, 34, 10, 42,
+                48, 16, 56, 24, 50, 18, 58, 26,
+                12, 44, 4, 36, 14, 46, 6, 38,
+                60, 28, 52, 20, 62, 30, 54, 22,
+                3, 35, 11, 43, 1, 33, 9, 41,
+                51, 19, 59, 27, 49, 17, 57, 25,
+                15, 47, 7, 39, 13, 45, 5, 37,
+                63, 31, 55, 23, 61, 29, 53, 21
+        };
+        for (int i = 0; i < 64; i++) {
+            BAYER[i] = m[i] * 4 + 2;
+        }
+    }
+
+    private Dither() {
+    }
+
+    /**
+     * Converte a imagem inteira, em paralelo quando é alta o bastante.
+     *
+     * @param argb   = pixels, {@code width} por linha
+     * @param width  = largura, até {@link MonoRaster#MAX_WIDTH}
+     * @param height = número de linhas
+     * @param mode   = algoritmo
+     *
+     * @return MonoRaster = nova imagem {@code width} x {@code height}
+     */
+    public static MonoRaster dither(int[] argb, int width, int height, Mode mode) {
+        MonoRaster dst = MonoRaster.create(width, height);
+        int parallelism = Pool.INSTANCE.getParallelism();
+        int band = Math.max(MIN_BAND_ROWS, (height + parallelism - 1) / parallelism);
+        if (parallelism == 1 || height <= band) {
+            ditherRows(argb, width, 0, height, mode, dst, 0);
+        } else {
+            Pool.INSTANCE.invoke(new BandTask(argb, width, 0, height, band, mode, dst));
+        }
+        return dst;
+    }
+
+    /**
+     * Converte as linhas {@code [from, to)} na thread atual, gravando a partir
+     * da linha {@code dstY} do destino.
+     */
+    public static void ditherRows(int[] argb, int width, int from, int to, Mode mode, MonoRaster dst, int dstY) {
+        switch (mode) {
+            case THRESHOLD:
+                for (int y = from; y < to; y++) {
+                    dst.packRow(dstY + y - from, argb, y * width, THRESHOLD);
+                }
+                break;
+            case ORDERED:
+                ordered(argb, width, from, to, dst, dstY);
+                break;
+            default:
+                new Diffuser(width).ditherRows(argb, from, to, dst, dstY);
+        }
+    }
+
+    private static void ordered(int[] argb, int width, int from, int to, MonoRaster dst, int dstY) {
+        byte[] data = dst.getData();
+        int stride = dst.getStride();
+        for (int y = from; y < to; y++) {
+            int src = y * width;
+            int out = (dstY + y - from) * stride;
+            // Linha da matriz usada pela linha da imagem original, sem emenda entre faixas
+            int bayerRow = (y & 7) << 3;
+            for (int i = 0; i < stride; i++) {
+                int b = 0;
+                int x = i << 3;
+                int end = Math.min(x + 8, width);
+                for (int bit = 0x80; x < end; x++, bit >>>= 1) {
+                    if (MonoRaster.luminance(argb[src + x]) < BAYER[bayerRow + (x & 7)]) {
+                        b |= bit;
+                    }
+                }
+                data[out + i] = (byte) b;
+            }
+        }
+    }
+
+    /**
+     * Floyd–Steinberg que guarda o erro entre chamadas, para imagens
+     * convertidas faixa a faixa sem emenda.
+     *
+     * Aritmética inteira: os buffers de erro guardam o erro multiplicado por
+     * 16, com uma posição de folga de cada lado.
+     */
+    public static final class Diffuser {
+        private final int width;
+        private int[] cur;
+        private int[] next;
+        // Linhas já convertidas, para manter o zigue-zague entre faixas
+        private int rows;
+
+        public Diffuser(int width) {
+            this.width = width;
+            this.cur = new int[width + 2];
+            this.next = new int[width + 2];
+        }
+
+        /** Descarta o erro acumulado, para converter a imagem do início. */
+        public void reset() {
+            Arrays.fill(cur, 0);
+            Arrays.fill(next, 0);
+            rows = 0;
+        }
+
+        /**
+         * Converte as linhas {@code [from, to)} de {@code argb} continuando o
+         * erro da chamada anterior.
+         */
+        public void ditherRows(int[] argb, int from, int to, MonoRaster dst, int dstY) {
+            byte[] data = dst.getData();
+            int stride = dst.getStride();
+            for (int y = from; y < to; y++, rows++) {
+                int src = y * width;
+                int out = (dstY + y - from) * stride;
+                Arrays.fill(data, out, out + stride, (byte) 0);
+                int dir = (rows & 1) == 0 ? 1 : -1;
+                int x = dir == 1 ? 0 : width - 1;
+                for (int n = 0; n < width; n++, x += dir) {
+                    int v = MonoRaster.luminance(argb[src + x]) + ((cur[x + 1] + 8) >> 4);
+                    int e;
+                    if (v < THRESHOLD) {
+                        data[out + (x >> 3)] |= (byte) (0x80 >>> (x & 7));
+                        e = v;
+                    } else {
+                        e = v - 255;
+                    }
+                    cur[x + 1 + dir] += e * 7;
+                    next[x + 1 - dir] += e * 3;
+                    next[x + 1] += e * 5;
+                    next[x + 1 + dir] += e;
+                }
+                int[] t = cur;
+                cur = next;
+                next = t;
+                Arrays.fill(next, 0);
+            }
+        }
+    }
+
+    /** Divide as linhas ao meio, em limites de faixa, até cada parte ter uma faixa. */
+    private static final class BandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] argb;
+        private final int width;
+        private final int from;
+        private final int to;
+        private final int band;
+        private final Mode mode;
+        private final MonoRaster dst;
+
+        BandTask(int[] argb, int width, int from, int to, int band, Mode mode, MonoRaster dst) {
+            this.argb = argb;
+            this.width = width;
+            this.from = from;
+            this.to = to;
+            this.band = band;
+            this.mode = mode;
+            this.dst = dst;
+        }
+
+        @Override
+        protected void compute() {
+            int bands = (to - from + band - 1) / band;
+            if (bands <= 1) {
+                ditherRows(argb, width, from, to, mode, dst, from);
+                return;
+            }
+            int mid = from + (bands / 2) * band;
+            invokeAll(new BandTask(argb, width, from, mid, band, mode, dst),
+                    new BandTask(argb, width, mid, to, band, mode, dst));
+        }
+    }
+
+    // ForkJoinPool.commonPool() só existe a partir da API 24
+    private static final class Pool {
+        static final ForkJoinPool INSTANCE = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -0,0 +1,174 @@
+package com.qz.gertec_pos_printer.raster;
+
+import java.util.Arrays;
+
+/**
+ * Imagem monocromática de 1 bit por pixel, já no formato da cabeça térmica.
+ *
+ * Cada linha ocupa {@code (width + 7) / 8} bytes. Dentro de um byte o bit mais
+ * significativo é o pixel mais à esquerda e o bit ligado é ponto preto (mesma
+ * convenção do comando ESC/POS {@code GS v 0}).
+ */
+public final class MonoRaster {
+    /** Largura da cabeça de impressão dos modelos suportados, em pontos. */
+    public static final int MAX_WIDTH = 384;
+
+    private final int width;
+    private final int height;
+    private final int stride;
+    private final byte[] data;
+
+    private MonoRaster(int width, int height, byte[] data) {
+        this.width = width;
+        this.height = height;
+        this.stride = strideFor(width);
+        this.data = data;
+    }
+
+    /**
+     * Usa os bytes recebidos sem copiar, depois de validar o tamanho.
+     *
+     * @param width = largura em pontos
+     * @param data  = linhas empacotadas, 8 pontos por byte
+     *
+     * @throws IllegalArgumentException = largura fora da cabeça ou dados que
+     *                                  não fecham em linhas inteiras
+     */
+    public static MonoRaster wrap(int width, byte[] data) {
+        if (width <= 0 || width > MAX_WIDTH) {
+            throw new IllegalArgumentException("Largura inválida: " + width);
+        }
+        int stride = strideFor(width);
+        if (data == null || data.length == 0 || data.length % stride != 0) {
+            throw new IllegalArgumentException("Dados não formam linhas de " + stride + " bytes");
+        }
+        return new MonoRaster(width, data.length / stride, data);
+    }
+
+    /** Cria uma imagem em branco. */
+    public static MonoRaster create(int width, int height) {
+        if (width <= 0 || width > MAX_WIDTH || height <= 0) {
+            throw new IllegalArgumentException("Tamanho inválido: " + width + "x" + height);
+        }
+        return new MonoRaster(width, height, new byte[strideFor(width) * height]);
+    }
+
+    public static int strideFor(int width) {
+        return (width + 7) >> 3;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    /** Bytes empacotados, sem cópia. */
+    public byte[] getData() {
+        return data;
+    }
+
+    public boolean isBlack(int x, int y) {
+        return (data[y * stride + (x >> 3)] & (0x80 >>> (x & 7))) != 0;
+    }
+
+    public void setBlack(int x, int y) {
+        data[y * stride + (x >> 3)] |= (byte) (0x80 >>> (x & 7));
+    }
+
+    /** Linha sem nenhum ponto preto; os bits de sobra do último byte não contam. */
+    public boolean isBlankRow(int y) {
+        int base = y * stride;
+        int last = base + stride - 1;
+        for (int i = base; i < last; i++) {
+            if (data[i] != 0) {
+                return false;
+            }
+        }
+        int tail = width & 7;
+        int mask = tail == 0 ? 0xFF : (0xFF00 >>> tail) & 0xFF;
+        return (data[last] & mask) == 0;
+    }
+
+    /** Cópia das linhas {@code [top, top + rows)}. */
+    public MonoRaster slice(int top, int rows) {
+        return wrap(width, Arrays.copyOfRange(data, top * stride, (top + rows) * stride));
+    }
+
+    /**
+     * Expande uma linha para pixels inteiros (ex: ARGB), um byte por vez.
+     *
+     * @param y     = linha
+     * @param out   = destino com pelo menos {@code width} posições
+     * @param black = cor usada para ponto ligado
+     * @param white = cor usada para ponto desligado
+     */
+    public void unpackRow(int y, int[] out, int black, int white) {
+        int base = y * stride;
+        int x = 0;
+        for (int i = 0; i < stride; i++) {
+            int b = data[base + i];
+            for (int bit = 0x80; bit != 0 && x < width; bit >>>= 1) {
+                out[x++] = (b & bit) != 0 ? black : white;
+            }
+        }
+    }
+
+    /**
+     * Empacota uma linha de pixels ARGB por limiar de luminância.
+     *
+     * @param y         = linha de destino
+     * @param argb      = pixels da linha, pelo menos {@code width}
+     * @param threshold = luminância (0..255) abaixo da qual o ponto é preto
+     */
+    public void packRow(int y, int[] argb, int threshold) {
+        packRow(y, argb, 0, threshold);
+    }
+
+    /**
+     * Como {@link #packRow(int, int[], int)}, lendo a linha a partir de
+     * {@code offset} (ex: uma linha no meio da imagem inteira).
+     */
+    public void packRow(int y, int[] argb, int offset, int threshold) {
+        int base = y * stride;
+        for (int i = 0; i < stride; i++) {
+            int b = 0;
+            int x = i << 3;
+            int end = Math.min(x + 8, width);
+            for (int bit = 0x80; x < end; x++, bit >>>= 1) {
+                if (luminance(argb[offset + x]) < threshold) {
+                    b |= bit;
+                }
+            }
+            data[base + i] = (byte) b;
+        }
+    }
+
+    /**
+     * Copia todas as linhas de {@code src} para cá a partir da linha {@code y}.
+     * Uma origem mais estreita fica alinhada à esquerda.
+     */
+    public void copyFrom(MonoRaster src, int y) {
+        int n = Math.min(src.stride, stride);
+        if (n == stride && src.stride == stride) {
+            System.arraycopy(src.data, 0, data, y * stride, src.data.length);
+            return;
+        }
+        for (int row = 0; row < src.height; row++) {
+            System.arraycopy(src.data, row * src.stride, data, (y + row) * stride, n);
+        }
+    }
+
+    /** Luminância 0..255 de um pixel ARGB, com transparente tratado como branco. */
+    public static int luminance(int argb) {
+        int a = argb >>> 24;
+        int l = (77 * ((argb >> 16) & 0xFF) + 150 * ((argb >> 8) & 0xFF) + 29 * (argb & 0xFF)) >> 8;
+        return (l * a + 255 * (255 - a)) / 255;
+    }
+}
@@ -0,0 +1,30 @@
+package com.qz.gertec_pos_printer.raster;
+
+/** {@link BandSource} sobre uma imagem de 1 bit que já está na memória. */
+public final class RasterBands implements BandSource {
+    private final MonoRaster raster;
+
+    public RasterBands(MonoRaster raster) {
+        this.raster = raster;
+    }
+
+    @Override
+    public int getWidth() {
+        return raster.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return raster.getHeight();
+    }
+
+    @Override
+    public void read(int top, int rows, MonoRaster dst) {
+        int stride = raster.getStride();
+        System.arraycopy(raster.getData(), top * stride, dst.getData(), 0, rows * stride);
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,84 @@
+package com.qz.gertec_pos_printer.raster;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache LRU de faixas monocromáticas prontas para impressão (cabeçalho,
+ * rodapé, logos, QR codes), indexado por {@link ContentHash}.
+ *
+ * O limite é em bytes de imagem, não em quantidade de itens; quando passa do
+ * limite as faixas menos usadas saem primeiro.
+ */
+public final class SegmentCache {
+    /** 256 KB cabem ~5400 linhas de 384 pontos, bem mais que uma senha. */
+    public static final int DEFAULT_MAX_BYTES = 256 * 1024;
+
+    private final int maxBytes;
+    private final LinkedHashMap<Long, MonoRaster> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int bytes;
+    private long hits;
+    private long misses;
+
+    public SegmentCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    public SegmentCache(int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized MonoRaster get(long key) {
+        MonoRaster raster = entries.get(key);
+        if (raster != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return raster;
+    }
+
+    /** Guarda a faixa; faixas maiores que o limite inteiro não são guardadas. */
+    public synchronized void put(long key, MonoRaster raster) {
+        int size = raster.getData().length;
+        if (size > maxBytes) {
+            return;
+        }
+        MonoRaster old = entries.put(key, raster);
+        if (old != null) {
+            bytes -= old.getData().length;
+        }
+        bytes += size;
+        Iterator<Map.Entry<Long, MonoRaster>> it = entries.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Map.Entry<Long, MonoRaster> eldest = it.next();
+            if (eldest.getKey() == key) {
+                continue;
+            }
+            bytes -= eldest.getValue().getData().length;
+            it.remove();
+        }
+    }
+
+    public synchronized int getBytes() {
+        return bytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+}
@@ -0,0 +1,139 @@
+package com.qz.gertec_pos_printer.sku210;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import com.qz.gertec_pos_printer.raster.AreaAverageScaler;
+import com.qz.gertec_pos_printer.raster.MonoRaster;
+
+/**
+ * Decodificação de imagens (PNG/JPEG) para impressão.
+ *
+ * <ul>
+ * <li>lê só o cabeçalho primeiro para saber o tamanho;</li>
+ * <li>decodifica em RGB_565 (metade do ARGB_8888) reaproveitando um bitmap do
+ * {@link BitmapPool} via {@code inBitmap};</li>
+ * <li>usa {@code inSampleSize} para descartar resolução que a cabeça não
+ * imprime e termina a redução até {@link MonoRaster#MAX_WIDTH} com média de
+ * área.</li>
+ * </ul>
+ *
+ * O bitmap devolvido pertence ao chamador, que deve devolvê-lo ao pool quando
+ * a impressão terminar.
+ */
+class BitmapDecoder {
+    private static final Bitmap.Config CONFIG = Bitmap.Config.RGB_565;
+
+    private final BitmapPool pool;
+    private final int headWidth;
+    private final BitmapFactory.Options options = new BitmapFactory.Options();
+
+    BitmapDecoder(BitmapPool pool) {
+        this(pool, MonoRaster.MAX_WIDTH);
+    }
+
+    BitmapDecoder(BitmapPool pool, int headWidth) {
+        this.pool = pool;
+        this.headWidth = headWidth;
+    }
+
+    /**
+     * Altura que a imagem terá depois do {@link #decode(byte[])}, lendo só o
+     * cabeçalho.
+     *
+     * @throws IllegalArgumentException = se a imagem é vazia ou inválida
+     */
+    int scaledHeight(byte[] bytes) {
+        readBounds(bytes);
+        int srcWidth = options.outWidth;
+        int sample = sampleFor(srcWidth);
+        int sampledWidth = ceilDiv(srcWidth, sample);
+        int sampledHeight = ceilDiv(options.outHeight, sample);
+        if (sampledWidth <= headWidth) {
+            return sampledHeight;
+        }
+        return Math.max(1, (int) ((long) sampledHeight * headWidth / sampledWidth));
+    }
+
+    Bitmap decode(byte[] bytes) {
+        readBounds(bytes);
+        int srcWidth = options.outWidth;
+        int srcHeight = options.outHeight;
+        int sample = sampleFor(srcWidth);
+
+        resetOptions();
+        options.inSampleSize = sample;
+        options.inPreferredConfig = CONFIG;
+        options.inMutable = true;
+        options.inBitmap = pool.take(ceilDiv(srcWidth, sample), ceilDiv(srcHeight, sample), CONFIG);
+        Bitmap decoded;
+        try {
+            decoded = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        } catch (IllegalArgumentException e) {
+            // inBitmap incompatível com esta imagem: decodifica sem reaproveitar
+            Log.d("GERTEC_SK210", "inBitmap recusado: " + e.getMessage());
+            pool.release(options.inBitmap);
+            options.inBitmap = null;
+            decoded = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        }
+        options.inBitmap = null;
+        if (decoded == null) {
+            throw new IllegalArgumentException("Falha ao decodificar imagem");
+        }
+        if (decoded.getWidth() <= headWidth) {
+            return decoded;
+        }
+        return downscale(decoded);
+    }
+
+    /** Só o cabeçalho: deixa o tamanho em {@code options.outWidth/outHeight}. */
+    private void readBounds(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            throw new IllegalArgumentException("Imagem vazia");
+        }
+        resetOptions();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IllegalArgumentException("Imagem inválida");
+        }
+    }
+
+    private int sampleFor(int srcWidth) {
+        int sample = 1;
+        while (srcWidth / (sample * 2) >= headWidth) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    /** Reduz para a largura da cabeça mantendo a proporção; devolve o original ao pool. */
+    private Bitmap downscale(Bitmap src) {
+        int sw = src.getWidth();
+        int sh = src.getHeight();
+        int dw = headWidth;
+        int dh = Math.max(1, (int) ((long) sh * dw / sw));
+        int[] srcPixels = new int[sw * sh];
+        src.getPixels(srcPixels, 0, sw, 0, 0, sw, sh);
+        pool.release(src);
+
+        int[] dstPixels = new int[dw * dh];
+        AreaAverageScaler.scale(srcPixels, sw, sh, dstPixels, dw, dh);
+        Bitmap dst = pool.acquire(dw, dh, CONFIG);
+        dst.setPixels(dstPixels, 0, dw, 0, 0, dw, dh);
+        return dst;
+    }
+
+    private void resetOptions() {
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = 1;
+        options.inBitmap = null;
+        options.inMutable = false;
+        options.inPreferredConfig = CONFIG;
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+}
@@ -0,0 +1,66 @@
+package com.qz.gertec_pos_printer.sku210;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Pool de bitmaps reaproveitáveis, indexado por largura, altura e formato.
+ *
+ * Quem recebe um bitmap de {@link #acquire} é dono dele até devolver com
+ * {@link #release}; depois disso o bitmap não pode mais ser usado. O pool
+ * guarda no máximo {@link #MAX_ENTRIES} bitmaps livres e recicla o mais antigo
+ * quando passa disso, para o consumo de memória do SK210 ficar estável durante
+ * a gira.
+ */
+class BitmapPool {
+    static final int MAX_ENTRIES = 4;
+
+    private final ArrayDeque<Bitmap> free = new ArrayDeque<>(MAX_ENTRIES);
+
+    /** Devolve um bitmap mutável do tamanho pedido, reaproveitado quando possível. */
+    synchronized Bitmap acquire(int width, int height, Bitmap.Config config) {
+        Bitmap bitmap = take(width, height, config);
+        return bitmap != null ? bitmap : Bitmap.createBitmap(width, height, config);
+    }
+
+    /**
+     * Retira um bitmap livre com exatamente esse tamanho e formato, sem criar.
+     *
+     * @return Bitmap = ou null quando não existe no pool
+     */
+    synchronized Bitmap take(int width, int height, Bitmap.Config config) {
+        Iterator<Bitmap> it = free.iterator();
+        while (it.hasNext()) {
+            Bitmap b = it.next();
+            if (b.getWidth() == width && b.getHeight() == height && b.getConfig() == config) {
+                it.remove();
+                return b;
+            }
+        }
+        return null;
+    }
+
+    /** Devolve o bitmap ao pool; o chamador não deve mais usá-lo. */
+    synchronized void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        if (!bitmap.isMutable()) {
+            bitmap.recycle();
+            return;
+        }
+        if (free.size() == MAX_ENTRIES) {
+            free.removeFirst().recycle();
+        }
+        free.addLast(bitmap);
+    }
+
+    synchronized void clear() {
+        for (Bitmap b : free) {
+            b.recycle();
+        }
+        free.clear();
+    }
+}
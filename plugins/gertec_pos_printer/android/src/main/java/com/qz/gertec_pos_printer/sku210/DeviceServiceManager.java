@@ -5,67 +5,238 @@ import java.lang.reflect.Method;
 import com.topwise.cloudpos.aidl.AidlDeviceService;
 import com.topwise.cloudpos.aidl.printer.AidlPrinter;
 
-import android.annotation.SuppressLint;
 import android.content.Context;
 import android.os.IBinder;
 import android.os.RemoteException;
+import android.os.SystemClock;
 import android.util.Log;
 
+/**
+ * Conexão com o serviço de dispositivo da Topwise.
+ *
+ * O {@link AidlPrinter} fica em cache enquanto o binder estiver vivo. Se o
+ * serviço reiniciar, o {@link IBinder.DeathRecipient} descarta a conexão e uma
+ * thread em segundo plano tenta reconectar algumas vezes, com espera crescente.
+ * Quem chamar {@link #awaitPrinter(Context, long)} nesse intervalo fica
+ * aguardando a reconexão em vez de falhar.
+ */
 public class DeviceServiceManager {
 
+    private static final String TAG = "GERTEC_SK210";
     private static final String ACTION_DEVICE_SERVICE = "topwise_cloudpos_device_service";
 
-    @SuppressLint("StaticFieldLeak")
-    private static DeviceServiceManager instance;
+    static final int MAX_RECONNECT_ATTEMPTS = 6;
+    static final long RECONNECT_BASE_DELAY_MS = 250;
+    static final long RECONNECT_MAX_DELAY_MS = 4000;
+
+    private static volatile DeviceServiceManager instance;
+    private static volatile Method getServiceMethod;
+
+    private final Object lock = new Object();
+    // Campos abaixo protegidos por lock
+    private Context context;
     private AidlDeviceService mDeviceService;
+    private AidlPrinter printer;
+    private Connection connection;
+    private boolean reconnecting;
 
     public static DeviceServiceManager getInstance() {
-
-        Log.d("FLUTTER", "getInstance()");
-        if (null == instance) {
+        DeviceServiceManager result = instance;
+        if (result == null) {
             synchronized (DeviceServiceManager.class) {
-                instance = new DeviceServiceManager();
+                result = instance;
+                if (result == null) {
+                    result = new DeviceServiceManager();
+                    instance = result;
+                }
             }
         }
-        return instance;
+        return result;
     }
 
+    /**
+     * Devolve a impressora em cache, conectando se ainda não houver conexão.
+     *
+     * @return AidlPrinter = ou null se o serviço não existe (não é um SK210) ou
+     *         está reconectando
+     */
+    public AidlPrinter getPrintManager(Context context) {
+        synchronized (lock) {
+            remember(context);
+            if (printer == null && !reconnecting) {
+                connectLocked();
+            }
+            return printer;
+        }
+    }
 
-    public void getDeviceService(Context context) {
-        if (mDeviceService == null) {
-            mDeviceService = AidlDeviceService.Stub.asInterface(getService(context, ACTION_DEVICE_SERVICE));
+    /**
+     * Como {@link #getPrintManager(Context)}, mas se o serviço caiu espera a
+     * reconexão em segundo plano por até {@code timeoutMs}.
+     *
+     * @return AidlPrinter = ou null se não reconectou a tempo
+     */
+    public AidlPrinter awaitPrinter(Context context, long timeoutMs) throws InterruptedException {
+        synchronized (lock) {
+            remember(context);
+            if (printer == null && !reconnecting) {
+                connectLocked();
+            }
+            long deadline = SystemClock.elapsedRealtime() + timeoutMs;
+            while (printer == null && reconnecting) {
+                long remaining = deadline - SystemClock.elapsedRealtime();
+                if (remaining <= 0) {
+                    break;
+                }
+                lock.wait(remaining);
+            }
+            return printer;
         }
-        Log.i("FLUTTER", "onServiceDisconnected  :  " + mDeviceService);
     }
 
-    private static IBinder getService(Context context, String serviceName) {
-        IBinder binder = null;
-        try {
-            ClassLoader cl = context.getClassLoader();
-            Class serviceManager = cl.loadClass("android.os.ServiceManager");
-            Class[] paramTypes = new Class[1];
-            paramTypes[0] = String.class;
-            Method get = serviceManager.getMethod("getService", paramTypes);
-            Object[] params = new Object[1];
-            params[0] = serviceName;
-            binder = (IBinder) get.invoke(serviceManager, params);
-        } catch (Exception e) {
-            e.printStackTrace();
+    /**
+     * Avisa que uma chamada recebeu {@code DeadObjectException}, que pode chegar
+     * antes do {@code binderDied}.
+     *
+     * @param dead = impressora que falhou; ignorado se já foi substituída
+     */
+    public void reportDead(AidlPrinter dead) {
+        Connection current;
+        synchronized (lock) {
+            if (printer != dead) {
+                return;
+            }
+            current = connection;
+        }
+        if (current != null) {
+            current.binderDied();
         }
-        return binder;
     }
 
+    private void remember(Context context) {
+        if (this.context == null && context != null) {
+            this.context = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        }
+    }
 
-    public AidlPrinter getPrintManager(Context context) {
+    private void connectLocked() {
+        if (context == null) {
+            return;
+        }
+        IBinder binder = getService(context, ACTION_DEVICE_SERVICE);
+        if (binder == null) {
+            return;
+        }
+        Connection next = new Connection(binder);
         try {
-            getDeviceService(context);
-            if (mDeviceService != null) {
-                return AidlPrinter.Stub.asInterface(mDeviceService.getPrinter());
+            binder.linkToDeath(next, 0);
+            AidlDeviceService service = AidlDeviceService.Stub.asInterface(binder);
+            IBinder printerBinder = service.getPrinter();
+            if (printerBinder == null) {
+                binder.unlinkToDeath(next, 0);
+                return;
+            }
+            if (printerBinder != binder) {
+                printerBinder.linkToDeath(next, 0);
+                next.printerBinder = printerBinder;
             }
+            mDeviceService = service;
+            printer = AidlPrinter.Stub.asInterface(printerBinder);
+            connection = next;
+            Log.i(TAG, "Serviço da impressora conectado");
         } catch (RemoteException e) {
-            e.printStackTrace();
+            // Binder morreu entre o getService e o linkToDeath
+            next.unlink();
+            Log.w(TAG, "Serviço da impressora indisponível: " + e);
+        }
+    }
+
+    private void onConnectionLost(Connection lost) {
+        synchronized (lock) {
+            if (connection != lost) {
+                return;
+            }
+            connection = null;
+            mDeviceService = null;
+            printer = null;
+            if (reconnecting) {
+                return;
+            }
+            reconnecting = true;
+        }
+        lost.unlink();
+        Log.w(TAG, "Serviço da impressora caiu, reconectando");
+        Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                reconnect();
+            }
+        }, "gertec-sk210-reconnect");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void reconnect() {
+        long delay = RECONNECT_BASE_DELAY_MS;
+        for (int attempt = 1; attempt <= MAX_RECONNECT_ATTEMPTS; attempt++) {
+            SystemClock.sleep(delay);
+            synchronized (lock) {
+                connectLocked();
+                if (printer != null) {
+                    reconnecting = false;
+                    lock.notifyAll();
+                    return;
+                }
+            }
+            delay = Math.min(delay * 2, RECONNECT_MAX_DELAY_MS);
+        }
+        synchronized (lock) {
+            reconnecting = false;
+            lock.notifyAll();
+        }
+        Log.e(TAG, "Serviço da impressora não voltou após " + MAX_RECONNECT_ATTEMPTS + " tentativas");
+    }
+
+    private static IBinder getService(Context context, String serviceName) {
+        try {
+            Method get = getServiceMethod;
+            if (get == null) {
+                Class<?> serviceManager = context.getClassLoader().loadClass("android.os.ServiceManager");
+                get = serviceManager.getMethod("getService", String.class);
+                getServiceMethod = get;
+            }
+            return (IBinder) get.invoke(null, serviceName);
+        } catch (Exception e) {
+            Log.e(TAG, "Erro getService: " + e);
         }
         return null;
     }
 
-}
\ No newline at end of file
+    /** Uma conexão; o aviso de morte de uma conexão antiga é ignorado. */
+    private final class Connection implements IBinder.DeathRecipient {
+        private final IBinder serviceBinder;
+        private IBinder printerBinder;
+
+        Connection(IBinder serviceBinder) {
+            this.serviceBinder = serviceBinder;
+        }
+
+        @Override
+        public void binderDied() {
+            onConnectionLost(this);
+        }
+
+        void unlink() {
+            try {
+                serviceBinder.unlinkToDeath(this, 0);
+            } catch (Exception e) {
+            }
+            if (printerBinder != null) {
+                try {
+                    printerBinder.unlinkToDeath(this, 0);
+                } catch (Exception e) {
+                }
+            }
+        }
+    }
+}
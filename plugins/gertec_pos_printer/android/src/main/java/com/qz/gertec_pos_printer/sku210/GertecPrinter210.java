@@ -2,83 +2,353 @@ package com.qz.gertec_pos_printer.sku210;
 
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.os.DeadObjectException;
 import android.os.RemoteException;
 import android.util.Log;
 
 import com.topwise.cloudpos.aidl.printer.AidlPrinter;
-import com.topwise.cloudpos.aidl.printer.AidlPrinterListener;
 import com.topwise.cloudpos.aidl.printer.PrintCuttingMode;
 import com.topwise.cloudpos.aidl.printer.PrintItemObj;
 import com.topwise.cloudpos.data.PrinterConstant;
 
-import com.qz.gertec_pos_printer.sku210.DeviceServiceManager;
+import com.google.zxing.WriterException;
+import com.qz.gertec_pos_printer.PrinterException;
+import com.qz.gertec_pos_printer.PrinterState;
+import com.qz.gertec_pos_printer.backend.PrinterBackend;
+import com.qz.gertec_pos_printer.barcode.BarcodeRenderer;
+import com.qz.gertec_pos_printer.barcode.PixPayloadBuilder;
+import com.qz.gertec_pos_printer.barcode.QrRenderer;
+import com.qz.gertec_pos_printer.barcode.Symbology;
+import com.qz.gertec_pos_printer.metrics.PrinterMetrics;
+import com.qz.gertec_pos_printer.metrics.PrinterMetrics.Stage;
+import com.qz.gertec_pos_printer.raster.BandSource;
+import com.qz.gertec_pos_printer.raster.BlankRows;
+import com.qz.gertec_pos_printer.raster.ContentHash;
+import com.qz.gertec_pos_printer.raster.Dither;
+import com.qz.gertec_pos_printer.raster.MonoRaster;
+import com.qz.gertec_pos_printer.raster.RasterBands;
+import com.qz.gertec_pos_printer.raster.SegmentCache;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
 
-public class GertecPrinter210 {
-    private Context context;
-    private AidlPrinter printer;
+public class GertecPrinter210 implements PrinterBackend {
+    /** Quanto um comando espera o serviço voltar antes de desistir. */
+    static final long RECONNECT_WAIT_MS = 15000;
+    /** Tamanho do printBarCode quando o chamador não informa. */
+    static final int NATIVE_BARCODE_SIZE = 120;
+    /**
+     * Imagens mais altas que isso são impressas em faixas: 1024 linhas em
+     * RGB_565 ficam abaixo do limite de 1 MB de uma transação binder.
+     */
+    static final int STREAM_MIN_ROWS = 1024;
+    /** Altura de cada faixa, múltiplo de 8 para o Bayer não emendar. */
+    static final int BAND_ROWS = 256;
+    /**
+     * Pontos de uma linha do {@code goPaper}: a altura da fonte NORMAL. Brancos
+     * menores que isso seguem como imagem.
+     */
+    static final int FEED_LINE_DOTS = 24;
 
-    private AidlPrinterListener mListen = new AidlPrinterListener.Stub() {
-        @Override
-        public void onError(int i) throws RemoteException {
-            Log.d("FLUTTER", "onError: " + i);
-        }
+    // Tipos que o printBarCode do SK210 aceita; os outros são desenhados aqui
+    private static final Map<Symbology, Integer> NATIVE_BARCODES = new EnumMap<>(Symbology.class);
 
-        @Override
-        public void onPrintFinish() throws RemoteException {
-        }
-    };
+    static {
+        NATIVE_BARCODES.put(Symbology.CODE_128, PrinterConstant.BarCodeType.BARCODE_TYPE_CODE128);
+        NATIVE_BARCODES.put(Symbology.EAN_13, PrinterConstant.BarCodeType.BARCODE_TYPE_JAN13);
+        NATIVE_BARCODES.put(Symbology.EAN_8, PrinterConstant.BarCodeType.BARCODE_TYPE_JAN8);
+        NATIVE_BARCODES.put(Symbology.ITF, PrinterConstant.BarCodeType.BARCODE_TYPE_ITF);
+    }
+
+    private Context context;
+    private final DeviceServiceManager deviceService = DeviceServiceManager.getInstance();
+    private final SegmentCache segmentCache;
+    private final TicketRenderer ticketRenderer;
+    private final QrRenderer qrRenderer;
+    private final BarcodeRenderer barcodeRenderer;
+    private PixPayloadBuilder pix;
+    private final PrinterMetrics metrics;
+    private final BitmapPool bitmapPool = new BitmapPool();
+    private final BitmapDecoder bitmapDecoder = new BitmapDecoder(bitmapPool);
 
     public GertecPrinter210(Context context) {
+        this(context, new SegmentCache());
+    }
+
+    public GertecPrinter210(Context context, SegmentCache segmentCache) {
+        this(context, segmentCache, new PrinterMetrics());
+    }
+
+    /**
+     * @param metrics = onde gravar o tempo de cada etapa (decodificação,
+     *                desenho, envio ao serviço e impressão) e os códigos de
+     *                onError
+     */
+    public GertecPrinter210(Context context, SegmentCache segmentCache, PrinterMetrics metrics) {
         this.context = context;
+        this.segmentCache = segmentCache;
+        this.metrics = metrics;
+        this.ticketRenderer = new TicketRenderer(segmentCache);
+        this.qrRenderer = new QrRenderer(segmentCache);
+        this.barcodeRenderer = new BarcodeRenderer(segmentCache, qrRenderer);
         try {
-            printer = DeviceServiceManager.getInstance().getPrintManager(context);
+            deviceService.getPrintManager(context);
         } catch (Exception e) {
             Log.e("GERTEC_SK210", "Erro init: " + e.toString());
         }
     }
 
-    public boolean wrap(int times) throws RemoteException {
-        if (printer == null)
-            return false;
-        printer.goPaper(times);
-        return true;
+    /** Um comando para a impressora AIDL. */
+    private interface PrinterCall<T> {
+        T call(AidlPrinter printer) throws RemoteException, PrinterException, InterruptedException;
     }
 
-    public void printerQRCode(HashMap map) throws RemoteException {
+    /**
+     * Executa o comando na impressora atual. Se o serviço da Topwise caiu, espera
+     * a reconexão e repete uma vez.
+     *
+     * @apiNote = Só {@link DeadObjectException} é repetida: a transação não
+     *          chegou ao serviço, então não há risco de imprimir duas vezes.
+     *
+     * @throws PrinterException = {@code ERROR_NOT_AVAILABLE} se o serviço não
+     *                          volta a tempo; nada foi impresso
+     */
+    private <T> T withPrinter(PrinterCall<T> call)
+            throws RemoteException, PrinterException, InterruptedException {
+        AidlPrinter printer = deviceService.awaitPrinter(context, RECONNECT_WAIT_MS);
         if (printer == null)
-            return;
+            throw new PrinterException(PrinterException.ERROR_NOT_AVAILABLE, "Impressora SK210 indisponível");
+        try {
+            return call.call(printer);
+        } catch (DeadObjectException e) {
+            Log.w("GERTEC_SK210", "Serviço caiu durante o comando, aguardando reconexão");
+            deviceService.reportDead(printer);
+            printer = deviceService.awaitPrinter(context, RECONNECT_WAIT_MS);
+            if (printer == null)
+                throw e;
+            return call.call(printer);
+        }
+    }
+
+    public boolean wrap(final int times) throws RemoteException, PrinterException, InterruptedException {
+        return withPrinter(printer -> {
+            printer.goPaper(times);
+            return true;
+        });
+    }
+
+    /**
+     * Imprime um QR code gerado aqui mesmo, em vez do addRuiQRCode de tamanho
+     * fixo.
+     *
+     * @param map = {textQRCode, size}; size é o lado máximo em pontos
+     */
+    public void printerQRCode(HashMap map) throws RemoteException, PrinterException, InterruptedException {
         String text = (String) map.get("textQRCode");
-        // Tentativa de assinatura mais comum se addRuiQRCode falhar
+        printRaster(qrCode(text, getInt(map.get("size"), QrRenderer.DEFAULT_SCAN_SIZE)));
+    }
+
+    /**
+     * Define o recebedor do PIX usado pela operação "pix" do
+     * {@link #printJob(List)}.
+     */
+    public void setPix(PixPayloadBuilder pix) {
+        this.pix = pix;
+    }
+
+    /**
+     * Imprime o QR do PIX já montado; repetido na gira, sai do cache.
+     *
+     * @param payload = payload BR Code
+     * @param size    = lado máximo em pontos
+     */
+    @Override
+    public void printQrCode(CharSequence payload, int size)
+            throws RemoteException, PrinterException, InterruptedException {
+        printRaster(qrCode(payload, size));
+    }
+
+    private MonoRaster pixCode(Map op) throws PrinterException {
+        if (pix == null) {
+            throw new PrinterException(PrinterException.ERROR_NOT_CONFIGURED, "PIX não configurado (callSetPixConfig)");
+        }
+        long amount = op.get("amount") instanceof Number ? ((Number) op.get("amount")).longValue() : 0;
+        return qrCode(pix.build(amount, (String) op.get("txid")),
+                getInt(op.get("size"), QrRenderer.DEFAULT_SCAN_SIZE));
+    }
+
+    private MonoRaster qrCode(CharSequence text, int size) {
+        long start = System.nanoTime();
         try {
-            printer.addRuiQRCode(text, 240, 240);
-        } catch (Throwable t) {
-            Log.e("GERTEC_SK210", "Erro addRuiQRCode");
+            return qrRenderer.render(text, size);
+        } catch (WriterException e) {
+            throw new IllegalArgumentException("QR Code inválido: " + e.getMessage(), e);
+        } finally {
+            metrics.recordStage(Stage.RENDER, start);
         }
-        printer.printRuiQueue(mListen);
     }
 
-    public void printBarcode(HashMap map) throws RemoteException {
-        if (printer == null)
-            return;
+    /**
+     * Imprime um código de barras pelo printBarCode do SK210 ou, para os tipos
+     * que ele não tem, como imagem.
+     *
+     * @param map = {message, barcodeType, width, height, raster}; barcodeType
+     *            padrão CODE_128. raster true força a imagem, em que width e
+     *            height são pontos; no printBarCode vão direto para o serviço
+     */
+    public void printBarcode(HashMap map) throws RemoteException, PrinterException, InterruptedException {
+        Symbology type = symbology(map);
         String text = (String) map.get("message");
-        printer.printBarCode(120, 120, 0, 73, text, mListen);
+        if (Boolean.TRUE.equals(map.get("raster"))) {
+            printRaster(barcode(type, text, map));
+            return;
+        }
+        printBarcode(type, text, getInt(map.get("width"), 0), getInt(map.get("height"), 0));
     }
 
-    public int cut(int mode) throws RemoteException {
-        if (printer == null)
+    /**
+     * Imprime pelo printBarCode quando o SK210 tem o tipo; senão, como imagem
+     * com width e height em pontos.
+     *
+     * @param width  = largura; 0 usa {@link #NATIVE_BARCODE_SIZE} no
+     *               printBarCode
+     * @param height = altura; 0 usa {@link #NATIVE_BARCODE_SIZE} no
+     *               printBarCode
+     */
+    @Override
+    public void printBarcode(Symbology type, final String text, int width, int height)
+            throws RemoteException, PrinterException, InterruptedException {
+        final Integer nativeType = NATIVE_BARCODES.get(type);
+        if (nativeType == null) {
+            printRaster(barcode(type, text, width, height));
+            return;
+        }
+        final int nativeWidth = width > 0 ? width : NATIVE_BARCODE_SIZE;
+        final int nativeHeight = height > 0 ? height : NATIVE_BARCODE_SIZE;
+        withPrinter(printer -> {
+            printNativeBarcode(printer, nativeType, text, nativeWidth, nativeHeight);
+            return null;
+        });
+    }
+
+    private void printNativeBarcode(AidlPrinter printer, int nativeType, String text, int width, int height)
+            throws RemoteException, PrinterException, InterruptedException {
+        PrintCompletion completion = new PrintCompletion();
+        long start = System.nanoTime();
+        printer.printBarCode(width, height, 0, nativeType, text, completion);
+        metrics.recordStage(Stage.SUBMIT, start);
+        await(completion);
+    }
+
+    private static Symbology symbology(Map map) {
+        return Symbology.fromName((String) map.get("barcodeType"), Symbology.CODE_128);
+    }
+
+    private MonoRaster barcode(Symbology type, String text, Map map) {
+        return barcode(type, text, getInt(map.get("width"), 0), getInt(map.get("height"), 0));
+    }
+
+    private MonoRaster barcode(Symbology type, String text, int width, int height) {
+        long start = System.nanoTime();
+        try {
+            return barcodeRenderer.render(type, text, width, height);
+        } catch (WriterException e) {
+            throw new IllegalArgumentException(type + " inválido: " + e.getMessage(), e);
+        } finally {
+            metrics.recordStage(Stage.RENDER, start);
+        }
+    }
+
+    private MonoRaster ticket(Map fields) throws PrinterException {
+        long start = System.nanoTime();
+        try {
+            return ticketRenderer.render(fields);
+        } finally {
+            metrics.recordStage(Stage.RENDER, start);
+        }
+    }
+
+    /**
+     * Espera o papel sair, gravando o tempo e o código recebido em onError.
+     */
+    private void await(PrintCompletion completion) throws PrinterException, InterruptedException {
+        long start = System.nanoTime();
+        try {
+            completion.await();
+        } catch (PrinterException e) {
+            metrics.increment("onError." + e.getErrorCode());
+            throw e;
+        } finally {
+            metrics.recordStage(Stage.PRINT, start);
+        }
+    }
+
+    /**
+     * Imprime a fila Rui e só retorna quando o papel terminou de sair.
+     *
+     * @throws PrinterException = com o código recebido em onError
+     */
+    private void printRuiQueue(AidlPrinter printer) throws RemoteException, PrinterException, InterruptedException {
+        PrintCompletion completion = new PrintCompletion();
+        long start = System.nanoTime();
+        printer.printRuiQueue(completion);
+        metrics.recordStage(Stage.SUBMIT, start);
+        await(completion);
+    }
+
+    public int cut(final int mode) throws RemoteException, PrinterException, InterruptedException {
+        return withPrinter(printer -> printer
+                .cuttingPaper(mode == 1 ? PrintCuttingMode.CUTTING_MODE_HALT : PrintCuttingMode.CUTTING_MODE_FULL));
+    }
+
+    /** Corte total. */
+    @Override
+    public void cut() throws RemoteException, PrinterException, InterruptedException {
+        cut(0);
+    }
+
+    /** Arredonda para cima em linhas de {@link #FEED_LINE_DOTS} pontos. */
+    @Override
+    public void feed(int dots) throws RemoteException, PrinterException, InterruptedException {
+        if (dots > 0) {
+            wrap((dots + FEED_LINE_DOTS - 1) / FEED_LINE_DOTS);
+        }
+    }
+
+    /** Cada comando do SK210 já espera o papel sair; não há o que descarregar. */
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public PrinterState getState() throws RemoteException, PrinterException, InterruptedException {
+        return PrinterState.fromSk210(getPrinterStatus());
+    }
+
+    /**
+     * @return int = {@code PrinterConstant.PrinterState}, ou -1 sem impressora
+     */
+    public int getPrinterStatus() throws RemoteException, InterruptedException {
+        try {
+            return withPrinter(AidlPrinter::getPrinterState);
+        } catch (PrinterException e) {
             return -1;
-        return printer
-                .cuttingPaper(mode == 1 ? PrintCuttingMode.CUTTING_MODE_HALT : PrintCuttingMode.CUTTING_MODE_FULL);
+        }
     }
 
-    public int getPrinterStatus() throws RemoteException {
+    /**
+     * Lê o estado sem esperar reconexão, para o monitor de status.
+     *
+     * @apiNote = Pode ser chamado fora da thread da impressora: só usa a
+     *          conexão, que é thread-safe.
+     *
+     * @return int = {@code PrinterConstant.PrinterState}, ou -1 sem impressora
+     */
+    public int readPrinterState() throws RemoteException {
+        AidlPrinter printer = deviceService.getPrintManager(context);
         if (printer == null)
             return -1;
         return printer.getPrinterState();
@@ -97,61 +367,487 @@ public class GertecPrinter210 {
         return defaultValue;
     }
 
-    public void printTextCustom(Map map) throws RemoteException {
-        if (map == null || printer == null)
+    public void printTextCustom(Map map) throws RemoteException, PrinterException, InterruptedException {
+        if (map == null)
             return;
         List<Map> list = new ArrayList<>();
         list.add(map);
         printTextListCustom(list);
     }
 
-    public void printTextListCustom(List<Map> list) throws RemoteException {
-        if (list == null || printer == null)
+    /**
+     * @param fontSize = {@code PrinterConstant.FontSize}
+     */
+    @Override
+    public void printText(String text, int fontSize, boolean bold)
+            throws RemoteException, PrinterException, InterruptedException {
+        final List<PrintItemObj> items = new ArrayList<>(1);
+        items.add(new PrintItemObj(text != null ? text : " ", fontSize, bold));
+        withPrinter(printer -> {
+            long start = System.nanoTime();
+            printer.addRuiText(items);
+            metrics.recordStage(Stage.SUBMIT, start);
+            printRuiQueue(printer);
+            return null;
+        });
+    }
+
+    public void printTextListCustom(List<Map> list) throws RemoteException, PrinterException, InterruptedException {
+        if (list == null)
             return;
-        try {
-            List<PrintItemObj> items = new ArrayList<>();
-            for (Map map : list) {
-                String text = (String) map.get("message");
-                if (text == null)
-                    text = " ";
-                int fontSize = getInt(map.get("fontSize"), PrinterConstant.FontSize.NORMAL);
-                // Usando construtor simples para evitar problemas com enums de alinhamento
-                items.add(new PrintItemObj(text, fontSize));
-            }
+        final List<PrintItemObj> items = new ArrayList<>();
+        for (Map map : list) {
+            items.add(textItem(map));
+        }
+        withPrinter(printer -> {
+            long start = System.nanoTime();
             // addRuiText recebe a lista no SK210
             printer.addRuiText(items);
-            printer.printRuiQueue(mListen);
-        } catch (Exception e) {
-            Log.e("GERTEC_SK210", "Erro printTextList: " + e.toString());
+            metrics.recordStage(Stage.SUBMIT, start);
+            printRuiQueue(printer);
+            return null;
+        });
+    }
+
+    private PrintItemObj textItem(Map map) {
+        String text = (String) map.get("message");
+        if (text == null)
+            text = " ";
+        int fontSize = getInt(map.get("fontSize"), PrinterConstant.FontSize.NORMAL);
+        // Usando construtor simples para evitar problemas com enums de alinhamento
+        return new PrintItemObj(text, fontSize);
+    }
+
+    public void printBitmapCustom(final Bitmap bitmap) throws RemoteException, PrinterException, InterruptedException {
+        if (bitmap == null)
+            return;
+        withPrinter(printer -> {
+            Log.i("GERTEC_SK210", "Motor Gráfico (printBmp 5-params)...");
+            PrintCompletion completion = new PrintCompletion();
+
+            // CORREÇÃO: Usando 5 parâmetros identificados no log (int, int, int, Bitmap,
+            // Listener)
+            // Geralmente: (leftOffset, width, height, bitmap, listener)
+            long start = System.nanoTime();
+            printer.printBmp(0, bitmap.getWidth(), bitmap.getHeight(), bitmap, completion);
+            metrics.recordStage(Stage.SUBMIT, start);
+            metrics.increment("bytes.submitted", bitmap.getByteCount());
+
+            await(completion);
+            return null;
+        });
+    }
+
+    /**
+     * Imprime uma imagem já empacotada em 1 bit por ponto.
+     *
+     * @param width = largura em pontos (até {@link MonoRaster#MAX_WIDTH})
+     * @param data  = linhas empacotadas, 8 pontos por byte
+     */
+    public void printRaster(int width, byte[] data) throws RemoteException, PrinterException, InterruptedException {
+        metrics.increment("bytes.received", data.length);
+        printRaster(MonoRaster.wrap(width, data));
+    }
+
+    /**
+     * Imprime só os trechos com tinta; os brancos de pelo menos
+     * {@link #FEED_LINE_DOTS} linhas viram {@code goPaper}.
+     */
+    @Override
+    public void printRaster(MonoRaster raster) throws RemoteException, PrinterException, InterruptedException {
+        List<BlankRows.Run> runs = BlankRows.split(raster, FEED_LINE_DOTS);
+        if (runs.size() == 1 && !runs.get(0).blank) {
+            printContent(raster);
+            return;
+        }
+        for (BlankRows.Run run : runs) {
+            if (run.blank) {
+                wrap(run.feedLines(FEED_LINE_DOTS));
+            } else {
+                printContent(raster.slice(run.top, run.rows));
+            }
         }
     }
 
-    public void printBitmapCustom(Bitmap bitmap) throws RemoteException {
-        if (bitmap == null || printer == null)
+    private void printContent(MonoRaster raster) throws RemoteException, PrinterException, InterruptedException {
+        if (raster.getHeight() > STREAM_MIN_ROWS) {
+            printBands(new RasterBands(raster));
             return;
+        }
+        Bitmap bitmap = MonoBitmaps.toBitmap(raster, bitmapPool);
         try {
-            Log.i("GERTEC_SK210", "Motor Gráfico (printBmp 5-params)...");
-            final CountDownLatch latch = new CountDownLatch(1);
-            AidlPrinterListener listener = new AidlPrinterListener.Stub() {
-                @Override
-                public void onError(int i) throws RemoteException {
-                    latch.countDown();
+            printBitmapCustom(bitmap);
+        } finally {
+            bitmapPool.release(bitmap);
+        }
+    }
+
+    /**
+     * Decodifica uma imagem (PNG/JPEG) na largura da cabeça e imprime.
+     *
+     * @param bytes  = PNG ou JPEG
+     * @param dither = "floyd_steinberg" (padrão), "ordered", "threshold" ou
+     *               "none" para deixar o limiar com o firmware
+     *
+     * @apiNote = O bitmap decodificado volta para o pool assim que o
+     *          {@code printBmp} confirma o fim da impressão. Imagens com mais
+     *          de {@link #STREAM_MIN_ROWS} linhas são decodificadas e
+     *          impressas faixa a faixa.
+     */
+    public void printImage(byte[] bytes, String dither)
+            throws RemoteException, PrinterException, InterruptedException {
+        metrics.increment("bytes.received", bytes != null ? bytes.length : 0);
+        // Só o cabeçalho: a maioria das senhas cabe numa decodificação só
+        if (!"none".equals(dither) && bitmapDecoder.scaledHeight(bytes) > STREAM_MIN_ROWS) {
+            ImageBands bands = imageBands(bytes, dither);
+            if (bands != null) {
+                printBands(bands);
+                return;
+            }
+        }
+        Bitmap bitmap = decodeImage(bytes, dither);
+        try {
+            printBitmapCustom(bitmap);
+        } finally {
+            bitmapPool.release(bitmap);
+        }
+    }
+
+    /**
+     * @return ImageBands = leitor em faixas, ou null se o
+     *         {@link android.graphics.BitmapRegionDecoder} não aceita o
+     *         formato e a imagem tem que ser decodificada inteira
+     */
+    private ImageBands imageBands(byte[] bytes, String dither) {
+        try {
+            return new ImageBands(bytes, Dither.Mode.fromName(dither, Dither.Mode.FLOYD_STEINBERG));
+        } catch (IllegalArgumentException e) {
+            Log.d("GERTEC_SK210", "Imagem sem leitura em faixas: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Imprime a imagem em faixas de {@link #BAND_ROWS} linhas: a faixa seguinte
+     * é lida e convertida enquanto a cabeça imprime a atual. A memória fica
+     * limitada a duas faixas, qualquer que seja o tamanho da senha.
+     *
+     * @throws PrinterException = se o serviço cai depois da primeira faixa; o
+     *                          resto não é repetido para não imprimir em
+     *                          dobro
+     */
+    private void printBands(final BandSource source) throws RemoteException, PrinterException, InterruptedException {
+        final boolean[] printed = new boolean[1];
+        try {
+            withPrinter(printer -> {
+                try {
+                    streamBands(printer, source, printed);
+                } catch (DeadObjectException e) {
+                    if (printed[0]) {
+                        throw new PrinterException(PrinterException.ERROR_NOT_AVAILABLE,
+                                "Serviço caiu no meio da imagem");
+                    }
+                    throw e;
                 }
+                return null;
+            });
+        } finally {
+            source.close();
+        }
+    }
 
-                @Override
-                public void onPrintFinish() throws RemoteException {
-                    latch.countDown();
+    private void streamBands(AidlPrinter printer, BandSource source, boolean[] printed)
+            throws RemoteException, PrinterException, InterruptedException {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        MonoRaster band = MonoRaster.create(width, BAND_ROWS);
+        int[] row = new int[width];
+        // Enquanto uma faixa imprime, a outra é preenchida
+        Bitmap[] buffers = new Bitmap[2];
+        Bitmap tail = null;
+        PrintCompletion pending = null;
+        try {
+            for (int top = 0, i = 0; top < height; top += BAND_ROWS, i ^= 1) {
+                int rows = Math.min(BAND_ROWS, height - top);
+                long start = System.nanoTime();
+                source.read(top, rows, band);
+                metrics.recordStage(Stage.DECODE, start);
+                Bitmap bitmap;
+                if (rows == BAND_ROWS) {
+                    if (buffers[i] == null) {
+                        buffers[i] = bitmapPool.acquire(width, BAND_ROWS, Bitmap.Config.RGB_565);
+                    }
+                    bitmap = buffers[i];
+                } else {
+                    tail = bitmapPool.acquire(width, rows, Bitmap.Config.RGB_565);
+                    bitmap = tail;
                 }
-            };
+                MonoBitmaps.fill(band, rows, bitmap, row);
+                if (pending != null) {
+                    await(pending);
+                }
+                pending = new PrintCompletion();
+                start = System.nanoTime();
+                printer.printBmp(0, width, rows, bitmap, pending);
+                metrics.recordStage(Stage.SUBMIT, start);
+                metrics.increment("bytes.submitted", (long) bitmap.getRowBytes() * rows);
+                printed[0] = true;
+            }
+            if (pending != null) {
+                await(pending);
+            }
+        } finally {
+            bitmapPool.release(buffers[0]);
+            bitmapPool.release(buffers[1]);
+            bitmapPool.release(tail);
+        }
+    }
 
-            // CORREÇÃO: Usando 5 parâmetros identificados no log (int, int, int, Bitmap,
-            // Listener)
-            // Geralmente: (leftOffset, width, height, bitmap, listener)
-            printer.printBmp(0, bitmap.getWidth(), bitmap.getHeight(), bitmap, listener);
+    /**
+     * Decodifica e, salvo com "none", já entrega o bitmap em preto e branco,
+     * para o firmware não aplicar o próprio limiar.
+     */
+    private Bitmap decodeImage(byte[] bytes, String dither) {
+        long start = System.nanoTime();
+        try {
+            Bitmap decoded = bitmapDecoder.decode(bytes);
+            if ("none".equals(dither)) {
+                return decoded;
+            }
+            Dither.Mode mode = Dither.Mode.fromName(dither, Dither.Mode.FLOYD_STEINBERG);
+            int width = decoded.getWidth();
+            int height = decoded.getHeight();
+            int[] pixels = new int[width * height];
+            decoded.getPixels(pixels, 0, width, 0, 0, width, height);
+            bitmapPool.release(decoded);
+            return MonoBitmaps.toBitmap(Dither.dither(pixels, width, height, mode), bitmapPool);
+        } finally {
+            metrics.recordStage(Stage.DECODE, start);
+        }
+    }
 
-            latch.await(20, TimeUnit.SECONDS);
-        } catch (Exception e) {
-            Log.e("GERTEC_SK210", "Erro Bitmap: " + e.toString());
+    /**
+     * Guarda o layout da senha; as próximas senhas só enviam os campos.
+     *
+     * @param map = layout no formato de {@link TicketTemplate#fromMap(Map)}
+     */
+    public void setTicketTemplate(Map map) {
+        ticketRenderer.setTemplate(TicketTemplate.fromMap(map));
+    }
+
+    /**
+     * Desenha a senha no bitmap nativo e imprime, sem PNG no caminho.
+     *
+     * @param fields = terreiro, gira, entity, medium, code e date
+     */
+    public void printTicket(Map fields) throws RemoteException, PrinterException, InterruptedException {
+        printRaster(ticket(fields));
+    }
+
+    /**
+     * Monta uma impressão a partir de faixas, reaproveitando as que já estão no
+     * cache.
+     *
+     * @param segments = lista na ordem de impressão; cada item é {hash} de uma
+     *                 faixa já enviada ou {width, data} de uma faixa nova em 1
+     *                 bit por ponto
+     *
+     * @return List = hash de cada faixa, para ser usado nas próximas senhas
+     */
+    public List<Long> printSegments(List<Map> segments) throws RemoteException, PrinterException, InterruptedException {
+        List<Long> keys = new ArrayList<>(segments.size());
+        List<MonoRaster> strips = new ArrayList<>(segments.size());
+        int width = 0;
+        int height = 0;
+        for (Map segment : segments) {
+            MonoRaster strip;
+            long key;
+            if (segment.get("data") != null) {
+                byte[] data = (byte[]) segment.get("data");
+                metrics.increment("bytes.received", data.length);
+                strip = MonoRaster.wrap(getInt(segment.get("width"), 0), data);
+                key = ContentHash.combine(ContentHash.of(data), strip.getWidth());
+                segmentCache.put(key, strip);
+            } else {
+                key = ((Number) segment.get("hash")).longValue();
+                strip = segmentCache.get(key);
+                if (strip == null) {
+                    throw new IllegalArgumentException("Faixa não está no cache: " + key);
+                }
+            }
+            keys.add(key);
+            strips.add(strip);
+            width = Math.max(width, strip.getWidth());
+            height += strip.getHeight();
+        }
+        if (strips.isEmpty())
+            return keys;
+
+        MonoRaster ticket = MonoRaster.create(width, height);
+        int y = 0;
+        for (MonoRaster strip : strips) {
+            ticket.copyFrom(strip, y);
+            y += strip.getHeight();
+        }
+        printRaster(ticket);
+        return keys;
+    }
+
+    /**
+     * Executa uma senha inteira numa única chamada do canal.
+     *
+     * Texto, QR Code, códigos de barras e imagens entram na fila Rui e saem num
+     * único printRuiQueue. A fila só é descarregada antes dos comandos que não
+     * passam por ela (avanço, corte e código de barras com raster false) e no
+     * fim.
+     *
+     * @param ops = operações em ordem; cada item tem "type" e os campos dele:
+     *            text {message, fontSize}, qrcode {message, size}, pix
+     *            {amount, txid, size}, barcode {message, barcodeType, width,
+     *            height, raster}, bitmap {bitmap, dither}, raster {width,
+     *            data}, ticket {fields}, feed {lines}, cut {mode}
+     *
+     * @throws PrinterException = se não há impressora, ou com o código do
+     *                          primeiro erro; as operações seguintes não rodam
+     *
+     * @return Map = {operations, flushes, cut}
+     */
+    public Map<String, Object> printJob(final List<Map> ops)
+            throws RemoteException, PrinterException, InterruptedException {
+        return withPrinter(printer -> {
+            RuiQueue queue = new RuiQueue(printer);
+            try {
+                return runJob(queue, ops);
+            } catch (DeadObjectException e) {
+                if (queue.printed) {
+                    // Parte da senha já saiu; repetir imprimiria de novo
+                    throw new PrinterException(PrinterException.ERROR_NOT_AVAILABLE,
+                            "Serviço caiu no meio do trabalho");
+                }
+                throw e;
+            } finally {
+                queue.release();
+            }
+        });
+    }
+
+    private Map<String, Object> runJob(RuiQueue queue, List<Map> ops)
+            throws RemoteException, PrinterException, InterruptedException {
+        AidlPrinter printer = queue.printer;
+        int cut = -1;
+        for (Map op : ops) {
+            String type = (String) op.get("type");
+            if ("text".equals(type)) {
+                queue.addText(textItem(op));
+            } else if ("qrcode".equals(type)) {
+                int size = getInt(op.get("size"), QrRenderer.DEFAULT_SCAN_SIZE);
+                queue.addImage(MonoBitmaps.toBitmap(qrCode((String) op.get("message"), size), bitmapPool));
+            } else if ("pix".equals(type)) {
+                queue.addImage(MonoBitmaps.toBitmap(pixCode(op), bitmapPool));
+            } else if ("bitmap".equals(type)) {
+                byte[] bytes = (byte[]) op.get("bitmap");
+                metrics.increment("bytes.received", bytes.length);
+                queue.addImage(decodeImage(bytes, (String) op.get("dither")));
+            } else if ("raster".equals(type)) {
+                byte[] data = (byte[]) op.get("data");
+                metrics.increment("bytes.received", data.length);
+                MonoRaster raster = MonoRaster.wrap(getInt(op.get("width"), 0), data);
+                queue.addImage(MonoBitmaps.toBitmap(raster, bitmapPool));
+            } else if ("ticket".equals(type)) {
+                queue.addImage(MonoBitmaps.toBitmap(ticket((Map) op.get("fields")), bitmapPool));
+            } else if ("barcode".equals(type)) {
+                Symbology symbology = symbology(op);
+                Integer nativeType = NATIVE_BARCODES.get(symbology);
+                if (nativeType == null || !Boolean.FALSE.equals(op.get("raster"))) {
+                    // Como imagem o código fica na mesma fila, sem descarregar
+                    queue.addImage(MonoBitmaps.toBitmap(barcode(symbology, (String) op.get("message"), op),
+                            bitmapPool));
+                } else {
+                    queue.flush();
+                    queue.printed = true;
+                    printNativeBarcode(printer, nativeType, (String) op.get("message"),
+                            getInt(op.get("width"), NATIVE_BARCODE_SIZE), getInt(op.get("height"), NATIVE_BARCODE_SIZE));
+                }
+            } else if ("feed".equals(type)) {
+                queue.flush();
+                printer.goPaper(getInt(op.get("lines"), 1));
+                queue.printed = true;
+            } else if ("cut".equals(type)) {
+                queue.flush();
+                cut = printer.cuttingPaper(getInt(op.get("mode"), 0) == 1 ? PrintCuttingMode.CUTTING_MODE_HALT
+                        : PrintCuttingMode.CUTTING_MODE_FULL);
+                queue.printed = true;
+            } else {
+                throw new IllegalArgumentException("Operação desconhecida: " + type);
+            }
+        }
+        queue.flush();
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("operations", ops.size());
+        result.put("flushes", queue.flushes);
+        result.put("cut", cut);
+        return result;
+    }
+
+    /**
+     * Fila Rui de um trabalho. As linhas de texto seguidas vão num único
+     * addRuiText; os bitmaps ficam vivos até o printRuiQueue terminar.
+     */
+    private final class RuiQueue {
+        final AidlPrinter printer;
+        final List<PrintItemObj> texts = new ArrayList<>();
+        final List<Bitmap> bitmaps = new ArrayList<>();
+        int queued;
+        int flushes;
+        /** Algo já foi para o papel. */
+        boolean printed;
+
+        RuiQueue(AidlPrinter printer) {
+            this.printer = printer;
+        }
+
+        void addText(PrintItemObj item) {
+            texts.add(item);
+            queued++;
+        }
+
+        void addImage(Bitmap bitmap) throws RemoteException {
+            bitmaps.add(bitmap);
+            commitText();
+            long start = System.nanoTime();
+            printer.addRuiImage(bitmap, 0);
+            metrics.recordStage(Stage.SUBMIT, start);
+            metrics.increment("bytes.submitted", bitmap.getByteCount());
+            queued++;
+        }
+
+        /** Manda o texto acumulado antes do próximo item, mantendo a ordem. */
+        private void commitText() throws RemoteException {
+            if (!texts.isEmpty()) {
+                long start = System.nanoTime();
+                printer.addRuiText(texts);
+                metrics.recordStage(Stage.SUBMIT, start);
+                texts.clear();
+            }
+        }
+
+        void flush() throws RemoteException, PrinterException, InterruptedException {
+            commitText();
+            if (queued == 0)
+                return;
+            queued = 0;
+            flushes++;
+            printed = true;
+            printRuiQueue(printer);
+            release();
+        }
+
+        void release() {
+            for (Bitmap bitmap : bitmaps) {
+                bitmapPool.release(bitmap);
+            }
+            bitmaps.clear();
         }
     }
 }
@@ -0,0 +1,138 @@
+package com.qz.gertec_pos_printer.sku210;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+
+import com.qz.gertec_pos_printer.raster.AreaAverageScaler;
+import com.qz.gertec_pos_printer.raster.BandSource;
+import com.qz.gertec_pos_printer.raster.Dither;
+import com.qz.gertec_pos_printer.raster.MonoRaster;
+
+import java.io.IOException;
+
+/**
+ * Imagem (PNG/JPEG) decodificada faixa a faixa com
+ * {@link BitmapRegionDecoder}, já reduzida à largura da cabeça e convertida
+ * para 1 bit.
+ *
+ * A redução segue o {@link BitmapDecoder}: {@code inSampleSize} em potência
+ * de 2 e média de área até {@link MonoRaster#MAX_WIDTH}. Só os pixels de uma
+ * faixa ficam na memória; a difusão de erro continua de uma faixa para a
+ * outra.
+ */
+public final class ImageBands implements BandSource {
+    private final BitmapRegionDecoder decoder;
+    private final BitmapFactory.Options options = new BitmapFactory.Options();
+    private final Dither.Mode mode;
+    private final Dither.Diffuser diffuser;
+    private final Rect region = new Rect();
+    // Tamanho depois do inSampleSize e tamanho final
+    private final int sampledWidth;
+    private final int sampledHeight;
+    private final int width;
+    private final int height;
+    private int[] src = new int[0];
+    private int[] dst = new int[0];
+
+    /**
+     * @throws IllegalArgumentException = se a imagem é inválida
+     */
+    public ImageBands(byte[] bytes, Dither.Mode mode) {
+        if (bytes == null || bytes.length == 0) {
+            throw new IllegalArgumentException("Imagem vazia");
+        }
+        try {
+            decoder = BitmapRegionDecoder.newInstance(bytes, 0, bytes.length, false);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Imagem inválida", e);
+        }
+        int srcWidth = decoder.getWidth();
+        int sample = 1;
+        while (srcWidth / (sample * 2) >= MonoRaster.MAX_WIDTH) {
+            sample *= 2;
+        }
+        options.inSampleSize = sample;
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        sampledWidth = (srcWidth + sample - 1) / sample;
+        sampledHeight = (decoder.getHeight() + sample - 1) / sample;
+        width = Math.min(sampledWidth, MonoRaster.MAX_WIDTH);
+        height = Math.max(1, (int) ((long) sampledHeight * width / sampledWidth));
+        this.mode = mode;
+        this.diffuser = mode == Dither.Mode.FLOYD_STEINBERG ? new Dither.Diffuser(width) : null;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void read(int top, int rows, MonoRaster out) {
+        if (top == 0 && diffuser != null) {
+            diffuser.reset();
+        }
+        // Linhas da imagem amostrada que cobrem as linhas [top, top + rows)
+        int sy0 = (int) ((long) top * sampledHeight / height);
+        int sy1 = (int) Math.min(sampledHeight,
+                ((long) (top + rows) * sampledHeight + height - 1) / height);
+        int sample = options.inSampleSize;
+        region.set(0, sy0 * sample, decoder.getWidth(), Math.min(decoder.getHeight(), sy1 * sample));
+        Bitmap band = decoder.decodeRegion(region, options);
+        if (band == null) {
+            throw new IllegalArgumentException("Falha ao decodificar imagem");
+        }
+        int bw = band.getWidth();
+        int bh = band.getHeight();
+        int[] pixels = ensure(bw * bh, true);
+        band.getPixels(pixels, 0, bw, 0, 0, bw, bh);
+        band.recycle();
+
+        if (bw != width || bh != rows) {
+            int[] scaled = ensure(width * rows, false);
+            if (bw >= width && bh >= rows) {
+                AreaAverageScaler.scale(pixels, bw, bh, scaled, width, rows);
+            } else {
+                // O decodificador arredonda o inSampleSize para baixo em alguns
+                // formatos: falta no máximo um pixel, o vizinho mais próximo basta
+                for (int y = 0; y < rows; y++) {
+                    int from = (y * bh / rows) * bw;
+                    for (int x = 0; x < width; x++) {
+                        scaled[y * width + x] = pixels[from + x * bw / width];
+                    }
+                }
+            }
+            pixels = scaled;
+        }
+        if (diffuser != null) {
+            diffuser.ditherRows(pixels, 0, rows, out, 0);
+        } else {
+            Dither.ditherRows(pixels, width, 0, rows, mode, out, 0);
+        }
+    }
+
+    // Buffers da faixa, reaproveitados entre faixas
+    private int[] ensure(int size, boolean source) {
+        int[] buffer = source ? src : dst;
+        if (buffer.length < size) {
+            buffer = new int[size];
+            if (source) {
+                src = buffer;
+            } else {
+                dst = buffer;
+            }
+        }
+        return buffer;
+    }
+
+    @Override
+    public void close() {
+        decoder.recycle();
+    }
+}
@@ -0,0 +1,48 @@
+package com.qz.gertec_pos_printer.sku210;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import com.qz.gertec_pos_printer.raster.MonoRaster;
+
+/** Converte {@link MonoRaster} no {@link Bitmap} que o {@code printBmp} aceita. */
+final class MonoBitmaps {
+    /** Luminância abaixo da qual o ponto sai preto. */
+    static final int THRESHOLD = 128;
+
+    private MonoBitmaps() {
+    }
+
+    /**
+     * Expande a imagem de 1 bit direto nos pixels do bitmap, linha a linha, sem
+     * passar por PNG. O bitmap vem do {@code pool} e deve voltar para ele.
+     */
+    static Bitmap toBitmap(MonoRaster raster, BitmapPool pool) {
+        Bitmap bitmap = pool.acquire(raster.getWidth(), raster.getHeight(), Bitmap.Config.RGB_565);
+        fill(raster, raster.getHeight(), bitmap, new int[raster.getWidth()]);
+        return bitmap;
+    }
+
+    /**
+     * Expande as primeiras {@code rows} linhas de {@code raster} num bitmap que
+     * já existe, usando {@code row} como buffer.
+     */
+    static void fill(MonoRaster raster, int rows, Bitmap bitmap, int[] row) {
+        for (int y = 0; y < rows; y++) {
+            raster.unpackRow(y, row, Color.BLACK, Color.WHITE);
+            bitmap.setPixels(row, 0, raster.getWidth(), 0, y, raster.getWidth(), 1);
+        }
+    }
+
+    /**
+     * Empacota as linhas {@code [top, top + rows)} do bitmap em {@code dst} a
+     * partir da linha {@code dstY}, usando {@code row} como buffer.
+     */
+    static void pack(Bitmap bitmap, int top, int rows, MonoRaster dst, int dstY, int[] row) {
+        int width = Math.min(bitmap.getWidth(), dst.getWidth());
+        for (int y = 0; y < rows; y++) {
+            bitmap.getPixels(row, 0, width, 0, top + y, width, 1);
+            dst.packRow(dstY + y, row, THRESHOLD);
+        }
+    }
+}
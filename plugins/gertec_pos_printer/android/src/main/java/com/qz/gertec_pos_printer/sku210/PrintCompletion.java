@@ -0,0 +1,53 @@
+package com.qz.gertec_pos_printer.sku210;
+
+import android.os.RemoteException;
+
+import com.qz.gertec_pos_printer.PrinterException;
+import com.topwise.cloudpos.aidl.printer.AidlPrinterListener;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listener que aguarda o fim real de uma impressão no SK210.
+ *
+ * O serviço da Topwise devolve o controle antes do papel sair; só o
+ * {@code onPrintFinish} / {@code onError} indicam que a fila foi impressa.
+ */
+class PrintCompletion extends AidlPrinterListener.Stub {
+    static final int TIMEOUT_SECONDS = 20;
+
+    private final CountDownLatch latch = new CountDownLatch(1);
+    // onError é falha mesmo com código 0, que alguns firmwares mandam
+    private volatile boolean failed;
+    private volatile int errorCode;
+
+    @Override
+    public void onError(int i) throws RemoteException {
+        errorCode = i;
+        failed = true;
+        latch.countDown();
+    }
+
+    @Override
+    public void onPrintFinish() throws RemoteException {
+        latch.countDown();
+    }
+
+    /**
+     * Bloqueia até a impressora terminar.
+     *
+     * @throws PrinterException = com o código recebido em onError
+     *                          ({@link PrinterException#ERROR_UNKNOWN} se veio
+     *                          0), ou {@link PrinterException#ERROR_TIMEOUT}
+     */
+    void await() throws PrinterException, InterruptedException {
+        if (!latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new PrinterException(PrinterException.ERROR_TIMEOUT, "Impressora não respondeu");
+        }
+        if (failed) {
+            int code = errorCode != 0 ? errorCode : PrinterException.ERROR_UNKNOWN;
+            throw new PrinterException(code, "Erro da impressora: " + errorCode);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.qz.gertec_pos_printer.sku210;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.SparseArray;
+
+import com.qz.gertec_pos_printer.PrinterException;
+import com.qz.gertec_pos_printer.raster.ContentHash;
+import com.qz.gertec_pos_printer.raster.MonoRaster;
+import com.qz.gertec_pos_printer.raster.SegmentCache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Desenha senhas direto na largura da cabeça de impressão.
+ *
+ * O template é dividido em faixas: sequências de linhas fixas (cabeçalho,
+ * rodapé) e sequências de linhas com campos. As faixas fixas são desenhadas
+ * uma vez e guardadas já em 1 bit no {@link SegmentCache}; por senha só as
+ * faixas com campos são desenhadas, cada uma no seu bitmap reaproveitado, e
+ * tudo é montado em um único {@link MonoRaster}. Um texto que não cabe na
+ * bobina quebra em mais linhas e a senha cresce junto. Deve ser usado somente
+ * pela thread da impressora.
+ */
+public class TicketRenderer {
+    /** Menor compressão horizontal da última linha quando o texto passa de {@code maxLines}. */
+    static final float MIN_TEXT_SCALE = 0.75f;
+
+    private final SegmentCache cache;
+    private TicketTemplate template;
+    private final List<Segment> segments = new ArrayList<>();
+    // Uma imagem por altura de senha: só muda quando um texto quebra
+    private final SparseArray<MonoRaster> outputs = new SparseArray<>();
+    // Texto das linhas com campos já quebrado, em ordem, e quantas partes cada uma tem
+    private final List<String> pieces = new ArrayList<>();
+    private int[] counts;
+    private int[] row;
+    private int available;
+    private final String[] values = new String[TicketTemplate.FIELDS.length];
+    private final StringBuilder sb = new StringBuilder(64);
+
+    public TicketRenderer(SegmentCache cache) {
+        this.cache = cache;
+    }
+
+    public void setTemplate(TicketTemplate template) {
+        releaseSegments();
+        this.template = template;
+        available = template.width - 2 * template.paddingSide;
+
+        Segment current = null;
+        for (TicketTemplate.Line line : template.lines) {
+            if (current == null || current.isStatic != line.isStatic) {
+                current = new Segment(line.isStatic);
+                segments.add(current);
+            }
+            current.lines.add(line);
+        }
+        Arrays.fill(values, null);
+        for (Segment segment : segments) {
+            if (segment.isStatic) {
+                long key = ContentHash.combine(template.width, template.paddingSide);
+                for (TicketTemplate.Line line : segment.lines) {
+                    key = ContentHash.combine(key, line.key);
+                    // Sem campos: a quebra já é conhecida
+                    pieces.clear();
+                    segment.height += wrap(line, line.format(values, sb), pieces) * line.height + line.spacingAfter;
+                }
+                segment.key = key;
+            } else {
+                int maxHeight = 0;
+                for (TicketTemplate.Line line : segment.lines) {
+                    maxHeight += line.maxLines * line.height + line.spacingAfter;
+                }
+                // RGB_565: metade da memória do ARGB_8888 e sem canal alfa
+                segment.strip = Bitmap.createBitmap(template.width, maxHeight, Bitmap.Config.RGB_565);
+                segment.canvas = new Canvas(segment.strip);
+            }
+        }
+        pieces.clear();
+        counts = new int[template.lines.size()];
+        row = new int[template.width];
+    }
+
+    public boolean hasTemplate() {
+        return template != null;
+    }
+
+    /**
+     * Monta uma senha com os valores recebidos.
+     *
+     * @param fields = mapa com os campos de {@link TicketTemplate#FIELDS}
+     *
+     * @return MonoRaster = imagem interna; válida até a próxima chamada
+     *
+     * @throws PrinterException = {@link PrinterException#ERROR_NOT_CONFIGURED}
+     *                          antes do {@link #setTemplate}
+     */
+    public MonoRaster render(Map fields) throws PrinterException {
+        if (template == null) {
+            throw new PrinterException(PrinterException.ERROR_NOT_CONFIGURED, "Template de senha não configurado");
+        }
+        for (int i = 0; i < values.length; i++) {
+            Object value = fields != null ? fields.get(TicketTemplate.FIELDS[i]) : null;
+            values[i] = value != null ? value.toString() : null;
+        }
+
+        // Quebra os textos antes: a altura da senha depende deles
+        pieces.clear();
+        int height = template.paddingTop + template.paddingBottom;
+        int index = 0;
+        for (Segment segment : segments) {
+            if (segment.isStatic) {
+                height += segment.height;
+                continue;
+            }
+            for (TicketTemplate.Line line : segment.lines) {
+                counts[index] = wrap(line, line.format(values, sb), pieces);
+                height += counts[index++] * line.height + line.spacingAfter;
+            }
+        }
+        MonoRaster output = outputs.get(height);
+        if (output == null) {
+            output = MonoRaster.create(template.width, height);
+            outputs.put(height, output);
+        }
+
+        int y = template.paddingTop;
+        int next = 0;
+        index = 0;
+        for (Segment segment : segments) {
+            if (segment.isStatic) {
+                MonoRaster strip = cache.get(segment.key);
+                if (strip == null) {
+                    strip = renderStatic(segment);
+                    cache.put(segment.key, strip);
+                }
+                output.copyFrom(strip, y);
+                y += segment.height;
+            } else {
+                segment.strip.eraseColor(Color.WHITE);
+                int used = 0;
+                for (TicketTemplate.Line line : segment.lines) {
+                    int count = counts[index++];
+                    used = drawLine(segment.canvas, line, pieces, next, count, used);
+                    next += count;
+                }
+                MonoBitmaps.pack(segment.strip, 0, used, output, y, row);
+                y += used;
+            }
+        }
+        return output;
+    }
+
+    private MonoRaster renderStatic(Segment segment) {
+        Bitmap strip = Bitmap.createBitmap(template.width, segment.height, Bitmap.Config.RGB_565);
+        try {
+            strip.eraseColor(Color.WHITE);
+            Canvas canvas = new Canvas(strip);
+            // Pode rodar no meio do render, com as partes das linhas com campos em pieces
+            List<String> own = new ArrayList<>();
+            int used = 0;
+            for (TicketTemplate.Line line : segment.lines) {
+                own.clear();
+                int count = wrap(line, line.format(values, sb), own);
+                used = drawLine(canvas, line, own, 0, count, used);
+            }
+            MonoRaster raster = MonoRaster.create(template.width, segment.height);
+            MonoBitmaps.pack(strip, 0, segment.height, raster, 0, row);
+            return raster;
+        } finally {
+            strip.recycle();
+        }
+    }
+
+    /**
+     * Quebra o texto entre palavras na largura útil, em até
+     * {@code line.maxLines} partes acrescentadas em {@code out}. Uma palavra
+     * maior que a bobina é cortada onde couber.
+     *
+     * @return int = quantidade de partes
+     */
+    private int wrap(TicketTemplate.Line line, String text, List<String> out) {
+        Paint paint = line.paint;
+        paint.setTextScaleX(1f);
+        if (paint.measureText(text) <= available) {
+            // O caso comum: uma linha, sem cópia
+            out.add(text);
+            return 1;
+        }
+        int length = text.length();
+        int start = 0;
+        int count = 0;
+        while (count < line.maxLines - 1 && start < length) {
+            int end = start + Math.max(1, paint.breakText(text, start, length, true, available, null));
+            if (end >= length) {
+                break;
+            }
+            int space = text.lastIndexOf(' ', end);
+            if (space > start) {
+                end = space;
+            }
+            out.add(text.substring(start, end));
+            count++;
+            start = end;
+            while (start < length && text.charAt(start) == ' ') {
+                start++;
+            }
+        }
+        if (start < length || count == 0) {
+            out.add(text.substring(start));
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Desenha {@code count} partes de {@code parts}, a partir de
+     * {@code first}, na altura {@code y} do bitmap.
+     *
+     * @return int = altura logo abaixo da linha, com o espaçamento
+     */
+    private int drawLine(Canvas canvas, TicketTemplate.Line line, List<String> parts, int first, int count, int y) {
+        Paint paint = line.paint;
+        float x = xFor(paint.getTextAlign());
+        for (int i = first; i < first + count; i++) {
+            String text = parts.get(i);
+            float measured = paint.measureText(text);
+            // Só a última parte pode sobrar: comprime até MIN_TEXT_SCALE e o resto fica de fora
+            paint.setTextScaleX(measured > available ? Math.max(MIN_TEXT_SCALE, available / measured) : 1f);
+            canvas.drawText(text, x, y + line.baseline, paint);
+            y += line.height;
+        }
+        paint.setTextScaleX(1f);
+        return y + line.spacingAfter;
+    }
+
+    private float xFor(Paint.Align align) {
+        switch (align) {
+            case LEFT:
+                return template.paddingSide;
+            case RIGHT:
+                return template.width - template.paddingSide;
+            default:
+                return template.width / 2f;
+        }
+    }
+
+    private void releaseSegments() {
+        for (Segment segment : segments) {
+            if (segment.strip != null) {
+                segment.strip.recycle();
+            }
+        }
+        segments.clear();
+        outputs.clear();
+    }
+
+    /** Sequência de linhas fixas ou de linhas com campos. */
+    private static class Segment {
+        final boolean isStatic;
+        final List<TicketTemplate.Line> lines = new ArrayList<>();
+        // Só nas fixas: nas com campos depende da quebra de cada senha
+        int height;
+        long key;
+        Bitmap strip;
+        Canvas canvas;
+
+        Segment(boolean isStatic) {
+            this.isStatic = isStatic;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.qz.gertec_pos_printer.sku210;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import com.qz.gertec_pos_printer.raster.ContentHash;
+import com.qz.gertec_pos_printer.raster.MonoRaster;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Layout de senha enviado uma única vez pelo Dart.
+ *
+ * Cada linha tem um texto com campos entre chaves, por exemplo
+ * {@code "GIRA DE {gira}"}. Os campos aceitos são {@link #FIELDS}; o texto é
+ * quebrado em partes fixas e campos já no {@link #fromMap(Map)}, e os
+ * {@link Paint} de cada linha ficam prontos para todas as senhas.
+ *
+ * Texto mais largo que a bobina quebra entre palavras, como no desenho que o
+ * Dart fazia, em até {@code maxLines} linhas ({@link #DEFAULT_MAX_LINES}).
+ */
+public class TicketTemplate {
+    public static final int DEFAULT_WIDTH = 384;
+    public static final String[] FIELDS = { "terreiro", "gira", "entity", "medium", "code", "date" };
+    public static final int DEFAULT_MAX_LINES = 3;
+
+    final int width;
+    final int paddingTop;
+    final int paddingBottom;
+    final int paddingSide;
+    final List<Line> lines;
+
+    private TicketTemplate(int width, int paddingTop, int paddingBottom, int paddingSide, List<Line> lines) {
+        this.width = width;
+        this.paddingTop = paddingTop;
+        this.paddingBottom = paddingBottom;
+        this.paddingSide = paddingSide;
+        this.lines = Collections.unmodifiableList(lines);
+    }
+
+    /**
+     * Monta o template a partir do mapa recebido pelo canal.
+     *
+     * @param map = {width, paddingTop, paddingBottom, paddingSide, lines: [{text,
+     *            fontSize, bold, align, upperCase, spacingAfter, maxLines}]};
+     *            align é left, center ou right, em qualquer caixa
+     */
+    public static TicketTemplate fromMap(Map map) {
+        if (map == null || !(map.get("lines") instanceof List)) {
+            throw new IllegalArgumentException("Template sem linhas");
+        }
+        List<Line> lines = new ArrayList<>();
+        for (Object item : (List) map.get("lines")) {
+            Map line = (Map) item;
+            lines.add(new Line(
+                    (String) line.get("text"),
+                    getInt(line.get("fontSize"), 20),
+                    Boolean.TRUE.equals(line.get("bold")),
+                    line.get("align") != null ? ((String) line.get("align")).toUpperCase(Locale.ROOT) : "CENTER",
+                    Boolean.TRUE.equals(line.get("upperCase")),
+                    getInt(line.get("spacingAfter"), 0),
+                    Math.max(1, getInt(line.get("maxLines"), DEFAULT_MAX_LINES))));
+        }
+        int width = getInt(map.get("width"), DEFAULT_WIDTH);
+        if (width <= 0 || width > MonoRaster.MAX_WIDTH) {
+            throw new IllegalArgumentException("Largura inválida: " + width);
+        }
+        return new TicketTemplate(
+                width,
+                getInt(map.get("paddingTop"), 0),
+                getInt(map.get("paddingBottom"), 0),
+                getInt(map.get("paddingSide"), 0),
+                lines);
+    }
+
+    static int fieldIndex(String name) {
+        for (int i = 0; i < FIELDS.length; i++) {
+            if (FIELDS[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Campo desconhecido no template: " + name);
+    }
+
+    private static int getInt(Object value, int defaultValue) {
+        return value instanceof Number ? ((Number) value).intValue() : defaultValue;
+    }
+
+    /** Uma linha do layout, com as partes fixas e o Paint já resolvidos. */
+    static class Line {
+        /** Texto fixo, ou null quando a parte é um campo. */
+        final String[] literals;
+        /** Índice em {@link #FIELDS}, ou -1 quando a parte é texto fixo. */
+        final int[] fields;
+        final boolean upperCase;
+        /** Linha sem campos: sai igual em todas as senhas. */
+        final boolean isStatic;
+        /** Hash da definição da linha, usado na chave do cache de faixas. */
+        final long key;
+        final Paint paint;
+        /** Altura de uma linha de texto, sem o espaçamento. */
+        final int height;
+        final int baseline;
+        final int spacingAfter;
+        /** Máximo de linhas quando o texto quebra; a última é comprimida se ainda sobrar. */
+        final int maxLines;
+
+        Line(String text, int fontSize, boolean bold, String align, boolean upperCase, int spacingAfter,
+                int maxLines) {
+            List<String> literals = new ArrayList<>();
+            List<Integer> fields = new ArrayList<>();
+            String src = text != null ? text : "";
+            int pos = 0;
+            while (pos < src.length()) {
+                int open = src.indexOf('{', pos);
+                int close = open < 0 ? -1 : src.indexOf('}', open);
+                if (open < 0 || close < 0) {
+                    literals.add(src.substring(pos));
+                    fields.add(-1);
+                    break;
+                }
+                if (open > pos) {
+                    literals.add(src.substring(pos, open));
+                    fields.add(-1);
+                }
+                literals.add(null);
+                fields.add(fieldIndex(src.substring(open + 1, close)));
+                pos = close + 1;
+            }
+            this.literals = literals.toArray(new String[0]);
+            this.fields = new int[fields.size()];
+            boolean onlyLiterals = true;
+            for (int i = 0; i < this.fields.length; i++) {
+                this.fields[i] = fields.get(i);
+                onlyLiterals &= this.fields[i] < 0;
+            }
+            this.isStatic = onlyLiterals;
+
+            long h = ContentHash.of(src);
+            h = ContentHash.combine(h, fontSize);
+            h = ContentHash.combine(h, (bold ? 1 : 0) | (upperCase ? 2 : 0));
+            h = ContentHash.combine(h, ContentHash.of(align));
+            h = ContentHash.combine(h, spacingAfter);
+            this.key = ContentHash.combine(h, maxLines);
+            this.upperCase = upperCase;
+            this.spacingAfter = spacingAfter;
+            this.maxLines = maxLines;
+
+            // Sem antialias: a cabeça térmica é 1 bit, bordas cinzas só viram ruído
+            this.paint = new Paint();
+            this.paint.setColor(0xFF000000);
+            this.paint.setTextSize(fontSize);
+            this.paint.setTypeface(bold ? Typeface.DEFAULT_BOLD : Typeface.DEFAULT);
+            this.paint.setTextAlign(Paint.Align.valueOf(align));
+            Paint.FontMetricsInt fm = this.paint.getFontMetricsInt();
+            this.height = fm.bottom - fm.top;
+            this.baseline = -fm.top;
+        }
+
+        /** Monta o texto da linha no {@code sb} reaproveitado pelo renderizador. */
+        String format(String[] values, StringBuilder sb) {
+            sb.setLength(0);
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i] < 0) {
+                    sb.append(literals[i]);
+                } else if (values[fields[i]] != null) {
+                    sb.append(values[fields[i]]);
+                }
+            }
+            String text = sb.toString();
+            return upperCase ? text.toUpperCase() : text;
+        }
+    }
+}
@@ -0,0 +1,576 @@
+package com.qz.gertec_pos_printer.spool;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Diário em disco dos trabalhos de impressão aceitos, para que uma senha
+ * emitida não se perca se o app cair ou o totem reiniciar antes do papel sair.
+ *
+ * O arquivo tem tamanho fixo e fica mapeado em memória; cada trabalho é um
+ * registro acrescentado no fim ({@link #append}) e, quando a resposta sai, um
+ * registro de fim ({@link #complete}). Gravar é só copiar para o mapa: o
+ * registro sobrevive à queda do processo na hora. O {@code force()} que leva
+ * ao disco roda numa thread própria e junta as gravações de uma janela de
+ * {@link #COMMIT_WINDOW_MS} ms; quem precisa da garantia contra queda de
+ * energia espera por ela com {@link #awaitDurable}.
+ *
+ * <pre>
+ *   cabeçalho: u32 "QZSP" | u32 versão | u64 próximo id
+ *   registro:  u32 tamanho | u32 CRC32 | u8 tipo | u64 id | corpo do tipo
+ *   trabalho:  u8 formato | u16 método | método | dados
+ *   fim:       (vazio)
+ *   tentativa: u8 execuções já começadas
+ *   config:    mesmo corpo do trabalho; vale o último de cada método
+ * </pre>
+ *
+ * O tamanho é a última coisa gravada e o CRC cobre o corpo: a leitura para no
+ * primeiro registro incompleto. Quando o arquivo enche, só os trabalhos ainda
+ * pendentes (com a última tentativa de cada um) são copiados para um arquivo
+ * novo, que substitui o antigo.
+ *
+ * As tentativas ({@link #setAttempts}) existem para quem reexecuta os
+ * trabalhos recuperados: um trabalho que derruba o processo não volta para
+ * sempre. As configurações ({@link #putConfig}) guardam o estado que esses
+ * trabalhos pedem (layout da senha, PIX, impressora de rede) e também passam
+ * para o arquivo novo.
+ *
+ * @apiNote = Thread-safe. Os ids crescem na ordem das gravações e continuam
+ *          entre aberturas do arquivo.
+ */
+public final class PrintSpool implements Closeable {
+    /** Argumentos do canal de métodos, no {@code StandardMessageCodec}. */
+    public static final int FORMAT_CODEC = 1;
+    /** Mensagem do {@code WireProtocol} como chegou. */
+    public static final int FORMAT_WIRE = 2;
+
+    /** Janela em que as gravações se juntam num único {@code force()}. */
+    public static final long COMMIT_WINDOW_MS = 5;
+
+    static final int MAGIC = 0x515A5350; // "QZSP"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 16;
+    private static final int RECORD_HEADER = 8;
+    // tipo + id
+    private static final int RECORD_PREFIX = 9;
+    private static final byte TYPE_JOB = 1;
+    private static final byte TYPE_DONE = 2;
+    // A partir da versão 2
+    private static final byte TYPE_ATTEMPT = 3;
+    private static final byte TYPE_CONFIG = 4;
+
+    /** Trabalho que ficou sem resposta na última execução, ou configuração gravada. */
+    public static final class Entry {
+        public final long id;
+        public final String method;
+        public final int format;
+        public final byte[] payload;
+        /** Última contagem gravada com {@link #setAttempts}; 0 se nunca rodou. */
+        public final int attempts;
+
+        Entry(long id, String method, int format, byte[] payload, int attempts) {
+            this.id = id;
+            this.method = method;
+            this.format = format;
+            this.payload = payload;
+            this.attempts = attempts;
+        }
+    }
+
+    private final File file;
+    private final int capacity;
+    private final Object lock = new Object();
+    private final CRC32 crc = new CRC32();
+    // id -> {posição, tamanho} dos trabalhos pendentes no arquivo atual
+    private final LinkedHashMap<Long, int[]> live = new LinkedHashMap<>();
+    // id -> tentativas, só dos trabalhos em live que já têm alguma
+    private final Map<Long, Integer> attempts = new HashMap<>();
+    // método -> {posição, tamanho} da última configuração de cada método
+    private final LinkedHashMap<String, int[]> configs = new LinkedHashMap<>();
+    private final List<Entry> recovered;
+    private final List<Entry> recoveredConfigs;
+    private final Thread flusher;
+
+    private MappedByteBuffer buffer;
+    private int writeOffset;
+    private long nextId = 1;
+    private long lastJobId;
+    private long durableJobId;
+    private boolean dirty;
+    private boolean closed;
+    private byte[] scratch = new byte[4096];
+    private long forceCount;
+
+    /**
+     * Abre o spool, lendo os trabalhos pendentes que o arquivo já tiver.
+     *
+     * @param file     = arquivo do diário; é criado se não existir
+     * @param capacity = tamanho fixo do arquivo, em bytes
+     *
+     * @throws IOException = não foi possível criar ou mapear o arquivo
+     */
+    public PrintSpool(File file, int capacity) throws IOException {
+        if (capacity < HEADER_SIZE * 2) {
+            throw new IllegalArgumentException("Capacidade muito pequena: " + capacity);
+        }
+        this.file = file;
+        this.capacity = capacity;
+        ByteBuffer previous = file.length() >= HEADER_SIZE ? mapExisting(file) : null;
+        List<Entry> entries = new ArrayList<>();
+        List<Entry> configEntries = new ArrayList<>();
+        if (previous != null) {
+            scan(previous, entries, configEntries);
+        }
+        recovered = Collections.unmodifiableList(entries);
+        recoveredConfigs = Collections.unmodifiableList(configEntries);
+        synchronized (lock) {
+            rewrite(previous);
+        }
+        flusher = new Thread(this::flushLoop, "gertec-spool");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /** Trabalhos sem resposta encontrados na abertura, na ordem em que foram aceitos. */
+    public List<Entry> getRecovered() {
+        return recovered;
+    }
+
+    /**
+     * Configurações encontradas na abertura, uma por método, na ordem em que
+     * foram gravadas pela última vez. O {@link Entry#id} não tem significado.
+     */
+    public List<Entry> getConfigs() {
+        return recoveredConfigs;
+    }
+
+    /**
+     * Grava um trabalho aceito. Só copia para o mapa; não espera o disco.
+     *
+     * @param method  = método do canal que será executado
+     * @param format  = FORMAT_CODEC ou FORMAT_WIRE
+     * @param payload = argumentos, da posição até o limite; não é alterado
+     *
+     * @return long = id do trabalho no spool
+     *
+     * @throws IOException = o spool está fechado ou cheio de trabalhos pendentes
+     */
+    public long append(String method, int format, ByteBuffer payload) throws IOException {
+        synchronized (lock) {
+            long id = nextId++;
+            live.put(id, writeRecord(TYPE_JOB, id, method, format, payload));
+            lastJobId = id;
+            lock.notifyAll();
+            return id;
+        }
+    }
+
+    /**
+     * Grava a configuração de um método, substituindo a anterior do mesmo
+     * método. Volta em {@link #getConfigs()} na próxima abertura.
+     *
+     * @param method  = método do canal que aplica a configuração
+     * @param format  = FORMAT_CODEC ou FORMAT_WIRE
+     * @param payload = argumentos, da posição até o limite; não é alterado
+     *
+     * @throws IOException = o spool está fechado ou cheio
+     */
+    public void putConfig(String method, int format, ByteBuffer payload) throws IOException {
+        synchronized (lock) {
+            // Sem id próprio: a configuração vale pelo método
+            int[] span = writeRecord(TYPE_CONFIG, 0, method, format, payload);
+            configs.remove(method);
+            configs.put(method, span);
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Grava um registro de trabalho ou de configuração. Roda com o lock.
+     *
+     * @return int[] = {posição, tamanho} do registro
+     */
+    private int[] writeRecord(byte type, long id, String method, int format, ByteBuffer payload)
+            throws IOException {
+        byte[] name = method.getBytes(StandardCharsets.UTF_8);
+        if (name.length > 0xFFFF) {
+            throw new IllegalArgumentException("Nome de método muito longo");
+        }
+        int data = payload != null ? payload.remaining() : 0;
+        int length = RECORD_PREFIX + 3 + name.length + data;
+        ensureOpen();
+        ensureRoom(RECORD_HEADER + length);
+        byte[] body = scratch(length);
+        body[0] = type;
+        putLong(body, 1, id);
+        body[9] = (byte) format;
+        body[10] = (byte) (name.length >>> 8);
+        body[11] = (byte) name.length;
+        System.arraycopy(name, 0, body, 12, name.length);
+        if (data > 0) {
+            payload.duplicate().get(body, 12 + name.length, data);
+        }
+        int[] span = new int[]{writeOffset, RECORD_HEADER + length};
+        write(body, length);
+        dirty = true;
+        return span;
+    }
+
+    /**
+     * Marca o trabalho como respondido; ele não volta na próxima abertura.
+     * Ids desconhecidos ou já marcados são ignorados.
+     *
+     * @throws IOException = não há espaço nem depois de compactar
+     */
+    public void complete(long id) throws IOException {
+        synchronized (lock) {
+            if (closed || live.remove(id) == null) {
+                return;
+            }
+            attempts.remove(id);
+            ensureRoom(RECORD_HEADER + RECORD_PREFIX);
+            byte[] body = scratch(RECORD_PREFIX);
+            body[0] = TYPE_DONE;
+            putLong(body, 1, id);
+            write(body, RECORD_PREFIX);
+            dirty = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Grava quantas execuções do trabalho já começaram. Vale na próxima
+     * abertura, em {@link Entry#attempts}. Ids desconhecidos ou já marcados
+     * com {@link #complete} são ignorados.
+     *
+     * @param count = de 0 a 255
+     *
+     * @throws IOException = não há espaço nem depois de compactar
+     */
+    public void setAttempts(long id, int count) throws IOException {
+        if (count < 0 || count > 0xFF) {
+            throw new IllegalArgumentException("Tentativas fora de 0..255: " + count);
+        }
+        synchronized (lock) {
+            if (closed || !live.containsKey(id)) {
+                return;
+            }
+            ensureRoom(RECORD_HEADER + RECORD_PREFIX + 1);
+            writeAttempt(id, count);
+            attempts.put(id, count);
+            dirty = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Espera o trabalho chegar ao disco, no próximo {@code force()} da thread
+     * do spool.
+     *
+     * @param id        = id devolvido pelo {@link #append}
+     * @param timeoutMs = espera máxima
+     *
+     * @return boolean = true se o trabalho já está em disco
+     */
+    public boolean awaitDurable(long id, long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutMs * 1000000;
+        synchronized (lock) {
+            while (durableJobId < id) {
+                long left = deadline - System.nanoTime();
+                if (closed || left <= 0) {
+                    return false;
+                }
+                lock.wait(Math.max(1, left / 1000000));
+            }
+            return true;
+        }
+    }
+
+    /** Trabalhos gravados que ainda não foram marcados com {@link #complete}. */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return live.size();
+        }
+    }
+
+    /** Bytes ocupados no arquivo, com o cabeçalho. */
+    public int getUsedBytes() {
+        synchronized (lock) {
+            return writeOffset;
+        }
+    }
+
+    /** Quantas vezes o mapa foi levado ao disco. */
+    public long getForceCount() {
+        synchronized (lock) {
+            return forceCount;
+        }
+    }
+
+    /** Leva ao disco o que falta e para a thread do spool. */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            synchronized (lock) {
+                while (!dirty && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // só o close encerra a thread
+                    }
+                }
+                if (!dirty) {
+                    return;
+                }
+            }
+            try {
+                // Junta as gravações que chegarem na janela num único force
+                Thread.sleep(COMMIT_WINDOW_MS);
+            } catch (InterruptedException e) {
+                // força agora
+            }
+            MappedByteBuffer target;
+            long upTo;
+            synchronized (lock) {
+                target = buffer;
+                upTo = lastJobId;
+                dirty = false;
+            }
+            try {
+                target.force();
+            } catch (RuntimeException e) {
+                // Sem disco não há o que fazer; quem espera sai pelo timeout
+                continue;
+            }
+            synchronized (lock) {
+                durableJobId = Math.max(durableJobId, upTo);
+                forceCount++;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Spool fechado");
+        }
+    }
+
+    private void ensureRoom(int size) throws IOException {
+        if (writeOffset + size <= capacity) {
+            return;
+        }
+        if (HEADER_SIZE + size > capacity / 2) {
+            throw new IOException("Trabalho de " + size + " bytes não cabe no spool");
+        }
+        rewrite(buffer);
+        if (writeOffset + size > capacity) {
+            throw new IOException("Spool cheio: " + live.size() + " trabalhos pendentes");
+        }
+    }
+
+    /**
+     * Cria um arquivo novo só com os trabalhos pendentes, leva ao disco e troca
+     * pelo atual. Roda com o lock.
+     *
+     * @param source = mapa de onde vêm os registros de {@link #live}, ou null
+     */
+    private void rewrite(ByteBuffer source) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        MappedByteBuffer target;
+        RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+        try {
+            raf.setLength(0);
+            raf.setLength(capacity);
+            // O mapa continua válido depois de fechar o arquivo
+            target = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } finally {
+            raf.close();
+        }
+        target.order(ByteOrder.BIG_ENDIAN);
+        target.putInt(MAGIC).putInt(VERSION).putLong(nextId);
+        // As configurações primeiro: a ordem de leitura na abertura é a de aplicação
+        copyRecords(configs.values(), source, target);
+        copyRecords(live.values(), source, target);
+        buffer = target;
+        writeOffset = target.position();
+        for (Map.Entry<Long, Integer> e : attempts.entrySet()) {
+            if (writeOffset + RECORD_HEADER + RECORD_PREFIX + 1 > capacity) {
+                // Só com o arquivo tomado por trabalhos pendentes; a contagem recomeça
+                break;
+            }
+            writeAttempt(e.getKey(), e.getValue());
+        }
+        target.force();
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Não foi possível substituir " + file);
+        }
+        // Tudo o que está pendente acabou de ir para o disco
+        durableJobId = lastJobId;
+        lock.notifyAll();
+    }
+
+    private void write(byte[] body, int length) {
+        crc.reset();
+        crc.update(body, 0, length);
+        buffer.position(writeOffset + RECORD_HEADER);
+        buffer.put(body, 0, length);
+        buffer.putInt(writeOffset + 4, (int) crc.getValue());
+        // Por último: até aqui o registro não existe para a leitura
+        buffer.putInt(writeOffset, length);
+        writeOffset += RECORD_HEADER + length;
+    }
+
+    /** Copia os registros e atualiza a posição de cada um para a do arquivo novo. */
+    private static void copyRecords(Collection<int[]> spans, ByteBuffer source, ByteBuffer target) {
+        for (int[] span : spans) {
+            ByteBuffer record = source.duplicate();
+            record.limit(span[0] + span[1]).position(span[0]);
+            span[0] = target.position();
+            target.put(record);
+        }
+    }
+
+    private void writeAttempt(long id, int count) {
+        byte[] body = scratch(RECORD_PREFIX + 1);
+        body[0] = TYPE_ATTEMPT;
+        putLong(body, 1, id);
+        body[9] = (byte) count;
+        write(body, RECORD_PREFIX + 1);
+    }
+
+    private byte[] scratch(int length) {
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        return scratch;
+    }
+
+    private static ByteBuffer mapExisting(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length()).order(ByteOrder.BIG_ENDIAN);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Lê o arquivo anterior até o primeiro registro incompleto. Deixa em
+     * {@link #live} os trabalhos sem registro de fim. Um arquivo de outro
+     * formato é descartado.
+     */
+    private void scan(ByteBuffer in, List<Entry> entries, List<Entry> configEntries) {
+        int version = in.getInt(4);
+        if (in.getInt(0) != MAGIC || version < 1 || version > VERSION) {
+            return;
+        }
+        nextId = Math.max(1, in.getLong(8));
+        CRC32 check = new CRC32();
+        byte[] body = new byte[256];
+        int limit = in.limit();
+        int pos = HEADER_SIZE;
+        while (pos + RECORD_HEADER <= limit) {
+            int length = in.getInt(pos);
+            if (length < RECORD_PREFIX || length > limit - pos - RECORD_HEADER) {
+                break;
+            }
+            if (body.length < length) {
+                body = new byte[length];
+            }
+            ByteBuffer record = in.duplicate();
+            record.position(pos + RECORD_HEADER);
+            record.get(body, 0, length);
+            check.reset();
+            check.update(body, 0, length);
+            if ((int) check.getValue() != in.getInt(pos + 4)) {
+                break;
+            }
+            long id = getLong(body, 1);
+            if (body[0] == TYPE_JOB) {
+                live.put(id, new int[]{pos, RECORD_HEADER + length});
+            } else if (body[0] == TYPE_DONE) {
+                live.remove(id);
+                attempts.remove(id);
+            } else if (body[0] == TYPE_ATTEMPT && length > RECORD_PREFIX && live.containsKey(id)) {
+                attempts.put(id, body[RECORD_PREFIX] & 0xFF);
+            } else if (body[0] == TYPE_CONFIG && length >= RECORD_PREFIX + 3) {
+                String method = new String(body, 12, nameLength(body), StandardCharsets.UTF_8);
+                configs.remove(method);
+                configs.put(method, new int[]{pos, RECORD_HEADER + length});
+            }
+            nextId = Math.max(nextId, id + 1);
+            pos += RECORD_HEADER + length;
+        }
+        for (Map.Entry<Long, int[]> e : live.entrySet()) {
+            Integer count = attempts.get(e.getKey());
+            entries.add(readEntry(in, e.getKey(), e.getValue(), count != null ? count : 0));
+        }
+        for (int[] span : configs.values()) {
+            configEntries.add(readEntry(in, 0, span, 0));
+        }
+        lastJobId = nextId - 1;
+    }
+
+    private static Entry readEntry(ByteBuffer in, long id, int[] span, int attempts) {
+        int length = span[1] - RECORD_HEADER;
+        byte[] record = new byte[length];
+        ByteBuffer copy = in.duplicate();
+        copy.position(span[0] + RECORD_HEADER);
+        copy.get(record);
+        int nameLength = nameLength(record);
+        String method = new String(record, 12, nameLength, StandardCharsets.UTF_8);
+        byte[] payload = new byte[length - 12 - nameLength];
+        System.arraycopy(record, 12 + nameLength, payload, 0, payload.length);
+        return new Entry(id, method, record[9], payload, attempts);
+    }
+
+    private static int nameLength(byte[] body) {
+        return ((body[10] & 0xFF) << 8) | (body[11] & 0xFF);
+    }
+
+    private static void putLong(byte[] b, int offset, long v) {
+        for (int i = 7; i >= 0; i--) {
+            b[offset + i] = (byte) v;
+            v >>>= 8;
+        }
+    }
+
+    private static long getLong(byte[] b, int offset) {
+        long v = 0;
+        for (int i = 0; i < 8; i++) {
+            v = (v << 8) | (b[offset + i] & 0xFF);
+        }
+        return v;
+    }
+}
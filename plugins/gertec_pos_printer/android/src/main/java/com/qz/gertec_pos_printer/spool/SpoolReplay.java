@@ -0,0 +1,171 @@
+package com.qz.gertec_pos_printer.spool;
+
+import com.qz.gertec_pos_printer.PrinterException;
+import com.qz.gertec_pos_printer.metrics.PrinterMetrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reexecuta os trabalhos que ficaram no {@link PrintSpool} sem resposta (queda
+ * do app ou do totem) e decide quando cada um sai do arquivo.
+ *
+ * Um trabalho que já começou {@link #MAX_ATTEMPTS} vezes sem terminar é
+ * descartado. Um que falhou por um estado que passa (sem papel, cabeça
+ * quente, impressora ainda não conectada, configuração que não chegou) não
+ * conta como tentativa e fica guardado até {@link #retryHeld()}, ou até o
+ * próximo attach.
+ *
+ * Contadores em {@link PrinterMetrics}: spool.replayed, spool.held,
+ * spool.abandoned e spool.errors.
+ *
+ * @apiNote = Não é thread-safe: só a thread da impressora usa.
+ */
+public final class SpoolReplay {
+    /**
+     * Um trabalho que começou tantas vezes sem terminar (ex: OOM no decode) é
+     * descartado, em vez de derrubar o app a cada abertura.
+     */
+    public static final int MAX_ATTEMPTS = 3;
+
+    /** Põe um trabalho do spool na fila de impressão. */
+    public interface Submitter {
+        /**
+         * @throws Exception = argumentos ilegíveis; o trabalho sai do spool
+         */
+        void submit(PrintSpool.Entry entry) throws Exception;
+    }
+
+    private final PrintSpool spool;
+    private final PrinterMetrics metrics;
+    private final Submitter submitter;
+    // Reexecutados nesta sessão, pelo id no spool, e os que esperam a impressora
+    private final Map<Long, PrintSpool.Entry> replays = new HashMap<>();
+    private final Map<Long, PrintSpool.Entry> held = new LinkedHashMap<>();
+
+    public SpoolReplay(PrintSpool spool, PrinterMetrics metrics, Submitter submitter) {
+        this.spool = spool;
+        this.metrics = metrics;
+        this.submitter = submitter;
+    }
+
+    /**
+     * Põe na fila, em ordem, os trabalhos recuperados na abertura do spool.
+     *
+     * @param methods = métodos que podem voltar; os outros saem do spool sem
+     *                rodar
+     */
+    public void replay(Set<String> methods) {
+        for (PrintSpool.Entry entry : spool.getRecovered()) {
+            if (!methods.contains(entry.method)) {
+                // Gravado por uma versão que ainda guardava comandos avulsos
+                complete(entry.id);
+                continue;
+            }
+            if (entry.attempts >= MAX_ATTEMPTS) {
+                metrics.increment("spool.abandoned");
+                complete(entry.id);
+                continue;
+            }
+            replays.put(entry.id, entry);
+            submit(entry);
+        }
+    }
+
+    /**
+     * Conta mais uma tentativa antes de executar um trabalho do spool: se o
+     * processo cair no meio, ela fica gravada para o próximo attach.
+     *
+     * @param spoolId = id no spool; trabalhos desta sessão são ignorados
+     */
+    public void begin(long spoolId) {
+        PrintSpool.Entry entry = replays.get(spoolId);
+        if (entry != null) {
+            setAttempts(spoolId, entry.attempts + 1);
+        }
+    }
+
+    /** O trabalho saiu no papel: não volta no próximo attach. */
+    public void finished(long spoolId) {
+        replays.remove(spoolId);
+        complete(spoolId);
+    }
+
+    /**
+     * O trabalho falhou. Se é uma reexecução e o erro passa
+     * ({@link #isTransientError(int)}), fica guardado no spool; senão sai,
+     * como um trabalho respondido.
+     *
+     * @return boolean = true se o trabalho ficou guardado
+     */
+    public boolean failed(long spoolId, int errorCode) {
+        PrintSpool.Entry entry = replays.get(spoolId);
+        if (entry == null || !isTransientError(errorCode)) {
+            finished(spoolId);
+            return false;
+        }
+        // A execução que falhou não conta
+        setAttempts(spoolId, entry.attempts);
+        held.put(spoolId, entry);
+        metrics.increment("spool.held");
+        return true;
+    }
+
+    /** Devolve à fila os trabalhos guardados; chamado quando a impressora volta ou chega uma configuração. */
+    public void retryHeld() {
+        if (held.isEmpty()) {
+            return;
+        }
+        List<PrintSpool.Entry> entries = new ArrayList<>(held.values());
+        held.clear();
+        for (PrintSpool.Entry entry : entries) {
+            submit(entry);
+        }
+    }
+
+    /** Trabalhos guardados esperando {@link #retryHeld()}. */
+    public int getHeldCount() {
+        return held.size();
+    }
+
+    /** Erros de estado: o mesmo trabalho imprime quando a impressora ou a configuração voltar. */
+    public static boolean isTransientError(int errorCode) {
+        return errorCode == PrinterException.ERROR_NOT_CONFIGURED || errorCode == PrinterException.ERROR_OUT_OF_PAPER
+                || errorCode == PrinterException.ERROR_OVERHEAT || errorCode == PrinterException.ERROR_NOT_AVAILABLE;
+    }
+
+    private void submit(PrintSpool.Entry entry) {
+        try {
+            submitter.submit(entry);
+            metrics.increment("spool.replayed");
+        } catch (Exception e) {
+            metrics.increment("spool.errors");
+            replays.remove(entry.id);
+            complete(entry.id);
+        }
+    }
+
+    private void setAttempts(long spoolId, int attempts) {
+        try {
+            spool.setAttempts(spoolId, attempts);
+        } catch (IOException e) {
+            metrics.increment("spool.errors");
+        }
+    }
+
+    private void complete(long spoolId) {
+        if (spoolId == 0) {
+            return;
+        }
+        try {
+            spool.complete(spoolId);
+        } catch (IOException e) {
+            metrics.increment("spool.errors");
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.qz.gertec_pos_printer.wire;
+
+import com.qz.gertec_pos_printer.barcode.Symbology;
+import com.qz.gertec_pos_printer.raster.MonoRaster;
+
+/**
+ * Um comando já lido do buffer. Só os campos do opcode estão preenchidos.
+ *
+ * Os dados são copiados para fora do buffer na leitura: o buffer da mensagem
+ * só vale durante a chamada do handler, e a impressão roda depois, na thread
+ * da impressora.
+ */
+public final class WireCommand {
+    public final int opcode;
+    public final int flags;
+    /** fontSize, lado do QR ou pontos do avanço. */
+    public final int size;
+    public final int width;
+    public final int height;
+    /** Valor do PIX em centavos. */
+    public final long amount;
+    /** Texto, conteúdo do código ou txid do PIX. */
+    public final String text;
+    public final MonoRaster raster;
+    /** PNG/JPEG do {@link WireProtocol#OP_IMAGE}. */
+    public final byte[] image;
+    public final String dither;
+    public final Symbology symbology;
+
+    WireCommand(int opcode, int flags, int size, int width, int height, long amount, String text,
+            MonoRaster raster, byte[] image, String dither, Symbology symbology) {
+        this.opcode = opcode;
+        this.flags = flags;
+        this.size = size;
+        this.width = width;
+        this.height = height;
+        this.amount = amount;
+        this.text = text;
+        this.raster = raster;
+        this.image = image;
+        this.dither = dither;
+        this.symbology = symbology;
+    }
+
+    public boolean hasFlag(int flag) {
+        return (flags & flag) != 0;
+    }
+}
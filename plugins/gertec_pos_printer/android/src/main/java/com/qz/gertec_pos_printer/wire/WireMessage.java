@@ -0,0 +1,165 @@
+package com.qz.gertec_pos_printer.wire;
+
+import com.qz.gertec_pos_printer.barcode.Symbology;
+import com.qz.gertec_pos_printer.raster.MonoRaster;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Mensagem do {@link WireProtocol} lida de uma vez: cabeçalho e comandos.
+ *
+ * O raster vai do buffer direto para o array do {@link MonoRaster} num único
+ * {@code get} em bloco, sem {@code byte[]} intermediário.
+ */
+public final class WireMessage {
+    private final int flags;
+    private final List<WireCommand> commands;
+
+    private WireMessage(int flags, List<WireCommand> commands) {
+        this.flags = flags;
+        this.commands = commands;
+    }
+
+    public boolean hasFlag(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    public List<WireCommand> getCommands() {
+        return commands;
+    }
+
+    /** A mensagem só pede o estado: respondida sem passar pela fila. */
+    public boolean isStatusOnly() {
+        return commands.size() == 1 && commands.get(0).opcode == WireProtocol.OP_STATUS;
+    }
+
+    /**
+     * @param buffer = mensagem recebida; a posição vai até o fim
+     *
+     * @throws IllegalArgumentException = versão, opcode ou tamanhos inválidos
+     */
+    public static WireMessage decode(ByteBuffer buffer) {
+        if (buffer == null) {
+            throw new IllegalArgumentException("Mensagem vazia");
+        }
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        try {
+            int version = buffer.get() & 0xFF;
+            if (version != WireProtocol.VERSION) {
+                throw new IllegalArgumentException("Versão do protocolo não suportada: " + version);
+            }
+            int flags = buffer.get() & 0xFF;
+            int count = buffer.getShort() & 0xFFFF;
+            List<WireCommand> commands = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                commands.add(command(buffer));
+            }
+            if (buffer.hasRemaining()) {
+                throw new IllegalArgumentException("Sobraram " + buffer.remaining() + " bytes na mensagem");
+            }
+            return new WireMessage(flags, Collections.unmodifiableList(commands));
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Mensagem truncada", e);
+        }
+    }
+
+    private static WireCommand command(ByteBuffer buffer) {
+        int opcode = buffer.get() & 0xFF;
+        int flags = buffer.get() & 0xFF;
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Tamanho inválido no comando " + opcode + ": " + length);
+        }
+        int end = buffer.position() + length;
+        WireCommand command;
+        switch (opcode) {
+            case WireProtocol.OP_STATUS:
+            case WireProtocol.OP_CUT:
+                command = new WireCommand(opcode, flags, 0, 0, 0, 0, null, null, null, null, null);
+                break;
+            case WireProtocol.OP_TEXT:
+            case WireProtocol.OP_QRCODE: {
+                int size = buffer.getInt();
+                command = new WireCommand(opcode, flags, size, 0, 0, 0, string(buffer), null, null, null, null);
+                break;
+            }
+            case WireProtocol.OP_FEED:
+                command = new WireCommand(opcode, flags, buffer.getInt(), 0, 0, 0, null, null, null, null, null);
+                break;
+            case WireProtocol.OP_RASTER: {
+                int width = buffer.getInt();
+                int bytes = length(buffer);
+                int stride = MonoRaster.strideFor(Math.max(width, 1));
+                if (bytes == 0 || bytes % stride != 0) {
+                    throw new IllegalArgumentException("Dados não formam linhas de " + stride + " bytes");
+                }
+                MonoRaster raster = MonoRaster.create(width, bytes / stride);
+                buffer.get(raster.getData());
+                command = new WireCommand(opcode, flags, 0, width, raster.getHeight(), 0, null, raster, null, null,
+                        null);
+                break;
+            }
+            case WireProtocol.OP_IMAGE: {
+                String dither = pick(WireProtocol.DITHER_NAMES, buffer.get() & 0xFF, "dither");
+                byte[] image = new byte[length(buffer)];
+                buffer.get(image);
+                command = new WireCommand(opcode, flags, 0, 0, 0, 0, null, null, image, dither, null);
+                break;
+            }
+            case WireProtocol.OP_BARCODE: {
+                Symbology symbology = pick(WireProtocol.SYMBOLOGIES, buffer.get() & 0xFF, "tipo de código");
+                int width = buffer.getInt();
+                int height = buffer.getInt();
+                command = new WireCommand(opcode, flags, 0, width, height, 0, string(buffer), null, null, null,
+                        symbology);
+                break;
+            }
+            case WireProtocol.OP_PIX: {
+                long amount = buffer.getLong();
+                int size = buffer.getInt();
+                command = new WireCommand(opcode, flags, size, 0, 0, amount, string(buffer), null, null, null, null);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Opcode desconhecido: " + opcode);
+        }
+        if (buffer.position() != end) {
+            throw new IllegalArgumentException("Campos do comando " + opcode + " não fecham com o tamanho");
+        }
+        return command;
+    }
+
+    private static int length(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Tamanho de campo inválido: " + length);
+        }
+        return length;
+    }
+
+    private static String string(ByteBuffer buffer) {
+        int length = length(buffer);
+        if (buffer.hasArray()) {
+            String s = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                    StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return s;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static <T> T pick(T[] values, int code, String what) {
+        if (code >= values.length) {
+            throw new IllegalArgumentException("Código de " + what + " desconhecido: " + code);
+        }
+        return values[code];
+    }
+}
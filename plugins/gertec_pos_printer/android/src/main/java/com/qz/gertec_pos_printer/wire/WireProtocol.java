@@ -0,0 +1,104 @@
+package com.qz.gertec_pos_printer.wire;
+
+import com.qz.gertec_pos_printer.PrinterState;
+import com.qz.gertec_pos_printer.barcode.Symbology;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Protocolo binário do canal {@code qz_gertec_printer/binary}, sem Map, sem
+ * boxing e sem JSON no caminho.
+ *
+ * Tudo em big-endian (o padrão do {@code ByteData} do Dart). Uma mensagem é
+ *
+ * <pre>
+ *   u8 versão | u8 flags | u16 comandos | comando...
+ *   comando: u8 opcode | u8 flags | u32 tamanho | campos
+ * </pre>
+ *
+ * Campos de texto e de dados têm um u32 de tamanho na frente (texto em
+ * UTF-8). Os campos de cada opcode estão em {@link WireMessage}. A resposta é
+ * sempre um bloco de {@link #REPLY_SIZE} bytes:
+ *
+ * <pre>
+ *   u8 opcode | u8 resultado | u8 estado | u8 reservado | i32 erro | i64 valor
+ * </pre>
+ */
+public final class WireProtocol {
+    public static final String CHANNEL = "qz_gertec_printer/binary";
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 4;
+    public static final int COMMAND_HEADER_SIZE = 6;
+    public static final int REPLY_SIZE = 16;
+
+    /** Mensagem: responde na hora com o id do trabalho; o resto vem pelo canal de jobs. */
+    public static final int FLAG_ASYNC = 0x01;
+    /** Mensagem: vai para a impressora de rede ({@code callSetNetworkPrinter}), não para a do aparelho. */
+    public static final int FLAG_NETWORK = 0x02;
+
+    /** Estado da impressora, do monitor, sem entrar na fila. Sem campos. */
+    public static final int OP_STATUS = 0x01;
+    /** i32 fontSize, texto. Flag {@link #FLAG_BOLD}. */
+    public static final int OP_TEXT = 0x10;
+    /** i32 largura, dados em 1 bit por ponto. */
+    public static final int OP_RASTER = 0x11;
+    /** u8 dither ({@link #DITHER_NAMES}), PNG/JPEG. No SK210 e na impressora de rede. */
+    public static final int OP_IMAGE = 0x12;
+    /** i32 lado, texto. */
+    public static final int OP_QRCODE = 0x13;
+    /** u8 tipo ({@link #SYMBOLOGIES}), i32 largura, i32 altura, texto. */
+    public static final int OP_BARCODE = 0x14;
+    /** i32 pontos. */
+    public static final int OP_FEED = 0x15;
+    /** Sem campos. */
+    public static final int OP_CUT = 0x16;
+    /** i64 valor em centavos, i32 lado, txid. */
+    public static final int OP_PIX = 0x17;
+
+    /** Comando de texto em negrito. */
+    public static final int FLAG_BOLD = 0x01;
+
+    public static final int RESULT_OK = 0;
+    public static final int RESULT_ERROR = 1;
+    public static final int RESULT_QUEUED = 2;
+    /** A mensagem não segue o protocolo; nada foi impresso. */
+    public static final int RESULT_MALFORMED = 3;
+
+    /** Estado desconhecido na resposta. */
+    public static final int STATE_NONE = 0xFF;
+
+    /** Código de cada tipo no fio é o índice aqui; só cresce no fim. */
+    static final Symbology[] SYMBOLOGIES = {
+            Symbology.CODE_128, Symbology.EAN_13, Symbology.EAN_8, Symbology.ITF, Symbology.QR_CODE,
+            Symbology.PDF_417
+    };
+    /** Código de cada dither no fio é o índice aqui; "none" deixa o limiar com o firmware. */
+    static final String[] DITHER_NAMES = {"none", "threshold", "ordered", "floyd_steinberg"};
+
+    private WireProtocol() {
+    }
+
+    /**
+     * Monta a resposta.
+     *
+     * @param opcode    = comando a que a resposta se refere (0 para a mensagem)
+     * @param result    = RESULT_*
+     * @param state     = estado da impressora, ou null
+     * @param errorCode = código do {@code PrinterException}, 0 sem erro
+     * @param value     = comandos executados, id do trabalho ou estado bruto
+     *
+     * @return ByteBuffer = direto, pronto para o {@code BinaryCodec}
+     */
+    public static ByteBuffer reply(int opcode, int result, PrinterState state, int errorCode, long value) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(REPLY_SIZE).order(ByteOrder.BIG_ENDIAN);
+        buffer.put((byte) opcode);
+        buffer.put((byte) result);
+        buffer.put((byte) (state != null ? state.ordinal() : STATE_NONE));
+        buffer.put((byte) 0);
+        buffer.putInt(errorCode);
+        buffer.putLong(value);
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,87 @@
+package com.qz.gertec_pos_printer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Contagem de comandos na fila (gauge printer.waiting), com a thread ocupada
+ * por uma impressão longa.
+ */
+public class PrinterThreadTest {
+    private PrinterThread printerThread;
+    private final CountDownLatch printing = new CountDownLatch(1);
+    private final CountDownLatch paperOut = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws InterruptedException {
+        printerThread = new PrinterThread();
+        printerThread.execute(() -> {
+            printing.countDown();
+            try {
+                paperOut.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(printing.await(5, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() {
+        paperOut.countDown();
+        printerThread.shutdown();
+    }
+
+    @Test
+    public void countsQueuedCommands() {
+        printerThread.execute(() -> { });
+        printerThread.submit(() -> { });
+        printerThread.submit(() -> 1);
+
+        assertEquals(3, printerThread.getWaitingCount());
+    }
+
+    @Test
+    public void forgetsAReadCancelledInTheQueue() throws Exception {
+        final AtomicBoolean ran = new AtomicBoolean();
+        // Como o sampleGpos700: cada leitura que não sai a tempo é cancelada
+        for (int i = 0; i < 5; i++) {
+            Future<String> read = printerThread.submit(() -> {
+                ran.set(true);
+                return "OK";
+            });
+            read.cancel(false);
+        }
+        assertEquals(0, printerThread.getWaitingCount());
+
+        // Quando a impressão termina, os cancelados passam sem rodar nem descontar de novo
+        paperOut.countDown();
+        printerThread.submit(() -> { }).get(5, TimeUnit.SECONDS);
+        assertFalse(ran.get());
+        assertEquals(0, printerThread.getWaitingCount());
+    }
+
+    @Test
+    public void countsEachCommandOnceWhenItRuns() throws Exception {
+        Future<?> first = printerThread.submit(() -> { });
+        Future<Integer> second = printerThread.submit(() -> 2);
+        assertEquals(2, printerThread.getWaitingCount());
+
+        paperOut.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        assertEquals(Integer.valueOf(2), second.get(5, TimeUnit.SECONDS));
+        // Cancelar depois do fim não mexe na contagem
+        second.cancel(false);
+        assertEquals(0, printerThread.getWaitingCount());
+    }
+}
@@ -0,0 +1,74 @@
+package com.qz.gertec_pos_printer.barcode;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Layout TLV e CRC do BR Code. O CRC é conferido contra uma implementação
+ * bit a bit, sem a tabela nem o CRC parcial do prefixo.
+ */
+public class PixPayloadBuilderTest {
+    private static final String KEY = "123e4567-e12b-12d1-a456-426655440000";
+
+    /** Exemplo do manual do BR Code do Banco Central. */
+    private static final String BCB_REFERENCE = "00020126580014br.gov.bcb.pix0136" + KEY
+            + "5204000053039865802BR5913Fulano de Tal6008BRASILIA62070503***63041D3D";
+
+    @Test
+    public void buildsTheCentralBankReferencePayload() {
+        PixPayloadBuilder pix = new PixPayloadBuilder(KEY, "Fulano de Tal", "BRASILIA");
+
+        assertEquals(BCB_REFERENCE, pix.build(0, null).toString());
+    }
+
+    @Test
+    public void writesAmountAndTxidBetweenThePrecomputedParts() {
+        PixPayloadBuilder pix = new PixPayloadBuilder(KEY, "Fulano de Tal", "BRASILIA");
+
+        String expected = withCrc("00020126580014br.gov.bcb.pix0136" + KEY
+                + "520400005303986" + "540512.34" + "5802BR5913Fulano de Tal6008BRASILIA"
+                + "62140510SENHA00042");
+        assertEquals(expected, pix.build(1234, "SENHA-0004-2").toString());
+    }
+
+    @Test
+    public void reusesTheBufferBetweenTickets() {
+        PixPayloadBuilder pix = new PixPayloadBuilder(KEY, "Fulano de Tal", "BRASILIA");
+
+        pix.build(123456789, "A1");
+        // Um payload mais curto depois de um longo não herda nada do anterior
+        assertEquals(BCB_REFERENCE, pix.build(0, "").toString());
+        assertEquals(withCrc("00020126580014br.gov.bcb.pix0136" + KEY
+                + "520400005303986" + "54040.05" + "5802BR5913Fulano de Tal6008BRASILIA"
+                + "62060502B7"), pix.build(5, "B7").toString());
+    }
+
+    @Test
+    public void removesAccentsAndTruncatesNameAndCity() {
+        PixPayloadBuilder pix = new PixPayloadBuilder(KEY,
+                "Terreiro Caboclo Pena Branca", "São João da Boa Vista", "Doação");
+
+        String expected = withCrc("00020126680014br.gov.bcb.pix0136" + KEY + "0206Doacao"
+                + "5204000053039865802BR"
+                + "5925Terreiro Caboclo Pena Bra" + "6015Sao Joao da Boa"
+                + "62070503***");
+        assertEquals(expected, pix.build(0, null).toString());
+    }
+
+    /** Acrescenta o campo 63 com o CRC16-CCITT calculado bit a bit. */
+    private static String withCrc(String payload) {
+        String body = payload + "6304";
+        int crc = 0xFFFF;
+        for (byte b : body.getBytes(StandardCharsets.US_ASCII)) {
+            crc ^= (b & 0xFF) << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            crc &= 0xFFFF;
+        }
+        return body + String.format("%04X", crc);
+    }
+}
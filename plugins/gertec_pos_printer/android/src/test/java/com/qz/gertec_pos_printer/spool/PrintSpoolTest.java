@@ -0,0 +1,290 @@
+package com.qz.gertec_pos_printer.spool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Recuperação do spool depois de uma queda: o arquivo é fechado, mexido por
+ * fora (truncado, corrompido) e aberto de novo.
+ */
+public class PrintSpoolTest {
+    private static final int CAPACITY = 64 * 1024;
+    private static final String METHOD = "callPrintTicket210";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private PrintSpool spool;
+
+    @Before
+    public void setUp() throws IOException {
+        file = new File(folder.getRoot(), "print_spool.journal");
+        spool = new PrintSpool(file, CAPACITY);
+    }
+
+    @After
+    public void tearDown() {
+        spool.close();
+    }
+
+    @Test
+    public void recoversPendingJobsInOrder() throws IOException {
+        long first = spool.append(METHOD, PrintSpool.FORMAT_CODEC, payload("a", 10));
+        long second = spool.append("binaryCommands", PrintSpool.FORMAT_WIRE, payload("b", 20));
+        long third = spool.append(METHOD, PrintSpool.FORMAT_CODEC, null);
+        spool.complete(second);
+
+        List<PrintSpool.Entry> recovered = reopen().getRecovered();
+
+        assertEquals(2, recovered.size());
+        assertEntry(recovered.get(0), first, METHOD, PrintSpool.FORMAT_CODEC, bytes("a", 10));
+        assertEntry(recovered.get(1), third, METHOD, PrintSpool.FORMAT_CODEC, new byte[0]);
+    }
+
+    @Test
+    public void recoversWhatWasWrittenBeforeACrashWithoutClose() throws IOException {
+        long id = spool.append(METHOD, PrintSpool.FORMAT_CODEC, payload("x", 8));
+
+        // Sem close nem force: o mapa já é o arquivo para quem abre depois
+        PrintSpool after = new PrintSpool(file, CAPACITY);
+        try {
+            assertEquals(1, after.getRecovered().size());
+            assertEquals(id, after.getRecovered().get(0).id);
+        } finally {
+            after.close();
+        }
+    }
+
+    @Test
+    public void ignoresARecordWhoseLengthWasNotWritten() throws IOException {
+        long first = spool.append(METHOD, PrintSpool.FORMAT_CODEC, payload("a", 10));
+        spool.append(METHOD, PrintSpool.FORMAT_CODEC, payload("b", 10));
+        spool.close();
+
+        // O tamanho é a última coisa gravada: sem ele o registro não existe
+        writeInt(PrintSpool.HEADER_SIZE + recordSize(METHOD, 10), 0);
+
+        List<PrintSpool.Entry> recovered = reopen().getRecovered();
+        assertEquals(1, recovered.size());
+        assertEquals(first, recovered.get(0).id);
+    }
+
+    @Test
+    public void ignoresARecordCutByATruncatedFile() throws IOException {
+        long first = spool.append(METHOD, PrintSpool.FORMAT_CODEC, payload("a", 10));
+        spool.append(METHOD, PrintSpool.FORMAT_CODEC, payload("b", 100));
+        spool.close();
+
+        int cut = PrintSpool.HEADER_SIZE + recordSize(METHOD, 10) + recordSize(METHOD, 100) / 2;
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(cut);
+        } finally {
+            raf.close();
+        }
+
+        List<PrintSpool.Entry> recovered = reopen().getRecovered();
+        assertEquals(1, recovered.size());
+        assertEquals(first, recovered.get(0).id);
+    }
+
+    @Test
+    public void stopsAtTheFirstRecordWithABadCrc() throws IOException {
+        long first = spool.append(METHOD, PrintSpool.FORMAT_CODEC, payload("a", 10));
+        spool.append(METHOD, PrintSpool.FORMAT_CODEC, payload("b", 10));
+        spool.append(METHOD, PrintSpool.FORMAT_CODEC, payload("c", 10));
+        spool.close();
+
+        // Último byte dos dados do segundo registro
+        int second = PrintSpool.HEADER_SIZE + recordSize(METHOD, 10);
+        writeByte(second + recordSize(METHOD, 10) - 1, 'z');
+
+        // O terceiro está íntegro, mas vem depois de um registro corrompido
+        List<PrintSpool.Entry> recovered = reopen().getRecovered();
+        assertEquals(1, recovered.size());
+        assertEquals(first, recovered.get(0).id);
+    }
+
+    @Test
+    public void discardsAFileOfAnotherFormat() throws IOException {
+        spool.append(METHOD, PrintSpool.FORMAT_CODEC, payload("a", 10));
+        spool.close();
+        writeInt(4, PrintSpool.VERSION + 1);
+
+        PrintSpool reopened = reopen();
+        assertTrue(reopened.getRecovered().isEmpty());
+        assertEquals(1, reopened.append(METHOD, PrintSpool.FORMAT_CODEC, null));
+    }
+
+    @Test
+    public void readsVersionOneFiles() throws IOException {
+        long id = spool.append(METHOD, PrintSpool.FORMAT_CODEC, payload("a", 10));
+        spool.close();
+        writeInt(4, 1);
+
+        List<PrintSpool.Entry> recovered = reopen().getRecovered();
+        assertEquals(1, recovered.size());
+        assertEquals(id, recovered.get(0).id);
+    }
+
+    @Test
+    public void continuesIdsAcrossReopen() throws IOException {
+        spool.append(METHOD, PrintSpool.FORMAT_CODEC, null);
+        spool.append(METHOD, PrintSpool.FORMAT_CODEC, null);
+        long last = spool.append(METHOD, PrintSpool.FORMAT_CODEC, null);
+        for (long id = 1; id <= last; id++) {
+            spool.complete(id);
+        }
+
+        // Nada pendente: o próximo id vem do cabeçalho do arquivo novo
+        PrintSpool reopened = reopen();
+        assertTrue(reopened.getRecovered().isEmpty());
+        assertEquals(last + 1, reopened.append(METHOD, PrintSpool.FORMAT_CODEC, null));
+    }
+
+    @Test
+    public void compactionKeepsPendingJobsAttemptsAndConfigs() throws IOException {
+        spool.close();
+        spool = new PrintSpool(file, 4096);
+        spool.putConfig("callSetPixConfig", PrintSpool.FORMAT_CODEC, payload("old", 5));
+        spool.putConfig("callSetTicketTemplate210", PrintSpool.FORMAT_CODEC, payload("t", 40));
+        spool.putConfig("callSetPixConfig", PrintSpool.FORMAT_CODEC, payload("pix", 30));
+        long kept = spool.append(METHOD, PrintSpool.FORMAT_CODEC, payload("k", 100));
+        spool.setAttempts(kept, 2);
+        // Bem mais que o arquivo: várias compactações com o trabalho acima vivo
+        long last = 0;
+        for (int i = 0; i < 200; i++) {
+            last = spool.append(METHOD, PrintSpool.FORMAT_CODEC, payload("n" + i, 100));
+            spool.complete(last);
+        }
+        long pending = spool.append(METHOD, PrintSpool.FORMAT_CODEC, payload("p", 60));
+        assertTrue(spool.getUsedBytes() < 4096);
+        spool.close();
+
+        spool = new PrintSpool(file, 4096);
+        List<PrintSpool.Entry> recovered = spool.getRecovered();
+        assertEquals(2, recovered.size());
+        assertEntry(recovered.get(0), kept, METHOD, PrintSpool.FORMAT_CODEC, bytes("k", 100));
+        assertEquals(2, recovered.get(0).attempts);
+        assertEntry(recovered.get(1), pending, METHOD, PrintSpool.FORMAT_CODEC, bytes("p", 60));
+        assertEquals(0, recovered.get(1).attempts);
+        assertEquals(pending, last + 1);
+
+        List<PrintSpool.Entry> configs = spool.getConfigs();
+        assertEquals(2, configs.size());
+        assertEquals("callSetTicketTemplate210", configs.get(0).method);
+        assertArrayEquals(bytes("t", 40), configs.get(0).payload);
+        assertEquals("callSetPixConfig", configs.get(1).method);
+        assertArrayEquals(bytes("pix", 30), configs.get(1).payload);
+    }
+
+    @Test
+    public void keepsTheLastAttemptCountUntilComplete() throws IOException {
+        long id = spool.append(METHOD, PrintSpool.FORMAT_CODEC, null);
+        long other = spool.append(METHOD, PrintSpool.FORMAT_CODEC, null);
+        spool.setAttempts(id, 1);
+        spool.setAttempts(id, 2);
+        spool.setAttempts(other, 1);
+        spool.complete(other);
+        // Depois do complete não há o que contar
+        spool.setAttempts(other, 3);
+
+        PrintSpool reopened = reopen();
+        assertEquals(1, reopened.getRecovered().size());
+        assertEquals(2, reopened.getRecovered().get(0).attempts);
+    }
+
+    @Test
+    public void awaitDurableSeesTheGroupForce() throws Exception {
+        long id = spool.append(METHOD, PrintSpool.FORMAT_CODEC, payload("a", 10));
+
+        assertTrue(spool.awaitDurable(id, 2000));
+        assertTrue(spool.getForceCount() > 0);
+    }
+
+    @Test
+    public void awaitDurableReturnsRightAwayAfterClose() throws Exception {
+        long id = spool.append(METHOD, PrintSpool.FORMAT_CODEC, null);
+        spool.close();
+
+        long start = System.nanoTime();
+        // Um id que nunca vai ser gravado: sem o close, esperaria o tempo todo
+        assertFalse(spool.awaitDurable(id + 100, 10000));
+        assertTrue(System.nanoTime() - start < 1000000000L);
+        // O close leva ao disco o que já estava no mapa
+        assertTrue(spool.awaitDurable(id, 0));
+    }
+
+    @Test(expected = IOException.class)
+    public void refusesAppendsAfterClose() throws IOException {
+        spool.close();
+        spool.append(METHOD, PrintSpool.FORMAT_CODEC, null);
+    }
+
+    private PrintSpool reopen() throws IOException {
+        spool.close();
+        spool = new PrintSpool(file, CAPACITY);
+        return spool;
+    }
+
+    private static void assertEntry(PrintSpool.Entry entry, long id, String method, int format, byte[] payload) {
+        assertEquals(id, entry.id);
+        assertEquals(method, entry.method);
+        assertEquals(format, entry.format);
+        assertArrayEquals(payload, entry.payload);
+    }
+
+    /** Tamanho de um registro de trabalho no arquivo, com o cabeçalho. */
+    private static int recordSize(String method, int data) {
+        return 8 + 9 + 3 + method.getBytes(StandardCharsets.UTF_8).length + data;
+    }
+
+    private void writeInt(int position, int value) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(position);
+            raf.writeInt(value);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private void writeByte(int position, int value) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(position);
+            raf.write(value);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static ByteBuffer payload(String seed, int size) {
+        return ByteBuffer.wrap(bytes(seed, size));
+    }
+
+    private static byte[] bytes(String seed, int size) {
+        byte[] b = new byte[size];
+        byte[] s = seed.getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < size; i++) {
+            b[i] = s[i % s.length];
+        }
+        return b;
+    }
+}
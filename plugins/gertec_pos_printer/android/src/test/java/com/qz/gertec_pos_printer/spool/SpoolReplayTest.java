@@ -0,0 +1,219 @@
+package com.qz.gertec_pos_printer.spool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.qz.gertec_pos_printer.PrinterException;
+import com.qz.gertec_pos_printer.job.PrintJob;
+import com.qz.gertec_pos_printer.job.PrintJobQueue;
+import com.qz.gertec_pos_printer.job.PrintJobState;
+import com.qz.gertec_pos_printer.metrics.PrinterMetrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Reexecução do spool ligada a uma {@link PrintJobQueue} síncrona, como no
+ * plugin: begin antes do trabalho, finished e failed nos eventos de estado.
+ */
+public class SpoolReplayTest {
+    private static final int CAPACITY = 64 * 1024;
+    private static final String METHOD = "callPrintTicket210";
+    private static final Set<String> METHODS = Collections.singleton(METHOD);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private PrintSpool spool;
+    private final PrinterMetrics metrics = new PrinterMetrics();
+    private SpoolReplay replay;
+    private PrintJobQueue queue;
+    // Erro da "impressora"; 0 imprime
+    private int printerError;
+    private final List<Long> printed = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        file = new File(folder.getRoot(), "print_spool.journal");
+        spool = new PrintSpool(file, CAPACITY);
+    }
+
+    @After
+    public void tearDown() {
+        spool.close();
+    }
+
+    @Test
+    public void holdsAReplayWhileThePrinterIsNotBound() throws IOException {
+        long id = spool.append(METHOD, PrintSpool.FORMAT_CODEC, payload());
+        restart();
+
+        // O serviço da Topwise ainda não conectou depois do boot
+        printerError = PrinterException.ERROR_NOT_AVAILABLE;
+        replay.replay(METHODS);
+
+        assertTrue(printed.isEmpty());
+        assertEquals(1, replay.getHeldCount());
+        assertEquals(1, spool.getPendingCount());
+        assertEquals(1, metrics.getCounter("spool.held"));
+
+        // Sem conexão até o próximo boot: a senha ainda está lá, sem tentativa gasta
+        restart();
+        assertEquals(1, spool.getRecovered().size());
+        assertEquals(id, spool.getRecovered().get(0).id);
+        assertEquals(0, spool.getRecovered().get(0).attempts);
+    }
+
+    @Test
+    public void printsTheHeldReplayWhenThePrinterComesBack() throws IOException {
+        long id = spool.append(METHOD, PrintSpool.FORMAT_CODEC, payload());
+        restart();
+        printerError = PrinterException.ERROR_NOT_AVAILABLE;
+        replay.replay(METHODS);
+
+        printerError = 0;
+        replay.retryHeld();
+
+        assertEquals(Collections.singletonList(id), printed);
+        assertEquals(0, replay.getHeldCount());
+        assertEquals(0, spool.getPendingCount());
+        restart();
+        assertTrue(spool.getRecovered().isEmpty());
+    }
+
+    @Test
+    public void holdsOnEveryTransientError() throws IOException {
+        int[] errors = {PrinterException.ERROR_NOT_CONFIGURED, PrinterException.ERROR_OUT_OF_PAPER,
+                PrinterException.ERROR_OVERHEAT, PrinterException.ERROR_NOT_AVAILABLE};
+        for (int i = 0; i < errors.length; i++) {
+            spool.append(METHOD, PrintSpool.FORMAT_CODEC, payload());
+        }
+        restart();
+        final int[] next = {0};
+        queue = new PrintJobQueue(Runnable::run, job -> {
+            replay.begin(job.getSpoolId());
+            throw new PrinterException(errors[next[0]++], "estado");
+        }, this::onJobStateChanged);
+
+        replay.replay(METHODS);
+
+        assertEquals(errors.length, replay.getHeldCount());
+        assertEquals(errors.length, spool.getPendingCount());
+    }
+
+    @Test
+    public void completesAReplayThatFailsForGood() throws IOException {
+        spool.append(METHOD, PrintSpool.FORMAT_CODEC, payload());
+        restart();
+
+        printerError = PrinterException.ERROR_UNKNOWN;
+        replay.replay(METHODS);
+
+        assertEquals(0, replay.getHeldCount());
+        assertEquals(0, spool.getPendingCount());
+    }
+
+    @Test
+    public void completesAJobOfThisSessionEvenOnTransientErrors() throws IOException {
+        restart();
+        long spoolId = spool.append(METHOD, PrintSpool.FORMAT_CODEC, payload());
+
+        // O app recebe o erro no evento e decide; só as reexecuções ficam guardadas
+        printerError = PrinterException.ERROR_OUT_OF_PAPER;
+        queue.submit(METHOD, null, spoolId);
+
+        assertEquals(0, replay.getHeldCount());
+        assertEquals(0, spool.getPendingCount());
+    }
+
+    @Test
+    public void countsAnAttemptThatNeverAnswered() throws IOException {
+        spool.append(METHOD, PrintSpool.FORMAT_CODEC, payload());
+        restart();
+        // O processo cai durante a impressão: nenhum evento de fim
+        queue = new PrintJobQueue(Runnable::run, job -> replay.begin(job.getSpoolId()), null);
+        replay.replay(METHODS);
+
+        restart();
+        assertEquals(1, spool.getRecovered().get(0).attempts);
+    }
+
+    @Test
+    public void abandonsAJobAfterMaxAttempts() throws IOException {
+        long id = spool.append(METHOD, PrintSpool.FORMAT_CODEC, payload());
+        spool.setAttempts(id, SpoolReplay.MAX_ATTEMPTS);
+        restart();
+
+        replay.replay(METHODS);
+
+        assertTrue(printed.isEmpty());
+        assertEquals(0, spool.getPendingCount());
+        assertEquals(1, metrics.getCounter("spool.abandoned"));
+    }
+
+    @Test
+    public void completesJobsOfOtherMethodsWithoutRunning() throws IOException {
+        spool.append("callCut210", PrintSpool.FORMAT_CODEC, null);
+        long id = spool.append(METHOD, PrintSpool.FORMAT_CODEC, payload());
+        restart();
+
+        replay.replay(METHODS);
+
+        assertEquals(Collections.singletonList(id), printed);
+        assertEquals(0, spool.getPendingCount());
+    }
+
+    @Test
+    public void completesAJobItCannotSubmit() throws IOException {
+        spool.append(METHOD, PrintSpool.FORMAT_CODEC, payload());
+        restart();
+        replay = new SpoolReplay(spool, metrics, entry -> {
+            throw new IllegalArgumentException("ilegível");
+        });
+
+        replay.replay(METHODS);
+
+        assertEquals(0, spool.getPendingCount());
+        assertEquals(1, metrics.getCounter("spool.errors"));
+    }
+
+    /** Fecha e abre o spool, como um novo attach, com fila e replay novos. */
+    private void restart() throws IOException {
+        spool.close();
+        spool = new PrintSpool(file, CAPACITY);
+        replay = new SpoolReplay(spool, metrics, entry -> queue.submit(entry.method, null, entry.id));
+        queue = new PrintJobQueue(Runnable::run, this::print, this::onJobStateChanged);
+    }
+
+    private void print(PrintJob job) throws PrinterException {
+        replay.begin(job.getSpoolId());
+        if (printerError != 0) {
+            throw new PrinterException(printerError, "Impressora SK210 indisponível");
+        }
+        printed.add(job.getSpoolId());
+    }
+
+    private void onJobStateChanged(PrintJob job, int errorCode, String message) {
+        if (job.getState() == PrintJobState.FINISHED) {
+            replay.finished(job.getSpoolId());
+        } else if (job.getState() == PrintJobState.ERROR) {
+            replay.failed(job.getSpoolId(), errorCode);
+        }
+    }
+
+    private static ByteBuffer payload() {
+        return ByteBuffer.wrap(new byte[]{1, 2, 3});
+    }
+}
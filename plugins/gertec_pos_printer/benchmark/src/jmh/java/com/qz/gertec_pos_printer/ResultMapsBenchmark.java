@@ -0,0 +1,28 @@
+package com.qz.gertec_pos_printer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** Resposta montada para cada chamada do canal. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ResultMapsBenchmark {
+
+    @Benchmark
+    public Map<String, Object> success() {
+        return ResultMaps.of("success", "", true);
+    }
+
+    @Benchmark
+    public Map<String, Object> error() {
+        return ResultMaps.of("Error", "Impressora sem papel", false);
+    }
+}
@@ -0,0 +1,68 @@
+package com.qz.gertec_pos_printer.barcode;
+
+import com.google.zxing.WriterException;
+import com.qz.gertec_pos_printer.raster.MonoRaster;
+import com.qz.gertec_pos_printer.raster.SegmentCache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Geração de QR e códigos de barras, com e sem cache, e a montagem do payload
+ * PIX por senha.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BarcodeBenchmark {
+    private SegmentCache cache;
+    private QrRenderer qr;
+    private BarcodeRenderer barcodes;
+    private PixPayloadBuilder pix;
+    private CharSequence pixPayload;
+    private long ticket;
+
+    @Setup
+    public void setUp() throws WriterException {
+        cache = new SegmentCache();
+        qr = new QrRenderer(cache);
+        barcodes = new BarcodeRenderer(cache, qr);
+        pix = new PixPayloadBuilder("123e4567-e12b-12d1-a456-426655440000", "Tenda Umbandista", "São Paulo",
+                "Contribuicao da gira");
+        pixPayload = pix.build(1500, "GIRA42").toString();
+        qr.render(pixPayload, QrRenderer.DEFAULT_SCAN_SIZE);
+    }
+
+    /** QR do PIX novo: ZXing e desenho, sem cache. */
+    @Benchmark
+    public MonoRaster qrMiss() throws WriterException {
+        return qr.encode(pixPayload.toString(), QrRenderer.DEFAULT_SCAN_SIZE);
+    }
+
+    /** Mesmo QR da senha anterior: só hash e busca. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public MonoRaster qrHit() throws WriterException {
+        return qr.render(pixPayload, QrRenderer.DEFAULT_SCAN_SIZE);
+    }
+
+    /** Código da senha muda a cada impressão: sempre sem cache. */
+    @Benchmark
+    public MonoRaster code128Miss() throws WriterException {
+        cache.clear();
+        return barcodes.render(Symbology.CODE_128, "SENHA-" + (ticket++ % 1000), 0, 0);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public CharSequence pixBuild() {
+        return pix.build(1500 + (ticket++ & 0xFF), "GIRA42");
+    }
+}
@@ -0,0 +1,55 @@
+package com.qz.gertec_pos_printer.raster;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversão de uma imagem na largura da cabeça para 1 bit, inteira (com as
+ * faixas em paralelo) e faixa a faixa como no modo de streaming.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DitherBenchmark {
+
+    @Param({"THRESHOLD", "ORDERED", "FLOYD_STEINBERG"})
+    public Dither.Mode mode;
+
+    @Param({"1024"})
+    public int height;
+
+    private int[] argb;
+    private MonoRaster band;
+    private Dither.Diffuser diffuser;
+
+    @Setup
+    public void setUp() {
+        argb = Images.photo(MonoRaster.MAX_WIDTH, height);
+        band = MonoRaster.create(MonoRaster.MAX_WIDTH, height);
+        diffuser = new Dither.Diffuser(MonoRaster.MAX_WIDTH);
+    }
+
+    @Benchmark
+    public MonoRaster whole() {
+        return Dither.dither(argb, MonoRaster.MAX_WIDTH, height, mode);
+    }
+
+    @Benchmark
+    public MonoRaster sequentialRows() {
+        if (mode == Dither.Mode.FLOYD_STEINBERG) {
+            diffuser.reset();
+            diffuser.ditherRows(argb, 0, height, band, 0);
+        } else {
+            Dither.ditherRows(argb, MonoRaster.MAX_WIDTH, 0, height, mode, band, 0);
+        }
+        return band;
+    }
+}
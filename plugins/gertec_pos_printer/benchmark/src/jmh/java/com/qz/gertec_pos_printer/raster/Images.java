@@ -0,0 +1,48 @@
+package com.qz.gertec_pos_printer.raster;
+
+import java.util.Random;
+
+/** Imagens sintéticas com o formato das senhas impressas. */
+final class Images {
+
+    private Images() {
+    }
+
+    /**
+     * Degradê horizontal com ruído, como um logo fotográfico: nenhum
+     * algoritmo de dither tem caminho rápido para ele.
+     */
+    static int[] photo(int width, int height) {
+        Random random = new Random(42);
+        int[] argb = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int g = Math.min(255, Math.max(0, x * 255 / (width - 1) + random.nextInt(33) - 16));
+                argb[y * width + x] = 0xFF000000 | g << 16 | g << 8 | g;
+            }
+        }
+        return argb;
+    }
+
+    /**
+     * Senha em 1 bit: faixas de "texto" de 24 linhas separadas por brancos de
+     * 8 a 72 linhas, como as linhas vazias do layout.
+     */
+    static MonoRaster ticket(int height) {
+        Random random = new Random(7);
+        MonoRaster raster = MonoRaster.create(MonoRaster.MAX_WIDTH, height);
+        int y = 0;
+        while (y < height) {
+            int end = Math.min(height, y + 24);
+            for (; y < end; y++) {
+                for (int x = 16; x < MonoRaster.MAX_WIDTH - 16; x++) {
+                    if (random.nextInt(4) == 0) {
+                        raster.setBlack(x, y);
+                    }
+                }
+            }
+            y += 8 + random.nextInt(65);
+        }
+        return raster;
+    }
+}
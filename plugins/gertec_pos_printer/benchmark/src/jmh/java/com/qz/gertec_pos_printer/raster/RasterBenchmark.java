@@ -0,0 +1,63 @@
+package com.qz.gertec_pos_printer.raster;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Etapas do caminho de imagem que rodam antes do printBmp em toda senha. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RasterBenchmark {
+    // Foto de celular reduzida para a cabeça: 3x na largura
+    private static final int SRC_WIDTH = 1152;
+    private static final int SRC_HEIGHT = 1536;
+    private static final int DST_HEIGHT = 512;
+
+    private int[] photo;
+    private int[] scaled;
+    private int[] row;
+    private MonoRaster packed;
+    private MonoRaster ticket;
+    private byte[] ticketBytes;
+
+    @Setup
+    public void setUp() {
+        photo = Images.photo(SRC_WIDTH, SRC_HEIGHT);
+        scaled = new int[MonoRaster.MAX_WIDTH * DST_HEIGHT];
+        row = Images.photo(MonoRaster.MAX_WIDTH, 1);
+        packed = MonoRaster.create(MonoRaster.MAX_WIDTH, 1);
+        ticket = Images.ticket(1024);
+        ticketBytes = ticket.getData();
+    }
+
+    @Benchmark
+    public int[] areaAverageScale() {
+        AreaAverageScaler.scale(photo, SRC_WIDTH, SRC_HEIGHT, scaled, MonoRaster.MAX_WIDTH, DST_HEIGHT);
+        return scaled;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public MonoRaster packRow() {
+        packed.packRow(0, row, 128);
+        return packed;
+    }
+
+    @Benchmark
+    public List<BlankRows.Run> blankRows() {
+        return BlankRows.split(ticket, 24);
+    }
+
+    @Benchmark
+    public long contentHash() {
+        return ContentHash.of(ticketBytes);
+    }
+}
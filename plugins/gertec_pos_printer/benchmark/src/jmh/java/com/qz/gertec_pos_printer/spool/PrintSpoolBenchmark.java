@@ -0,0 +1,54 @@
+package com.qz.gertec_pos_printer.spool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo do spool por senha: gravar o trabalho e marcar o fim, com o force em
+ * grupo rodando ao lado. Inclui as compactações quando o arquivo enche.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PrintSpoolBenchmark {
+
+    /** Argumentos de uma senha em texto e de um bitmap pequeno. */
+    @Param({"512", "16384"})
+    public int payloadSize;
+
+    private File file;
+    private PrintSpool spool;
+    private ByteBuffer payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("spool", ".journal");
+        spool = new PrintSpool(file, 4 * 1024 * 1024);
+        payload = ByteBuffer.wrap(new byte[payloadSize]);
+    }
+
+    @TearDown
+    public void tearDown() {
+        spool.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public long appendAndComplete() throws IOException {
+        long id = spool.append("callPrintBitmap210", PrintSpool.FORMAT_CODEC, payload);
+        spool.complete(id);
+        return id;
+    }
+}
@@ -0,0 +1,49 @@
+package com.qz.gertec_pos_printer.wire;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/** Leitura de uma senha (texto, raster de 384 pontos e corte) de um buffer direto. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WireMessageBenchmark {
+
+    @Param({"64", "1024"})
+    public int rows;
+
+    private ByteBuffer message;
+
+    @Setup
+    public void setUp() {
+        byte[] text = "SENHA A123 - Guichê 4".getBytes(StandardCharsets.UTF_8);
+        byte[] raster = new byte[48 * rows];
+        for (int i = 0; i < raster.length; i++) {
+            raster[i] = (byte) (i * 31);
+        }
+        message = ByteBuffer.allocateDirect(4 + 6 + 8 + text.length + 6 + 8 + raster.length + 6);
+        message.put((byte) WireProtocol.VERSION).put((byte) 0).putShort((short) 3);
+        message.put((byte) WireProtocol.OP_TEXT).put((byte) WireProtocol.FLAG_BOLD).putInt(8 + text.length);
+        message.putInt(48).putInt(text.length).put(text);
+        message.put((byte) WireProtocol.OP_RASTER).put((byte) 0).putInt(8 + raster.length);
+        message.putInt(384).putInt(raster.length).put(raster);
+        message.put((byte) WireProtocol.OP_CUT).put((byte) 0).putInt(0);
+        message.flip();
+    }
+
+    @Benchmark
+    public WireMessage decode() {
+        message.rewind();
+        return WireMessage.decode(message);
+    }
+}
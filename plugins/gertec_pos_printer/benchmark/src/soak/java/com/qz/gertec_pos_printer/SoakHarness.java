@@ -0,0 +1,277 @@
+package com.qz.gertec_pos_printer;
+
+import com.qz.gertec_pos_printer.backend.SimulatedPrinterBackend;
+import com.qz.gertec_pos_printer.backend.SimulatedPrinterBackend.Operation;
+import com.qz.gertec_pos_printer.barcode.Symbology;
+import com.qz.gertec_pos_printer.job.PrintJob;
+import com.qz.gertec_pos_printer.job.PrintJobQueue;
+import com.qz.gertec_pos_printer.job.PrintJobState;
+import com.qz.gertec_pos_printer.raster.MonoRaster;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Teste de carga: uma abertura de gira inteira passando pela
+ * {@link PrintJobQueue} e pela {@link PrinterThread} do plugin, com o
+ * {@link SimulatedPrinterBackend} no lugar do aparelho.
+ *
+ * As senhas chegam em rajadas (uma fila se formando na frente do totem). Cada
+ * senha tem logo, texto, QR Code fixo, código de barras com o número e corte.
+ * Falta de papel e superaquecimento são injetados em senhas sorteadas; a senha
+ * que falha volta para a fila quando a impressora se recupera, como o app faz.
+ *
+ * Parâmetros em {@code --nome=valor}:
+ *
+ *   tickets=300   senhas emitidas
+ *   minutes=15    duração da gira
+ *   burst=8       tamanho máximo de uma rajada
+ *   speed=1       acelera o relógio (60 roda 15 minutos em 15 segundos); as
+ *                 latências do relatório voltam para o tempo real
+ *   paperOut=1    trocas de bobina (60 s cada)
+ *   overheat=2    superaquecimentos (20 s cada)
+ *   seed=42
+ *
+ * O relatório traz p50/p99 da emissão (chegada até o papel cortado), a maior
+ * fila e o uso do heap.
+ */
+public final class SoakHarness {
+    // Latências de um SK210: 100 mm/s a 8 pontos por mm e a ida e volta do AIDL
+    private static final long ROW_MICROS = 1250;
+    private static final long CALL_MICROS = 5000;
+    private static final long CUT_MICROS = 300000;
+    private static final long STATUS_MICROS = 2000;
+    private static final long PAPER_SWAP_MS = 60000;
+    private static final long OVERHEAT_MS = 20000;
+    private static final long RETRY_MS = 1000;
+    private static final long SAMPLE_MS = 50;
+
+    private final Map<String, String> args;
+    private final double speed;
+    private final SimulatedPrinterBackend backend = new SimulatedPrinterBackend();
+    private final MonoRaster logo = logo();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1, r -> {
+        Thread t = new Thread(r, "soak-scheduler");
+        t.setDaemon(true);
+        return t;
+    });
+    private final PrinterThread printerThread = new PrinterThread();
+    private final PrintJobQueue queue;
+
+    private long[] latencyNanos;
+    private CountDownLatch done;
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicBoolean swapping = new AtomicBoolean();
+    private final AtomicInteger maxPending = new AtomicInteger();
+    private final AtomicLong maxHeap = new AtomicLong();
+
+    /** Uma senha e o instante em que a pessoa chegou ao totem. */
+    private static final class Ticket {
+        final int number;
+        final long arrivedAt;
+
+        Ticket(int number, long arrivedAt) {
+            this.number = number;
+            this.arrivedAt = arrivedAt;
+        }
+    }
+
+    private SoakHarness(Map<String, String> args) {
+        this.args = args;
+        this.speed = Double.parseDouble(arg("speed", "1"));
+        backend.setRowLatency(scaled(ROW_MICROS));
+        for (Operation op : Operation.values()) {
+            backend.setLatency(op, scaled(CALL_MICROS));
+        }
+        backend.setLatency(Operation.CUT, scaled(CUT_MICROS));
+        backend.setLatency(Operation.STATUS, scaled(STATUS_MICROS));
+        this.queue = new PrintJobQueue(printerThread, job -> printTicket((Ticket) job.getArguments()),
+                this::onJobStateChanged);
+    }
+
+    public static void main(String[] argv) throws Exception {
+        Map<String, String> args = new HashMap<>();
+        for (String a : argv) {
+            int eq = a.indexOf('=');
+            if (!a.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Parâmetro inválido: " + a);
+            }
+            args.put(a.substring(2, eq), a.substring(eq + 1));
+        }
+        new SoakHarness(args).run();
+    }
+
+    private void run() throws InterruptedException {
+        int tickets = Integer.parseInt(arg("tickets", "300"));
+        double minutes = Double.parseDouble(arg("minutes", "15"));
+        int burst = Integer.parseInt(arg("burst", "8"));
+        Random random = new Random(Long.parseLong(arg("seed", "42")));
+        int[] faultAt = faults(random, tickets);
+
+        latencyNanos = new long[tickets];
+        done = new CountDownLatch(tickets);
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        scheduler.scheduleAtFixedRate(() -> {
+            maxHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+            maxPending.accumulateAndGet(queue.getPendingCount(), Math::max);
+        }, 0, SAMPLE_MS, TimeUnit.MILLISECONDS);
+
+        System.out.printf(Locale.ROOT, "%d senhas em %.1f min, rajadas de até %d, relógio %.0fx%n",
+                tickets, minutes, burst, speed);
+        long start = System.nanoTime();
+        // Intervalo médio entre rajadas para fechar as senhas na duração pedida
+        double meanGapNanos = minutes * 60e9 / speed * (burst + 1) / 2 / tickets;
+        long due = start;
+        for (int number = 0; number < tickets; ) {
+            int size = Math.min(1 + random.nextInt(burst), tickets - number);
+            for (int i = 0; i < size; i++, number++) {
+                if (faultAt[number] != 0) {
+                    // A falha acontece no meio da senha
+                    backend.injectFault(faultAt[number] > 0 ? PrinterState.OUT_OF_PAPER : PrinterState.OVERHEAT,
+                            2, faultAt[number] > 0 ? 0 : (long) (OVERHEAT_MS / speed));
+                }
+                queue.submit("ticket", new Ticket(number, System.nanoTime()));
+            }
+            due += (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        scheduler.shutdownNow();
+        printerThread.shutdown();
+        report(tickets, elapsed, memory);
+    }
+
+    /** Sorteia as senhas com falha: 1 troca de bobina, -1 superaquecimento. */
+    private int[] faults(Random random, int tickets) {
+        int[] faultAt = new int[tickets];
+        int paperOut = Integer.parseInt(arg("paperOut", "1"));
+        int overheat = Integer.parseInt(arg("overheat", "2"));
+        for (int i = 0; i < paperOut + overheat && i < tickets; i++) {
+            int at;
+            do {
+                at = random.nextInt(tickets);
+            } while (faultAt[at] != 0);
+            faultAt[at] = i < paperOut ? 1 : -1;
+        }
+        return faultAt;
+    }
+
+    private void printTicket(Ticket ticket) throws Exception {
+        String code = String.format(Locale.ROOT, "A%03d", ticket.number + 1);
+        backend.printRaster(logo);
+        backend.printText("TERREIRO CABOCLO ROMPE MATO", 24, true);
+        backend.printText("Gira de Caboclos", 24, false);
+        backend.printText("Senha " + code, 48, true);
+        backend.printText("Médium: Pai Joaquim", 24, false);
+        backend.printText("18/10/2026 19:30", 24, false);
+        backend.printQrCode("https://terreiro.example/gira", 160);
+        backend.printBarcode(Symbology.CODE_128, code, 0, 0);
+        backend.feed(72);
+        backend.cut();
+        backend.flush();
+    }
+
+    private void onJobStateChanged(PrintJob job, int errorCode, String message) {
+        Ticket ticket = (Ticket) job.getArguments();
+        if (job.getState() == PrintJobState.FINISHED) {
+            latencyNanos[ticket.number] = System.nanoTime() - ticket.arrivedAt;
+            done.countDown();
+        } else if (job.getState() == PrintJobState.ERROR) {
+            failures.incrementAndGet();
+            if (errorCode == PrinterException.ERROR_OUT_OF_PAPER && swapping.compareAndSet(false, true)) {
+                scheduler.schedule(() -> {
+                    backend.clearFault();
+                    swapping.set(false);
+                }, (long) (PAPER_SWAP_MS / speed), TimeUnit.MILLISECONDS);
+            }
+            retry(ticket);
+        }
+    }
+
+    // Reenvia a senha quando a impressora volta; o tempo de espera conta na emissão
+    private void retry(Ticket ticket) {
+        scheduler.schedule(() -> {
+            try {
+                if (backend.getState() == PrinterState.OK) {
+                    queue.submit("ticket", ticket);
+                } else {
+                    retry(ticket);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, (long) (RETRY_MS / speed), TimeUnit.MILLISECONDS);
+    }
+
+    private void report(int tickets, long elapsed, MemoryMXBean memory) {
+        long[] sorted = latencyNanos.clone();
+        Arrays.sort(sorted);
+        System.gc();
+        long retained = memory.getHeapMemoryUsage().getUsed();
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+            gcMillis += Math.max(0, gc.getCollectionTime());
+        }
+        System.out.printf(Locale.ROOT, "duração: %.1f s (real %.1f s)%n", elapsed * speed / 1e9, elapsed / 1e9);
+        System.out.printf(Locale.ROOT, "senhas: %d emitidas, %d tentativas com falha, %d falhas injetadas%n",
+                tickets, failures.get(), backend.getFaultCount());
+        System.out.printf(Locale.ROOT, "emissão (ms): p50 %.0f  p90 %.0f  p99 %.0f  máx %.0f%n",
+                millis(percentile(sorted, 50)), millis(percentile(sorted, 90)),
+                millis(percentile(sorted, 99)), millis(sorted[sorted.length - 1]));
+        System.out.printf(Locale.ROOT, "maior fila: %d senhas%n", maxPending.get());
+        System.out.printf(Locale.ROOT, "papel: %.2f m%n", backend.getPrintedRows() / 8.0 / 1000);
+        System.out.printf(Locale.ROOT, "heap: pico %.1f MB, depois do GC %.1f MB; %d coletas em %d ms%n",
+                maxHeap.get() / 1048576.0, retained / 1048576.0, gcCount, gcMillis);
+    }
+
+    // Nearest-rank
+    private static long percentile(long[] sorted, int p) {
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private double millis(long nanos) {
+        return nanos * speed / 1e6;
+    }
+
+    private long scaled(long micros) {
+        return Math.round(micros / speed);
+    }
+
+    private String arg(String name, String fallback) {
+        String value = args.get(name);
+        return value != null ? value : fallback;
+    }
+
+    // Faixa 384 x 96 com moldura, no lugar do logo do terreiro
+    private static MonoRaster logo() {
+        MonoRaster raster = MonoRaster.create(MonoRaster.MAX_WIDTH, 96);
+        for (int y = 0; y < raster.getHeight(); y++) {
+            for (int x = 0; x < raster.getWidth(); x++) {
+                if (y < 4 || y >= 92 || x < 4 || x >= 380 || ((x / 16 + y / 16) & 1) == 0 && y > 24 && y < 72) {
+                    raster.setBlack(x, y);
+                }
+            }
+        }
+        return raster;
+    }
+}
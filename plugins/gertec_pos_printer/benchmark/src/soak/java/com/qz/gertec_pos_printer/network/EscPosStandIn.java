@@ -0,0 +1,151 @@
+package com.qz.gertec_pos_printer.network;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Impressora de rede de mentira, na porta local: lê o ESC/POS que o
+ * {@link NetworkPrinterBackend} manda, conta linhas de imagem, avanços e
+ * cortes, e responde o {@code DLE EOT} com o estado programado.
+ *
+ * Atende uma conexão por vez, como as térmicas de rede.
+ */
+final class EscPosStandIn implements AutoCloseable {
+    private final ServerSocket server;
+    private final Thread thread;
+    private volatile Socket client;
+
+    final AtomicLong bytes = new AtomicLong();
+    final AtomicLong rasterRows = new AtomicLong();
+    final AtomicLong feedDots = new AtomicLong();
+    final AtomicInteger textLines = new AtomicInteger();
+    final AtomicInteger cuts = new AtomicInteger();
+    final AtomicInteger inits = new AtomicInteger();
+    final AtomicInteger statusRequests = new AtomicInteger();
+    final AtomicInteger connections = new AtomicInteger();
+    volatile boolean paperOut;
+    volatile boolean overheat;
+    /** Sem resposta ao DLE EOT, como muitas impressoras genéricas. */
+    volatile boolean mute;
+
+    EscPosStandIn() throws IOException {
+        server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        thread = new Thread(this::accept, "escpos-stand-in");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    int getPort() {
+        return server.getLocalPort();
+    }
+
+    /** Derruba a conexão atual, como um cabo puxado ou a impressora reiniciando. */
+    void dropConnection() throws IOException {
+        Socket s = client;
+        if (s != null) {
+            s.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        dropConnection();
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try (Socket s = server.accept()) {
+                client = s;
+                connections.incrementAndGet();
+                serve(new BufferedInputStream(s.getInputStream(), 65536), s.getOutputStream());
+            } catch (IOException e) {
+                // conexão caiu; espera a próxima
+            }
+        }
+    }
+
+    private void serve(InputStream in, OutputStream out) throws IOException {
+        int b;
+        while ((b = read(in)) >= 0) {
+            if (b == EscPos.ESC) {
+                int op = read(in);
+                if (op == '@') {
+                    inits.incrementAndGet();
+                } else if (op == 'J') {
+                    feedDots.addAndGet(read(in));
+                } else {
+                    // t, E, a: um parâmetro
+                    read(in);
+                }
+            } else if (b == EscPos.GS) {
+                int op = read(in);
+                if (op == 'V') {
+                    read(in);
+                    read(in);
+                    cuts.incrementAndGet();
+                } else if (op == 'v') {
+                    read(in);
+                    read(in);
+                    int stride = read(in) | read(in) << 8;
+                    int rows = read(in) | read(in) << 8;
+                    skip(in, (long) stride * rows);
+                    rasterRows.addAndGet(rows);
+                } else {
+                    read(in);
+                }
+            } else if (b == EscPos.DLE) {
+                read(in);
+                int n = read(in);
+                statusRequests.incrementAndGet();
+                if (!mute) {
+                    out.write(reply(n));
+                    out.flush();
+                }
+            } else if (b == EscPos.LF) {
+                textLines.incrementAndGet();
+            }
+        }
+    }
+
+    private int reply(int n) {
+        int b = 0x12;
+        if (n == EscPos.STATUS_ERROR && overheat) {
+            b |= 0x40;
+        } else if (n == EscPos.STATUS_PAPER && paperOut) {
+            b |= 0x60;
+        } else if (n == EscPos.STATUS_PRINTER && (paperOut || overheat)) {
+            b |= 0x08;
+        }
+        return b;
+    }
+
+    private int read(InputStream in) throws IOException {
+        int b = in.read();
+        if (b >= 0) {
+            bytes.incrementAndGet();
+        }
+        return b;
+    }
+
+    private void skip(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    return;
+                }
+                skipped = 1;
+            }
+            bytes.addAndGet(skipped);
+            n -= skipped;
+        }
+    }
+}
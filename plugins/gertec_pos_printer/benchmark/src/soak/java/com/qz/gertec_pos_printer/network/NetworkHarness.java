@@ -0,0 +1,172 @@
+package com.qz.gertec_pos_printer.network;
+
+import com.qz.gertec_pos_printer.PrinterException;
+import com.qz.gertec_pos_printer.PrinterState;
+import com.qz.gertec_pos_printer.barcode.Symbology;
+import com.qz.gertec_pos_printer.metrics.PrinterMetrics;
+import com.qz.gertec_pos_printer.raster.MonoRaster;
+import com.qz.gertec_pos_printer.raster.SegmentCache;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * O {@link NetworkPrinterBackend} contra o {@link EscPosStandIn}: senhas em
+ * sequência pela mesma conexão, status por {@code DLE EOT}, queda e
+ * reconexão, impressora que não responde o status. Termina com código 1 se
+ * algo não bate.
+ *
+ * Parâmetro em {@code --tickets=200}.
+ */
+public final class NetworkHarness {
+    private static final long WAIT_MS = 8000;
+
+    private static int failures;
+
+    public static void main(String[] argv) throws Exception {
+        int tickets = 200;
+        for (String arg : argv) {
+            if (arg.startsWith("--tickets=")) {
+                tickets = Integer.parseInt(arg.substring("--tickets=".length()));
+            }
+        }
+        MonoRaster logo = logo();
+        try (EscPosStandIn printer = new EscPosStandIn()) {
+            PrinterMetrics metrics = new PrinterMetrics();
+            NetworkPrinterBackend backend =
+                    new NetworkPrinterBackend("127.0.0.1", printer.getPort(), new SegmentCache(), metrics);
+            check("conecta e lê o status", waitFor(() -> backend.getState() == PrinterState.OK));
+
+            // Senhas em sequência: a conexão é a mesma do começo ao fim
+            long[] nanos = new long[tickets];
+            long rowsPerTicket = -1;
+            for (int i = 0; i < tickets; i++) {
+                long rowsBefore = printer.rasterRows.get() + printer.feedDots.get();
+                long start = System.nanoTime();
+                ticket(backend, logo, i);
+                nanos[i] = System.nanoTime() - start;
+                if (i == 0) {
+                    waitFor(() -> printer.cuts.get() == 1);
+                    rowsPerTicket = printer.rasterRows.get() + printer.feedDots.get() - rowsBefore;
+                }
+            }
+            final int expected = tickets;
+            check("todas as senhas cortadas", waitFor(() -> printer.cuts.get() == expected));
+            check("uma conexão só", printer.connections.get() == 1);
+            Arrays.sort(nanos);
+            System.out.printf(Locale.ROOT, "%d senhas, %d linhas da cabeça cada, %.1f KB no fio%n",
+                    tickets, rowsPerTicket, printer.bytes.get() / 1024.0);
+            System.out.printf(Locale.ROOT, "por senha: p50 %.2f ms, p99 %.2f ms, máx %.2f ms%n",
+                    nanos[tickets / 2] / 1e6, nanos[tickets * 99 / 100] / 1e6, nanos[tickets - 1] / 1e6);
+            // 100 mm/s a 8 pontos por mm: 1,25 ms por linha da cabeça
+            System.out.printf(Locale.ROOT, "papel de uma senha na cabeça do SK210: %.0f ms%n", rowsPerTicket * 1.25);
+
+            // Status: sem papel
+            printer.paperOut = true;
+            check("vê a falta de papel", waitFor(() -> backend.getState() == PrinterState.OUT_OF_PAPER));
+            check("recusa imprimir sem papel", failsWith(backend, logo, PrinterException.ERROR_OUT_OF_PAPER));
+            printer.paperOut = false;
+            check("volta ao normal", waitFor(() -> backend.getState() == PrinterState.OK));
+
+            // Queda: a próxima senha sai depois de reconectar sozinha
+            printer.dropConnection();
+            check("percebe a queda", waitFor(() -> !backend.isConnected()));
+            int cuts = printer.cuts.get();
+            ticket(backend, logo, tickets);
+            check("imprime depois de reconectar",
+                    waitFor(() -> printer.cuts.get() == cuts + 1) && printer.connections.get() == 2);
+            check("reinicia a impressora a cada conexão", printer.inits.get() == 2);
+
+            // Impressora que não responde DLE EOT: estado desconhecido, mas a conexão fica
+            printer.mute = true;
+            check("status desconhecido sem resposta",
+                    waitFor(() -> backend.getState() == PrinterState.UNKNOWN, NetworkPrinterBackend.STATUS_TIMEOUT_MS + WAIT_MS));
+            int mutedCuts = printer.cuts.get();
+            ticket(backend, logo, tickets + 1);
+            check("imprime sem resposta ao status",
+                    waitFor(() -> printer.cuts.get() == mutedCuts + 1) && backend.isConnected()
+                            && printer.connections.get() == 2);
+            printer.mute = false;
+            check("volta a ler o status",
+                    waitFor(() -> backend.getState() == PrinterState.OK, NetworkPrinterBackend.STATUS_TIMEOUT_MS + WAIT_MS));
+
+            // Sem impressora: o flush desiste no tempo
+            printer.close();
+            waitFor(() -> !backend.isConnected());
+            backend.setFlushTimeout(500);
+            check("timeout sem impressora", failsWith(backend, logo, PrinterException.ERROR_TIMEOUT));
+            backend.close();
+            System.out.println("contadores: net.connects=" + metrics.getCounter("net.connects")
+                    + " net.disconnects=" + metrics.getCounter("net.disconnects")
+                    + " net.bytes=" + metrics.getCounter("net.bytes"));
+        }
+        if (failures > 0) {
+            System.out.println(failures + " verificações falharam");
+            System.exit(1);
+        }
+        System.out.println("ok");
+    }
+
+    private static void ticket(NetworkPrinterBackend backend, MonoRaster logo, int number) throws Exception {
+        backend.printRaster(logo);
+        backend.printText("GIRA DE PRETOS VELHOS", 36, true);
+        backend.printText("Médium: João Conceição", 24, false);
+        backend.printText(String.format(Locale.ROOT, "A%03d", number), 72, true);
+        backend.printQrCode("https://exemplo.com.br/senha/" + number, 200);
+        backend.printBarcode(Symbology.CODE_128, String.format(Locale.ROOT, "A%06d", number), 0, 0);
+        backend.feed(48);
+        backend.cut();
+        backend.flush();
+    }
+
+    private static boolean failsWith(NetworkPrinterBackend backend, MonoRaster logo, int code) {
+        try {
+            ticket(backend, logo, 0);
+            return false;
+        } catch (PrinterException e) {
+            return e.getErrorCode() == code;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /** Logo 384x120 com uma faixa branca no meio. */
+    private static MonoRaster logo() {
+        MonoRaster raster = MonoRaster.create(MonoRaster.MAX_WIDTH, 120);
+        for (int y = 0; y < 120; y++) {
+            if (y >= 50 && y < 70) {
+                continue;
+            }
+            for (int x = (y * 7) % 11; x < MonoRaster.MAX_WIDTH; x += 5) {
+                raster.setBlack(x, y);
+            }
+        }
+        return raster;
+    }
+
+    private interface Condition {
+        boolean holds();
+    }
+
+    private static boolean waitFor(Condition condition) throws InterruptedException {
+        return waitFor(condition, WAIT_MS);
+    }
+
+    private static boolean waitFor(Condition condition, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!condition.holds()) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "  ok    " : "  FALHA ") + what);
+        if (!ok) {
+            failures++;
+        }
+    }
+}
@@ -1 +1 @@
-enum BarcodeType { qrcode, code128, ean8, ean13, pdf417 }
+enum BarcodeType { qrcode, code128, ean8, ean13, itf, pdf417 }
@@ -6,5 +6,17 @@ abstract class IGertecPrinterException implements Exception {
 
 /// Exception to handle errors in the GertecPrinter class
 class GertecPrinterException extends IGertecPrinterException {
-  GertecPrinterException(super.message);
+  //PrinterException code from the plugin (-3 not available, -4 out of paper,
+  //-5 overheat, -6 not configured); null when the error did not come from it
+  final int? code;
+
+  GertecPrinterException(super.message, {this.code});
+
+  //From a plugin response with success: false
+  factory GertecPrinterException.fromResponse(dynamic response) {
+    return GertecPrinterException(response['message'].toString(), code: response['errorCode'] as int?);
+  }
+
+  @override
+  String toString() => code != null ? 'GertecPrinterException($code): $message' : 'GertecPrinterException: $message';
 }
@@ -0,0 +1,144 @@
+import 'dart:convert';
+import 'dart:typed_data';
+
+import 'package:gertec_pos_printer/printer/domain/enum/barcode_type.dart';
+
+//Builds one message of the binary print protocol (big-endian):
+//u8 version | u8 flags | u16 count | command...
+//command: u8 opcode | u8 flags | u32 length | fields
+//Strings and byte fields carry a u32 length prefix; strings are UTF-8
+class PrintCommands {
+  static const int version = 1;
+  static const int flagAsync = 0x01;
+  static const int flagNetwork = 0x02;
+  static const int flagBold = 0x01;
+
+  static const int opStatus = 0x01;
+  static const int opText = 0x10;
+  static const int opRaster = 0x11;
+  static const int opImage = 0x12;
+  static const int opQrCode = 0x13;
+  static const int opBarcode = 0x14;
+  static const int opFeed = 0x15;
+  static const int opCut = 0x16;
+  static const int opPix = 0x17;
+
+  //Wire code of each type is its index here (same order as the plugin)
+  static const List<BarcodeType> _barcodeTypes = [
+    BarcodeType.code128,
+    BarcodeType.ean13,
+    BarcodeType.ean8,
+    BarcodeType.itf,
+    BarcodeType.qrcode,
+    BarcodeType.pdf417,
+  ];
+  static const List<String> _ditherNames = [
+    'none',
+    'threshold',
+    'ordered',
+    'floyd_steinberg',
+  ];
+
+  final BytesBuilder _body = BytesBuilder(copy: false);
+  int _count = 0;
+
+  int get length => _count;
+
+  void text(String text, {int fontSize = 24, bool bold = false}) {
+    final bytes = utf8.encode(text);
+    _command(opText, bold ? flagBold : 0, 4 + 4 + bytes.length, (data) {
+      data.setInt32(0, fontSize);
+      _putBytes(data, 4, bytes);
+    });
+  }
+
+  //data: 1 bit per dot, MSB is the leftmost dot, (width + 7) ~/ 8 bytes per row
+  void raster(int width, Uint8List data) {
+    _command(opRaster, 0, 4 + 4 + data.length, (out) {
+      out.setInt32(0, width);
+      _putBytes(out, 4, data);
+    });
+  }
+
+  //PNG or JPEG; SK210 and network printer. dither: none, threshold, ordered, floyd_steinberg
+  void image(Uint8List bytes, {String dither = 'floyd_steinberg'}) {
+    final code = _ditherNames.indexOf(dither);
+    if (code < 0) throw ArgumentError.value(dither, 'dither');
+    _command(opImage, 0, 1 + 4 + bytes.length, (data) {
+      data.setUint8(0, code);
+      _putBytes(data, 1, bytes);
+    });
+  }
+
+  void qrCode(String text, {int size = 240}) {
+    final bytes = utf8.encode(text);
+    _command(opQrCode, 0, 4 + 4 + bytes.length, (data) {
+      data.setInt32(0, size);
+      _putBytes(data, 4, bytes);
+    });
+  }
+
+  //width and height 0 use the printer defaults
+  void barcode(String text, BarcodeType type, {int width = 0, int height = 0}) {
+    final bytes = utf8.encode(text);
+    _command(opBarcode, 0, 1 + 4 + 4 + 4 + bytes.length, (data) {
+      data.setUint8(0, _barcodeTypes.indexOf(type));
+      data.setInt32(1, width);
+      data.setInt32(5, height);
+      _putBytes(data, 9, bytes);
+    });
+  }
+
+  void feed(int dots) {
+    _command(opFeed, 0, 4, (data) => data.setInt32(0, dots));
+  }
+
+  void cut() {
+    _command(opCut, 0, 0, (_) {});
+  }
+
+  //Needs PixRepository.setPixConfig first
+  void pix({int amountCents = 0, String? txid, int size = 240}) {
+    final bytes = utf8.encode(txid ?? '');
+    _command(opPix, 0, 8 + 4 + 4 + bytes.length, (data) {
+      data.setInt64(0, amountCents);
+      data.setInt32(8, size);
+      _putBytes(data, 12, bytes);
+    });
+  }
+
+  //Status only: answered from the status monitor, without queueing
+  void status() {
+    _command(opStatus, 0, 0, (_) {});
+  }
+
+  //network: sends to the printer set with NetworkPrinterRepository.setPrinter
+  ByteData build({bool async = false, bool network = false}) {
+    final header = ByteData(4)
+      ..setUint8(0, version)
+      ..setUint8(1, (async ? flagAsync : 0) | (network ? flagNetwork : 0))
+      ..setUint16(2, _count);
+    final out = BytesBuilder(copy: false)
+      ..add(header.buffer.asUint8List())
+      ..add(_body.toBytes());
+    return ByteData.sublistView(out.takeBytes());
+  }
+
+  void _command(
+      int opcode, int flags, int length, void Function(ByteData) write) {
+    final data = ByteData(6 + length)
+      ..setUint8(0, opcode)
+      ..setUint8(1, flags)
+      ..setUint32(2, length);
+    write(ByteData.sublistView(data, 6));
+    _body.add(data.buffer.asUint8List());
+    _count++;
+  }
+
+  static void _putBytes(ByteData data, int offset, List<int> bytes) {
+    data.setUint32(offset, bytes.length);
+    data.buffer
+        .asUint8List(data.offsetInBytes + offset + 4, bytes.length)
+        .setAll(0, bytes);
+  }
+}
@@ -0,0 +1,69 @@
+import 'package:flutter/services.dart';
+import 'package:gertec_pos_printer/printer/domain/exception/gertec_printer_exception.dart';
+import 'package:gertec_pos_printer/printer/domain/models/print_commands.dart';
+import '../../setup/constants.dart';
+
+//Fixed 16-byte reply of the binary channel
+class BinaryReply {
+  static const int ok = 0;
+  static const int error = 1;
+  static const int queued = 2;
+  static const int malformed = 3;
+
+  //OK, OUT_OF_PAPER, OVERHEAT, UNKNOWN, OFFLINE; null when not sent
+  static const List<String> _states = [
+    'OK',
+    'OUT_OF_PAPER',
+    'OVERHEAT',
+    'UNKNOWN',
+    'OFFLINE',
+  ];
+
+  final int opcode;
+  final int result;
+  final String? state;
+  final int errorCode;
+  //Commands printed, job id (queued) or raw status
+  final int value;
+
+  BinaryReply._(this.opcode, this.result, this.state, this.errorCode, this.value);
+
+  factory BinaryReply.fromByteData(ByteData data) {
+    final state = data.getUint8(2);
+    return BinaryReply._(
+      data.getUint8(0),
+      data.getUint8(1),
+      state < _states.length ? _states[state] : null,
+      data.getInt32(4),
+      data.getInt64(8),
+    );
+  }
+
+  bool get success => result == ok || result == queued;
+}
+
+//Compact print protocol: no maps or JSON, raster bytes go straight into
+//the native buffer
+class BinaryPrinterRepository {
+  static const BasicMessageChannel<ByteData?> _channel =
+      BasicMessageChannel<ByteData?>(binaryChannelName, BinaryCodec());
+
+  //Prints the commands in order and flushes at the end. With async the
+  //reply comes right away with the job id; progress arrives on the jobs
+  //event channel. With network the commands go to the network printer
+  Future<BinaryReply> send(
+    PrintCommands commands, {
+    bool async = false,
+    bool network = false,
+  }) async {
+    final reply =
+        await _channel.send(commands.build(async: async, network: network));
+    if (reply == null) {
+      throw GertecPrinterException('Canal binário sem resposta');
+    }
+    return BinaryReply.fromByteData(reply);
+  }
+
+  //Cached status, answered without waiting for the printer queue
+  Future<BinaryReply> status() => send(PrintCommands()..status());
+}
@@ -1,5 +1,6 @@
 import 'package:flutter/services.dart';
 import 'package:gertec_pos_printer/printer/domain/exception/gertec_printer_exception.dart';
+import 'package:gertec_pos_printer/printer/setup/print_structure.dart';
 import 'package:gertec_pos_printer/printer/setup/text_print.dart';
 import 'package:gertec_pos_printer/printer/style/gertec_printer_style.dart';
 import '../../setup/constants.dart';
@@ -46,14 +47,29 @@ class GertecPrinterRepository implements IGertecPrinterRepository {
 
   @override
   Future<dynamic> printTextList(List<TextPrint> textPrintList) async {
+    return await printJob(textPrintList);
+  }
+
+  //Draws every line and prints them with a single Output at the end.
+  //feedLines blank lines are added after the last line, in the same Output.
+  //Throws GertecPrinterException with the error code if the ticket did not print.
+  Future<dynamic> printJob(List<PrintStructure> lines, {int feedLines = 0}) async {
+    final dynamic response;
     try {
-      for (var line in textPrintList) {
-        await _channel.invokeMethod('callPrintGertec', GertecPrinterStyle.lineToMethodChannel(line));
+      final List<Map<String, dynamic>> ops = lines
+          .map((line) => GertecPrinterStyle.lineToMethodChannel(line))
+          .toList();
+      if (feedLines > 0) {
+        ops.add({'type': 'feed', 'lines': feedLines});
       }
-      return await cut();
+      response = await _channel.invokeMethod('callPrintJobGertec', {'ops': ops});
     } catch (e) {
       throw GertecPrinterException(e.toString());
     }
+    if (response['success'] != true) {
+      throw GertecPrinterException.fromResponse(response);
+    }
+    return response;
   }
 
   @override
@@ -1,4 +1,7 @@
+import 'dart:typed_data';
+
 import 'package:flutter/services.dart';
+import 'package:gertec_pos_printer/printer/domain/exception/gertec_printer_exception.dart';
 import 'package:gertec_pos_printer/printer/setup/text_print.dart';
 import 'package:gertec_pos_printer/printer/domain/repositories/contract/i_gertec_printer_repository.dart';
 import '../../setup/constants.dart';
@@ -7,6 +10,9 @@ import '../../style/gertec_printer_style.dart';
 class GertecSK210Repository implements IGertecPrinterRepository {
   static const MethodChannel _channel = MethodChannel(channelName);
 
+  //params: {message, barcodeType, width, height, raster}. barcodeType accepts
+  //CODE_128 (default), EAN_13, EAN_8, ITF, QR_CODE and PDF_417; types the
+  //SK210 lacks, or raster: true, are drawn natively as an image
   @override
   Future<dynamic> barcodePrint(Map<String, dynamic> params) async {
     return await _channel.invokeMethod('callPrinterBarcode210', {'params': params});
@@ -43,10 +49,13 @@ class GertecSK210Repository implements IGertecPrinterRepository {
     return await _channel.invokeMethod('callPrinterWrap210', {'linesWrap': lines});
   }
 
+  //dither: floyd_steinberg (default), ordered, threshold, or none to leave
+  //the thresholding to the printer firmware
   @override
-  Future<dynamic> printBitmap(List<int> bytes) async {
+  Future<dynamic> printBitmap(List<int> bytes, {String? dither}) async {
     return await _channel.invokeMethod('callPrintBitmap210', {
       'bitmap': bytes,
+      'dither': dither,
     });
   }
 
@@ -54,4 +63,51 @@ class GertecSK210Repository implements IGertecPrinterRepository {
   Future<dynamic> qrcodePrint(Map<String, dynamic> params) async {
     return await _channel.invokeMethod('callPrinterQRCode210', {'params': params});
   }
+
+  //Prints 1-bit packed rows (8 dots per byte, MSB = leftmost, 1 = black)
+  Future<dynamic> printRaster(int width, Uint8List data) async {
+    return await _channel.invokeMethod('callPrintRaster210', {
+      'width': width,
+      'data': data,
+    });
+  }
+
+  //Prints a ticket composed of cached strips. Each segment is either
+  //{'hash': int} for a strip already sent or {'width': int, 'data': Uint8List}
+  //for a new 1-bit strip. Returns the hash of every segment, in order.
+  Future<dynamic> printSegments(List<Map<String, dynamic>> segments) async {
+    return await _channel.invokeMethod('callPrintSegments210', {'segments': segments});
+  }
+
+  //Sends the ticket layout once; lines use {terreiro}, {gira}, {entity},
+  //{medium}, {code} and {date} placeholders. Text wider than the roll wraps
+  //at word boundaries into up to 'maxLines' lines (default 3)
+  //Throws GertecPrinterException if the plugin rejects the template
+  Future<dynamic> setTicketTemplate(Map<String, dynamic> template) async {
+    final response = await _channel.invokeMethod('callSetTicketTemplate210', {'template': template});
+    if (response['success'] != true) {
+      throw GertecPrinterException.fromResponse(response);
+    }
+    return response;
+  }
+
+  //Renders the configured template natively with only the field values
+  Future<dynamic> printTicket(Map<String, String> fields) async {
+    return await _channel.invokeMethod('callPrintTicket210', {'fields': fields});
+  }
+
+  //Runs a whole ticket in one call. Each op is a map with 'type' and its fields:
+  //text {message, fontSize}, qrcode {message, size}, pix {amount, txid, size},
+  //barcode {message, barcodeType, width, height, raster},
+  //bitmap {bitmap, dither}, raster {width, data}, ticket {fields},
+  //feed {lines}, cut {mode}.
+  //Returns {operations, flushes, cut}; throws GertecPrinterException with the
+  //error code when nothing or only part of the ticket was printed.
+  Future<dynamic> printJob(List<Map<String, dynamic>> ops) async {
+    final response = await _channel.invokeMethod('callPrintJob210', {'ops': ops});
+    if (response['success'] != true) {
+      throw GertecPrinterException.fromResponse(response);
+    }
+    return response;
+  }
 }
@@ -0,0 +1,60 @@
+import 'dart:typed_data';
+
+import 'package:flutter/services.dart';
+import 'package:gertec_pos_printer/printer/domain/exception/gertec_printer_exception.dart';
+import '../../setup/constants.dart';
+
+//Thermal printer on the network speaking raw ESC/POS on TCP 9100.
+//The plugin keeps one connection open and reconnects on its own; for
+//text, QR codes and rasters use BinaryPrinterRepository with network: true
+class NetworkPrinterRepository {
+  static const MethodChannel _channel = MethodChannel(channelName);
+
+  //Sets the printer once; an empty host turns it off
+  Future<void> setPrinter(String host, {int port = 9100}) async {
+    try {
+      await _channel.invokeMethod('callSetNetworkPrinter', {
+        'host': host,
+        'port': port,
+      });
+    } catch (e) {
+      throw GertecPrinterException(e.toString());
+    }
+  }
+
+  //Answered from the last DLE EOT poll, without waiting for the printer:
+  //{address, connected, state (OK|OUT_OF_PAPER|OVERHEAT|UNKNOWN|OFFLINE)}
+  //UNKNOWN is also the state of printers that do not answer DLE EOT; they
+  //stay connected and still print
+  Future<Map<dynamic, dynamic>> status() async {
+    try {
+      final response = await _channel.invokeMethod('callStatusNetwork');
+      return response['message'] as Map<dynamic, dynamic>;
+    } catch (e) {
+      throw GertecPrinterException(e.toString());
+    }
+  }
+
+  //PNG or JPEG, dithered on the device and streamed in bands.
+  //dither: none, threshold, ordered, floyd_steinberg
+  Future<void> printBitmap(
+    Uint8List bitmap, {
+    String dither = 'floyd_steinberg',
+    bool cut = true,
+  }) async {
+    final dynamic response;
+    try {
+      response = await _channel.invokeMethod('callPrintBitmapNetwork', {
+        'bitmap': bitmap,
+        'dither': dither,
+        'cut': cut,
+      });
+    } catch (e) {
+      throw GertecPrinterException(e.toString());
+    }
+    //Lost connection or timeout: the caller decides whether to reprint
+    if (response['success'] != true) {
+      throw GertecPrinterException.fromResponse(response);
+    }
+  }
+}
@@ -0,0 +1,47 @@
+import 'package:flutter/services.dart';
+import 'package:gertec_pos_printer/printer/domain/exception/gertec_printer_exception.dart';
+import '../../setup/constants.dart';
+
+//PIX BR Code built natively; works on both GPOS700 and SK210
+class PixRepository {
+  static const MethodChannel _channel = MethodChannel(channelName);
+
+  //Sends the receiver once; name and city lose accents and are truncated
+  //to 25 and 15 characters
+  Future<void> setPixConfig({
+    required String key,
+    required String name,
+    required String city,
+    String? description,
+  }) async {
+    try {
+      await _channel.invokeMethod('callSetPixConfig', {
+        'key': key,
+        'name': name,
+        'city': city,
+        'description': description,
+      });
+    } catch (e) {
+      throw GertecPrinterException(e.toString());
+    }
+  }
+
+  //Prints the PIX QR code; amountCents 0 leaves the value open.
+  //Returns the printed payload (copia e cola)
+  Future<String> printPix({
+    int amountCents = 0,
+    String? txid,
+    int size = 240,
+  }) async {
+    try {
+      final response = await _channel.invokeMethod('callPrintPix', {
+        'amount': amountCents,
+        'txid': txid,
+        'size': size,
+      });
+      return response['message'] as String;
+    } catch (e) {
+      throw GertecPrinterException(e.toString());
+    }
+  }
+}
@@ -0,0 +1,44 @@
+import 'package:flutter/services.dart';
+import 'package:gertec_pos_printer/printer/domain/exception/gertec_printer_exception.dart';
+import '../../setup/constants.dart';
+
+//Submits printer commands as background jobs and streams their state
+class PrintJobRepository {
+  static const MethodChannel _channel = MethodChannel(channelName);
+  static const EventChannel _jobEvents = EventChannel(jobsChannelName);
+
+  //Returns the job id as soon as the job is queued
+  Future<int> submitJob(String method, Map<String, dynamic> arguments) async {
+    try {
+      final response = await _channel.invokeMethod('submitJob', {
+        'method': method,
+        'arguments': arguments,
+      });
+      return response['message'] as int;
+    } catch (e) {
+      throw GertecPrinterException(e.toString());
+    }
+  }
+
+  //Answered right away, even while a ticket is printing:
+  //{ready, model, warmupMs, coldStartToFirstPrintMs}
+  Future<Map<dynamic, dynamic>> isReady() async {
+    try {
+      final response = await _channel.invokeMethod('isReady');
+      return response['message'] as Map<dynamic, dynamic>;
+    } catch (e) {
+      throw GertecPrinterException(e.toString());
+    }
+  }
+
+  //Events: {jobId, method, state (QUEUED|PRINTING|FINISHED|ERROR), errorCode, message}
+  //Prints left unanswered by a crash or reboot are replayed from the on-disk
+  //spool at startup and show up here with job ids the app did not submit.
+  //The ticket template, PIX and network printer settings are restored first.
+  //A replay that fails for lack of paper, an overheated head or a missing
+  //setting (errorCode -6) stays in the spool and runs again when the printer
+  //is back to OK or a setting arrives
+  Stream<Map<dynamic, dynamic>> get jobEvents => _jobEvents
+      .receiveBroadcastStream()
+      .map((event) => event as Map<dynamic, dynamic>);
+}
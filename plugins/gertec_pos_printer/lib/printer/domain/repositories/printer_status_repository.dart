@@ -0,0 +1,40 @@
+import 'package:flutter/services.dart';
+import 'package:gertec_pos_printer/printer/domain/exception/gertec_printer_exception.dart';
+import '../../setup/constants.dart';
+
+//Printer status sampled in the background by the plugin
+class PrinterStatusRepository {
+  static const MethodChannel _channel = MethodChannel(channelName);
+  static const EventChannel _statusEvents = EventChannel(statusChannelName);
+
+  //Changes how often the status is sampled; returns the interval in use
+  Future<int> setStatusInterval(Duration interval) async {
+    try {
+      final response = await _channel.invokeMethod('setStatusInterval', {
+        'intervalMs': interval.inMilliseconds,
+      });
+      return response['message'] as int;
+    } catch (e) {
+      throw GertecPrinterException(e.toString());
+    }
+  }
+
+  //Answered right away, even during a busy gira:
+  //{uptimeMs, stages, methods, counters, gauges}
+  //stages (QUEUE|DECODE|RENDER|SUBMIT|PRINT) and methods hold
+  //{count, meanMs, p50Ms, p90Ms, p99Ms, maxMs}; gauges hold {value, max}
+  Future<Map<dynamic, dynamic>> printerMetrics() async {
+    try {
+      final response = await _channel.invokeMethod('callPrinterMetrics');
+      return response['message'] as Map<dynamic, dynamic>;
+    } catch (e) {
+      throw GertecPrinterException(e.toString());
+    }
+  }
+
+  //Only transitions are sent:
+  //{state (OK|OUT_OF_PAPER|OVERHEAT|UNKNOWN|OFFLINE), previous, raw}
+  Stream<Map<dynamic, dynamic>> get statusEvents => _statusEvents
+      .receiveBroadcastStream()
+      .map((event) => event as Map<dynamic, dynamic>);
+}
@@ -1,2 +1,11 @@
 //Define method channel name
 const String channelName = 'qz_gertec_printer';
+
+//Define event channel name for print job state changes
+const String jobsChannelName = 'qz_gertec_printer/jobs';
+
+//Define event channel name for printer status transitions
+const String statusChannelName = 'qz_gertec_printer/status';
+
+//Define binary message channel name for the compact print protocol
+const String binaryChannelName = 'qz_gertec_printer/binary';
@@ -45,6 +45,8 @@ abstract class GertecPrinterStyle {
         return 'EAN_8';
       case BarcodeType.ean13:
         return 'EAN_13';
+      case BarcodeType.itf:
+        return 'ITF';
       case BarcodeType.qrcode:
         return 'QR_CODE';
       case BarcodeType.pdf417: